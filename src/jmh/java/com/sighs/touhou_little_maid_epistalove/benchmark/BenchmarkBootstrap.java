@@ -0,0 +1,41 @@
+package com.sighs.touhou_little_maid_epistalove.benchmark;
+
+import com.electronwill.nightconfig.core.CommentedConfig;
+import com.sighs.touhou_little_maid_epistalove.config.Config;
+import com.sighs.touhou_little_maid_epistalove.init.ModTags;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在游戏外初始化原版注册表与本模组配置（全部取默认值），供需要方块状态的基准使用
+ * Contact 的邮筒在游戏外未注册，邮筒标签绑定到同为上下两格的铁门（{@link #postboxStandIn()}）
+ */
+final class BenchmarkBootstrap {
+    private static boolean initialized = false;
+
+    private BenchmarkBootstrap() {
+    }
+
+    /**
+     * 邮筒的替身方块；在 {@link #init()} 之后才能访问
+     */
+    static Block postboxStandIn() {
+        return Blocks.IRON_DOOR;
+    }
+
+    static synchronized void init() {
+        if (initialized) return;
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        // 空的内存配置：所有配置项回落到默认值
+        Config.SERVER_SPEC.acceptConfig(CommentedConfig.inMemory());
+        BuiltInRegistries.BLOCK.bindTags(Map.of(ModTags.POSTBOXES, List.of(postboxStandIn().builtInRegistryHolder())));
+        initialized = true;
+    }
+}
@@ -0,0 +1,165 @@
+package com.sighs.touhou_little_maid_epistalove.benchmark;
+
+import com.sighs.touhou_little_maid_epistalove.api.letter.ILetterRule;
+import com.sighs.touhou_little_maid_epistalove.data.CompiledRuleSet;
+import com.sighs.touhou_little_maid_epistalove.data.DataPackLetterRuleAdapter;
+import com.sighs.touhou_little_maid_epistalove.data.LetterRule;
+import com.sighs.touhou_little_maid_epistalove.trigger.TriggerManager;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.ServerAdvancementManager;
+import net.minecraft.world.level.storage.loot.LootDataManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 规则匹配基准：每次调用模拟一只女仆的一次规则评估
+ * ServerPlayer 与 EntityMaid 无法脱离服务端构造，这里直接调用运行时使用的方法：
+ * {@link CompiledRuleSet#select}、{@link CompiledRuleSet#unmatchedTriggers} 与各规则的 hasAnyTrigger
+ * （规则的 matches 即静态条件加 hasAnyTrigger，静态条件已由 select 检查）
+ * 成就表为空，合成触发器都按自定义触发器处理；一次性触发都未消费，但仍会查询消费记录
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleMatchingBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int ruleCount;
+
+    @Param({"1", "50", "500"})
+    public int playerCount;
+
+    private static final TriggerManager TRIGGER_MANAGER = TriggerManager.getInstance();
+
+    private List<ILetterRule> rules;
+    private CompiledRuleSet snapshot;
+    private ServerAdvancementManager advancements;
+    private UUID[] players;
+    private CompoundTag[] playerData;
+    private int[] affections;
+    private ResourceLocation[] models;
+    private int cursor;
+    private int ruleCursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkBootstrap.init();
+        rules = SyntheticRules.create(ruleCount, 42L);
+        snapshot = CompiledRuleSet.compile(rules);
+        advancements = new ServerAdvancementManager(new LootDataManager());
+
+        Random random = new Random(7L);
+        players = new UUID[playerCount];
+        playerData = new CompoundTag[playerCount];
+        affections = new int[playerCount];
+        models = new ResourceLocation[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            players[i] = new UUID(random.nextLong(), random.nextLong());
+            playerData[i] = new CompoundTag();
+            affections[i] = random.nextInt(384);
+            models[i] = random.nextBoolean() ? SyntheticRules.model(random.nextInt(SyntheticRules.MODEL_POOL)) : null;
+            // 每名玩家同时激活 0-4 个触发器
+            int active = random.nextInt(5);
+            for (int t = 0; t < active; t++) {
+                TRIGGER_MANAGER.markTriggered(players[i], SyntheticRules.trigger(random.nextInt(SyntheticRules.TRIGGER_POOL)));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (UUID player : players) {
+            TRIGGER_MANAGER.clearAllTriggered(player);
+        }
+    }
+
+    private int next() {
+        int index = cursor;
+        cursor = index + 1 == playerCount ? 0 : index + 1;
+        return index;
+    }
+
+    /**
+     * 当前实现（LetterRuleRegistry.getMatchingRules）：按激活触发器查索引，再对候选规则检查触发器
+     */
+    @Benchmark
+    public List<ILetterRule> indexedMatch() {
+        int i = next();
+        List<ILetterRule> candidates = snapshot.select(TRIGGER_MANAGER.getActiveTriggers(players[i]),
+                affections[i], models[i]);
+        List<ILetterRule> matching = new ArrayList<>(candidates.size());
+        for (ILetterRule rule : candidates) {
+            if (hasAnyTrigger(rule, i)) {
+                matching.add(rule);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * 对照：对全部规则逐条检查静态条件与触发器（索引前的做法）
+     */
+    @Benchmark
+    public void linearMatch(Blackhole bh) {
+        int i = next();
+        for (int index = 0; index < snapshot.size(); index++) {
+            bh.consume(snapshot.staticMatches(index, affections[i], models[i])
+                    && hasAnyTrigger(snapshot.rules().get(index), i));
+        }
+    }
+
+    /**
+     * 单条规则的触发器检查，规则与玩家轮流取
+     */
+    @Benchmark
+    public boolean hasAnyTrigger() {
+        int index = ruleCursor;
+        ruleCursor = index + 1 == rules.size() ? 0 : index + 1;
+        return hasAnyTrigger(rules.get(index), next());
+    }
+
+    /**
+     * 触发器清理（LetterGenerationService.pruneUnmatchedTriggers）：找出不再被静态条件满足的规则引用的激活触发器
+     */
+    @Benchmark
+    public List<ResourceLocation> pruneUnmatchedTriggers() {
+        int i = next();
+        return snapshot.unmatchedTriggers(TRIGGER_MANAGER.getActiveTriggers(players[i]), affections[i], models[i]);
+    }
+
+    /**
+     * 数据包或 KubeJS 重载时的快照编译开销
+     */
+    @Benchmark
+    public CompiledRuleSet compileSnapshot() {
+        return CompiledRuleSet.compile(rules);
+    }
+
+    private boolean hasAnyTrigger(ILetterRule rule, int player) {
+        if (rule instanceof LetterRule letterRule) {
+            return letterRule.hasAnyTrigger(players[player], playerData[player], advancements);
+        }
+        return ((DataPackLetterRuleAdapter) rule).hasAnyTrigger(players[player], playerData[player], advancements);
+    }
+}
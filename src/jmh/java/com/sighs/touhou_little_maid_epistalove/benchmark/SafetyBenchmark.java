@@ -0,0 +1,124 @@
+package com.sighs.touhou_little_maid_epistalove.benchmark;
+
+import com.sighs.touhou_little_maid_epistalove.config.Config;
+import com.sighs.touhou_little_maid_epistalove.util.HazardUtil;
+import com.sighs.touhou_little_maid_epistalove.util.MailboxSafetyEvaluator;
+import com.sighs.touhou_little_maid_epistalove.util.PathSafetyPlanner;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.pathfinder.Node;
+import net.minecraft.world.level.pathfinder.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 危险评估、站立检查、邮筒评估与路径安全检查的基准，按地形分组
+ * 分配量通过 jmh 任务默认启用的 gc 分析器（-prof gc）给出
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SafetyBenchmark {
+    @Param({"FLAT", "CAVE", "LAVA_LAKE", "DENSE_BASE"})
+    public SyntheticWorld.Terrain terrain;
+
+    private static final int PROBES = 256;
+    private static final int PATH_LENGTH = 48;
+    // 不依赖实体的寻路代价：使用路径类型自身的默认值
+    private static final HazardUtil.MalusLookup DEFAULT_MALUS = type -> type.getMalus();
+
+    private SyntheticWorld world;
+    private BlockPos center;
+    private BlockPos[] probes;
+    private Path path;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkBootstrap.init();
+        world = SyntheticWorld.create(terrain, 23L);
+        center = world.center();
+
+        // 采样点分布在地表附近，覆盖安全与危险位置
+        Random random = new Random(29L);
+        probes = new BlockPos[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            int x = 8 + random.nextInt(SyntheticWorld.SIZE_X - 16);
+            int z = 8 + random.nextInt(SyntheticWorld.SIZE_Z - 16);
+            probes[i] = new BlockPos(x, world.surfaceY(x, z), z);
+        }
+
+        // 从中心出发的折线路径，穿过地形中的危险区域
+        List<Node> nodes = new ArrayList<>(PATH_LENGTH);
+        int x = center.getX() - PATH_LENGTH / 2;
+        int z = center.getZ();
+        for (int i = 0; i < PATH_LENGTH; i++) {
+            nodes.add(new Node(x, world.surfaceY(x, z), z));
+            if (i % 4 == 3) z++;
+            else x++;
+        }
+        Node last = nodes.get(nodes.size() - 1);
+        path = new Path(nodes, new BlockPos(last.x, last.y, last.z), true);
+    }
+
+    private BlockPos nextProbe() {
+        BlockPos probe = probes[cursor];
+        cursor = (cursor + 1) & (PROBES - 1);
+        return probe;
+    }
+
+    @Benchmark
+    public int calculateHazardScore() {
+        return HazardUtil.calculateHazardScore(world, nextProbe(), 2);
+    }
+
+    @Benchmark
+    public boolean isSafeForStanding() {
+        return HazardUtil.isSafeForStanding(world, nextProbe(), DEFAULT_MALUS);
+    }
+
+    @Benchmark
+    public BlockPos findSafestNearbyPosition() {
+        return HazardUtil.findSafestNearbyPosition(world, nextProbe(), 3);
+    }
+
+    /**
+     * 邮筒评估阶段（不含 POI 查找与缓存）：对地形中全部邮筒计算安全度并排序
+     */
+    @Benchmark
+    public List<MailboxSafetyEvaluator.MailboxInfo> evaluateMailboxesAt() {
+        return MailboxSafetyEvaluator.evaluateMailboxesAt(world, center, world.mailboxes());
+    }
+
+    /**
+     * 未命中缓存的邮筒搜索：按标签扫描默认搜索半径内的邮筒（只认下半部分），再评估并排序
+     * 游戏内先查 POI 索引，扫描只在索引为空时发生，这里给出的是搜索开销的上限
+     */
+    @Benchmark
+    public List<MailboxSafetyEvaluator.MailboxInfo> evaluateMailboxes() {
+        List<BlockPos> found = MailboxSafetyEvaluator.scanMailboxes(world, center, Config.MAILBOX_SEARCH_RADIUS.get());
+        return MailboxSafetyEvaluator.evaluateMailboxesAt(world, center, found);
+    }
+
+    @Benchmark
+    public boolean isPathSafeEnough() {
+        return PathSafetyPlanner.isPathSafeEnough(world, path, DEFAULT_MALUS);
+    }
+}
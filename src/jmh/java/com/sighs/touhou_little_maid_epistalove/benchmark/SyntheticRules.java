@@ -0,0 +1,85 @@
+package com.sighs.touhou_little_maid_epistalove.benchmark;
+
+import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
+import com.sighs.touhou_little_maid_epistalove.api.letter.ILetterGenerator;
+import com.sighs.touhou_little_maid_epistalove.api.letter.ILetterRule;
+import com.sighs.touhou_little_maid_epistalove.data.DataPackLetterRuleAdapter;
+import com.sighs.touhou_little_maid_epistalove.data.LetterRule;
+import com.sighs.touhou_little_maid_epistalove.data.MaidLetterRule;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * 基准测试用的合成规则集：触发器、好感度区间与模型限定按固定种子随机分布
+ * 偶数下标为 KubeJS 式的 {@link LetterRule}，奇数下标为数据包规则 {@link DataPackLetterRuleAdapter}
+ */
+final class SyntheticRules {
+    static final int TRIGGER_POOL = 256;
+    static final int MODEL_POOL = 16;
+
+    private static final ILetterGenerator NO_OP_GENERATOR = new ILetterGenerator() {
+        @Override
+        public void generate(ServerPlayer owner, EntityMaid maid, Consumer<ItemStack> callback) {
+        }
+
+        @Override
+        public String getType() {
+            return "preset";
+        }
+    };
+
+    private static final MaidLetterRule.Preset PRESET = new MaidLetterRule.Preset("bench", "bench",
+            List.of(new MaidLetterRule.Gift(new ResourceLocation("bench", "parcel"), new ResourceLocation("bench", "postcard"))));
+
+    private SyntheticRules() {
+    }
+
+    static ResourceLocation trigger(int index) {
+        return new ResourceLocation("bench", "trigger_" + index);
+    }
+
+    static ResourceLocation model(int index) {
+        return new ResourceLocation("bench", "model_" + index);
+    }
+
+    static List<ILetterRule> create(int count, long seed) {
+        Random random = new Random(seed);
+        List<ILetterRule> rules = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int triggerCount = 1 + random.nextInt(3);
+            List<ResourceLocation> triggers = new ArrayList<>(triggerCount);
+            for (int t = 0; t < triggerCount; t++) {
+                triggers.add(trigger(random.nextInt(TRIGGER_POOL)));
+            }
+
+            int minAffection = random.nextInt(4) * 64;
+            Integer maxAffection = random.nextBoolean() ? minAffection + 64 + random.nextInt(192) : null;
+
+            // 约三成规则限定女仆模型
+            List<ResourceLocation> models = List.of();
+            if (random.nextInt(10) < 3) {
+                models = List.of(model(random.nextInt(MODEL_POOL)), model(random.nextInt(MODEL_POOL)));
+            }
+
+            boolean once = random.nextBoolean();
+            if (i % 2 == 0) {
+                rules.add(new LetterRule("bench:rule_" + i, minAffection, maxAffection, triggers,
+                        once ? ILetterRule.TriggerType.ONCE : ILetterRule.TriggerType.REPEAT,
+                        1200, null, null, NO_OP_GENERATOR, models));
+            } else {
+                rules.add(new DataPackLetterRuleAdapter(new MaidLetterRule(MaidLetterRule.Type.PRESET, "bench:rule_" + i,
+                        triggers, once ? MaidLetterRule.TriggerType.ONCE : MaidLetterRule.TriggerType.PERSISTENT,
+                        minAffection, Optional.ofNullable(maxAffection), Optional.of(1200), Optional.empty(), Optional.empty(),
+                        Optional.of(PRESET), Optional.empty(), models.isEmpty() ? Optional.empty() : Optional.of(models))));
+            }
+        }
+        return rules;
+    }
+}
@@ -0,0 +1,235 @@
+package com.sighs.touhou_little_maid_epistalove.benchmark;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.BlockStateProperties;
+import net.minecraft.world.level.block.state.properties.DoubleBlockHalf;
+import net.minecraft.world.level.material.FluidState;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成世界：固定大小的方块数组，按地形类型以固定种子生成
+ * 只实现 BlockGetter，危险评估与路径检查都只依赖这一层
+ * 联络模组的邮筒在游戏外未注册，邮筒用带 postboxes 标签的上下两格替身方块代替（见 {@link BenchmarkBootstrap}）
+ */
+final class SyntheticWorld implements BlockGetter {
+    static final int SIZE_X = 96;
+    static final int SIZE_Y = 64;
+    static final int SIZE_Z = 96;
+    static final int GROUND_Y = 16;
+
+    enum Terrain {
+        // 平坦草地
+        FLAT,
+        // 地下洞穴：实心石头中挖出的通道与空腔
+        CAVE,
+        // 平地中央的岩浆湖，边缘零散分布火焰
+        LAVA_LAKE,
+        // 密集基地：围墙、栅栏、篝火与大量邮筒
+        DENSE_BASE
+    }
+
+    private final BlockState[] blocks = new BlockState[SIZE_X * SIZE_Y * SIZE_Z];
+    private final List<BlockPos> mailboxes = new ArrayList<>();
+
+    private SyntheticWorld() {
+    }
+
+    static SyntheticWorld create(Terrain terrain, long seed) {
+        SyntheticWorld world = new SyntheticWorld();
+        Random random = new Random(seed);
+        switch (terrain) {
+            case FLAT -> world.generateFlat();
+            case CAVE -> world.generateCave(random);
+            case LAVA_LAKE -> world.generateLavaLake(random);
+            case DENSE_BASE -> world.generateDenseBase(random);
+        }
+        world.placeMailboxes(random, terrain == Terrain.DENSE_BASE ? 48 : 8);
+        return world;
+    }
+
+    BlockPos center() {
+        return new BlockPos(SIZE_X / 2, GROUND_Y + 1, SIZE_Z / 2);
+    }
+
+    List<BlockPos> mailboxes() {
+        return mailboxes;
+    }
+
+    /**
+     * 地表上方第一格（站立位置），没有地表时返回地面高度
+     */
+    int surfaceY(int x, int z) {
+        for (int y = SIZE_Y - 2; y > 0; y--) {
+            if (!get(x, y, z).isAir() && get(x, y + 1, z).isAir()) {
+                return y + 1;
+            }
+        }
+        return GROUND_Y + 1;
+    }
+
+    private void generateFlat() {
+        fill(0, 0, 0, SIZE_X - 1, GROUND_Y - 1, SIZE_Z - 1, Blocks.STONE.defaultBlockState());
+        fill(0, GROUND_Y, 0, SIZE_X - 1, GROUND_Y, SIZE_Z - 1, Blocks.GRASS_BLOCK.defaultBlockState());
+    }
+
+    private void generateCave(Random random) {
+        fill(0, 0, 0, SIZE_X - 1, SIZE_Y - 1, SIZE_Z - 1, Blocks.STONE.defaultBlockState());
+        // 随机游走挖出通道，保证中心位置处于洞穴内
+        int x = SIZE_X / 2, y = GROUND_Y + 1, z = SIZE_Z / 2;
+        for (int step = 0; step < 4000; step++) {
+            fill(x - 1, y, z - 1, x + 1, y + 2, z + 1, Blocks.AIR.defaultBlockState());
+            switch (random.nextInt(6)) {
+                case 0 -> x += 2;
+                case 1 -> x -= 2;
+                case 2 -> z += 2;
+                case 3 -> z -= 2;
+                case 4 -> y += random.nextInt(3) == 0 ? 1 : 0;
+                default -> y -= random.nextInt(3) == 0 ? 1 : 0;
+            }
+            x = clamp(x, 4, SIZE_X - 5);
+            y = clamp(y, 4, SIZE_Y - 8);
+            z = clamp(z, 4, SIZE_Z - 5);
+        }
+        // 零星的岩浆与水坑
+        for (int i = 0; i < 40; i++) {
+            int px = 2 + random.nextInt(SIZE_X - 4);
+            int pz = 2 + random.nextInt(SIZE_Z - 4);
+            int py = surfaceY(px, pz) - 1;
+            set(px, py, pz, (random.nextBoolean() ? Blocks.LAVA : Blocks.WATER).defaultBlockState());
+        }
+    }
+
+    private void generateLavaLake(Random random) {
+        generateFlat();
+        int cx = SIZE_X / 2, cz = SIZE_Z / 2;
+        int radius = 14;
+        for (int x = cx - radius; x <= cx + radius; x++) {
+            for (int z = cz - radius; z <= cz + radius; z++) {
+                int dx = x - cx, dz = z - cz;
+                if (dx * dx + dz * dz <= radius * radius) {
+                    fill(x, GROUND_Y - 2, z, x, GROUND_Y, z, Blocks.LAVA.defaultBlockState());
+                }
+            }
+        }
+        // 湖岸零散的火焰与岩浆块
+        for (int i = 0; i < 120; i++) {
+            double angle = random.nextDouble() * Math.PI * 2;
+            int dist = radius + 1 + random.nextInt(4);
+            int x = cx + (int) Math.round(Math.cos(angle) * dist);
+            int z = cz + (int) Math.round(Math.sin(angle) * dist);
+            if (random.nextBoolean()) {
+                set(x, GROUND_Y + 1, z, Blocks.FIRE.defaultBlockState());
+            } else {
+                set(x, GROUND_Y, z, Blocks.MAGMA_BLOCK.defaultBlockState());
+            }
+        }
+    }
+
+    private void generateDenseBase(Random random) {
+        generateFlat();
+        BlockState wall = Blocks.COBBLESTONE.defaultBlockState();
+        BlockState fence = Blocks.OAK_FENCE.defaultBlockState();
+        // 网格状房间：墙体、门洞与栅栏
+        for (int x = 4; x < SIZE_X - 4; x += 12) {
+            for (int z = 4; z < SIZE_Z - 4; z += 12) {
+                fill(x, GROUND_Y + 1, z, x + 9, GROUND_Y + 3, z, wall);
+                fill(x, GROUND_Y + 1, z, x, GROUND_Y + 3, z + 9, wall);
+                fill(x + 4, GROUND_Y + 1, z, x + 5, GROUND_Y + 2, z, Blocks.AIR.defaultBlockState());
+                fill(x + 2, GROUND_Y + 1, z + 6, x + 7, GROUND_Y + 1, z + 6, fence);
+            }
+        }
+        // 篝火、岩浆块与仙人掌之类的杂物
+        for (int i = 0; i < 200; i++) {
+            int x = 1 + random.nextInt(SIZE_X - 2);
+            int z = 1 + random.nextInt(SIZE_Z - 2);
+            if (!get(x, GROUND_Y + 1, z).isAir()) continue;
+            switch (random.nextInt(3)) {
+                case 0 -> set(x, GROUND_Y + 1, z, Blocks.CAMPFIRE.defaultBlockState());
+                case 1 -> set(x, GROUND_Y, z, Blocks.MAGMA_BLOCK.defaultBlockState());
+                default -> set(x, GROUND_Y + 1, z, Blocks.CACTUS.defaultBlockState());
+            }
+        }
+    }
+
+    private void placeMailboxes(Random random, int count) {
+        BlockState postbox = BenchmarkBootstrap.postboxStandIn().defaultBlockState();
+        int attempts = 0;
+        while (mailboxes.size() < count && attempts++ < count * 20) {
+            int x = 4 + random.nextInt(SIZE_X - 8);
+            int z = 4 + random.nextInt(SIZE_Z - 8);
+            int y = surfaceY(x, z);
+            if (y >= SIZE_Y - 3 || !get(x, y, z).isAir() || !get(x, y + 1, z).isAir()) continue;
+            set(x, y, z, postbox.setValue(BlockStateProperties.DOUBLE_BLOCK_HALF, DoubleBlockHalf.LOWER));
+            set(x, y + 1, z, postbox.setValue(BlockStateProperties.DOUBLE_BLOCK_HALF, DoubleBlockHalf.UPPER));
+            mailboxes.add(new BlockPos(x, y, z));
+        }
+    }
+
+    private void fill(int x0, int y0, int z0, int x1, int y1, int z1, BlockState state) {
+        for (int x = Math.max(0, x0); x <= Math.min(SIZE_X - 1, x1); x++) {
+            for (int y = Math.max(0, y0); y <= Math.min(SIZE_Y - 1, y1); y++) {
+                for (int z = Math.max(0, z0); z <= Math.min(SIZE_Z - 1, z1); z++) {
+                    blocks[index(x, y, z)] = state;
+                }
+            }
+        }
+    }
+
+    private void set(int x, int y, int z, BlockState state) {
+        if (inBounds(x, y, z)) {
+            blocks[index(x, y, z)] = state;
+        }
+    }
+
+    private BlockState get(int x, int y, int z) {
+        if (!inBounds(x, y, z)) return Blocks.AIR.defaultBlockState();
+        BlockState state = blocks[index(x, y, z)];
+        return state != null ? state : Blocks.AIR.defaultBlockState();
+    }
+
+    private static boolean inBounds(int x, int y, int z) {
+        return x >= 0 && x < SIZE_X && y >= 0 && y < SIZE_Y && z >= 0 && z < SIZE_Z;
+    }
+
+    private static int index(int x, int y, int z) {
+        return (y * SIZE_Z + z) * SIZE_X + x;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    @Nullable
+    @Override
+    public BlockEntity getBlockEntity(BlockPos pos) {
+        return null;
+    }
+
+    @Override
+    public BlockState getBlockState(BlockPos pos) {
+        return get(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    @Override
+    public FluidState getFluidState(BlockPos pos) {
+        return getBlockState(pos).getFluidState();
+    }
+
+    @Override
+    public int getHeight() {
+        return SIZE_Y;
+    }
+
+    @Override
+    public int getMinBuildHeight() {
+        return 0;
+    }
+}
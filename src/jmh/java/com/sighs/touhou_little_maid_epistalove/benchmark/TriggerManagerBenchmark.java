@@ -0,0 +1,106 @@
+package com.sighs.touhou_little_maid_epistalove.benchmark;
+
+import com.sighs.touhou_little_maid_epistalove.trigger.TriggerManager;
+import net.minecraft.resources.ResourceLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 触发器状态基准：标记、查询、列出与清除，按玩家数量分组
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TriggerManagerBenchmark {
+    @Param({"1", "50", "500"})
+    public int playerCount;
+
+    private static final TriggerManager TRIGGER_MANAGER = TriggerManager.getInstance();
+    private static final int OPERATIONS = 1024;
+
+    private UUID[] players;
+    private ResourceLocation[] triggers;
+    private int[] playerIndex;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(11L);
+        players = new UUID[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            players[i] = new UUID(random.nextLong(), random.nextLong());
+            for (int t = 0; t < 4; t++) {
+                TRIGGER_MANAGER.markTriggered(players[i], SyntheticRules.trigger(random.nextInt(SyntheticRules.TRIGGER_POOL)));
+            }
+        }
+
+        // 预先生成操作序列，避免在测量中创建对象
+        triggers = new ResourceLocation[OPERATIONS];
+        playerIndex = new int[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            triggers[i] = SyntheticRules.trigger(random.nextInt(SyntheticRules.TRIGGER_POOL));
+            playerIndex[i] = random.nextInt(playerCount);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (UUID player : players) {
+            TRIGGER_MANAGER.clearAllTriggered(player);
+        }
+    }
+
+    private int next() {
+        int index = cursor;
+        cursor = (index + 1) & (OPERATIONS - 1);
+        return index;
+    }
+
+    @Benchmark
+    public void markTriggered() {
+        int i = next();
+        TRIGGER_MANAGER.markTriggered(players[playerIndex[i]], triggers[i]);
+    }
+
+    @Benchmark
+    public boolean hasTriggered() {
+        int i = next();
+        return TRIGGER_MANAGER.hasTriggered(players[playerIndex[i]], triggers[i]);
+    }
+
+    @Benchmark
+    public Set<ResourceLocation> getActiveTriggers() {
+        int i = next();
+        return TRIGGER_MANAGER.getActiveTriggers(players[playerIndex[i]]);
+    }
+
+    /**
+     * 标记后立即清除，保持触发器集合大小稳定
+     */
+    @Benchmark
+    public void markAndClear() {
+        int i = next();
+        UUID player = players[playerIndex[i]];
+        TRIGGER_MANAGER.markTriggered(player, triggers[i]);
+        TRIGGER_MANAGER.clearTriggered(player, triggers[i]);
+    }
+}
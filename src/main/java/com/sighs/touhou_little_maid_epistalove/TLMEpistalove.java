@@ -6,10 +6,13 @@ import com.sighs.touhou_little_maid_epistalove.command.MaidLetterCommand;
 import com.sighs.touhou_little_maid_epistalove.config.Config;
 import com.sighs.touhou_little_maid_epistalove.data.LetterRuleRegistry;
 import com.sighs.touhou_little_maid_epistalove.data.MaidLetterRule;
+import com.sighs.touhou_little_maid_epistalove.entity.ai.behavior.LetterEvaluationScheduler;
+import com.sighs.touhou_little_maid_epistalove.init.ModPoiTypes;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.RegisterCommandsEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import org.slf4j.Logger;
 
 @Mod(TLMEpistalove.MODID)
@@ -21,8 +24,10 @@ public class TLMEpistalove {
         Config.register();
 
         DataRegistry.register(MaidLetterRule.class, MaidLetterRule.CODEC);
+        ModPoiTypes.POI_TYPES.register(FMLJavaModLoadingContext.get().getModEventBus());
 
         LetterRuleRegistry.init();
+        LetterEvaluationScheduler.init();
         MinecraftForge.EVENT_BUS.register(this);
     }
 
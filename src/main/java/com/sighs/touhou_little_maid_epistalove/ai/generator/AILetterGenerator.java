@@ -14,32 +14,51 @@ import com.github.tartaricacid.touhoulittlemaid.config.subconfig.AIConfig;
 import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
 import com.mojang.logging.LogUtils;
 import com.sighs.touhou_little_maid_epistalove.ai.parser.ILetterParser;
+import com.sighs.touhou_little_maid_epistalove.ai.parser.ParsedLetter;
 import com.sighs.touhou_little_maid_epistalove.ai.prompt.IPromptBuilder;
+import com.sighs.touhou_little_maid_epistalove.ai.scheduler.LetterRequestScheduler;
+import com.sighs.touhou_little_maid_epistalove.ai.scheduler.LetterRequestTimer;
+import com.sighs.touhou_little_maid_epistalove.ai.scheduler.SiteCircuitBreaker;
 import com.sighs.touhou_little_maid_epistalove.api.letter.ILetterGenerator;
+import com.sighs.touhou_little_maid_epistalove.config.Config;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.item.ItemStack;
 import org.slf4j.Logger;
 
+import javax.annotation.Nullable;
 import java.net.http.HttpRequest;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 public class AILetterGenerator implements ILetterGenerator {
     private static final Logger LOGGER = LogUtils.getLogger();
+    // 首次重试的延时（tick），之后每次翻倍，另加不超过该值的随机抖动
+    private static final int RETRY_BASE_TICKS = 40;
 
     private final String tone;
     private final String prompt;
     private final IPromptBuilder promptBuilder;
     private final ILetterParser letterParser;
+    private final LetterRequestScheduler.Priority priority;
 
     public AILetterGenerator(String tone, String prompt, IPromptBuilder promptBuilder, ILetterParser letterParser) {
+        this(tone, prompt, promptBuilder, letterParser, LetterRequestScheduler.Priority.RULE);
+    }
+
+    public AILetterGenerator(String tone, String prompt, IPromptBuilder promptBuilder, ILetterParser letterParser,
+                             LetterRequestScheduler.Priority priority) {
         this.tone = tone;
         this.prompt = prompt;
         this.promptBuilder = promptBuilder;
         this.letterParser = letterParser;
+        this.priority = priority;
     }
 
     @Override
@@ -53,9 +72,37 @@ public class AILetterGenerator implements ILetterGenerator {
     }
 
     private void doGenerate(ServerPlayer owner, EntityMaid maid, CompoundTag context, Consumer<ItemStack> callback) {
+        // 工具调用来自 LLM 回调线程：缓存查找与之后的流程都转到服务端线程上进行
+        if (maid.level() instanceof ServerLevel serverLevel && !serverLevel.getServer().isSameThread()) {
+            serverLevel.getServer().execute(() -> doGenerate(owner, maid, context, callback));
+            return;
+        }
+
+        // 预生成池只在服务端线程上访问；工具调用来自 LLM 回调线程，不使用预生成的信件
+        if (priority != LetterRequestScheduler.Priority.TOOL && LetterPregenPool.isEnabled() && canPregenerate()) {
+            ParsedLetter pooled = LetterPregenPool.take(maid, this, maid.level().getGameTime());
+            if (pooled != null) {
+                LetterResponseCache.Key cacheKey = cacheKey(owner, maid, null);
+                if (cacheKey != null) {
+                    LetterResponseCache.put(cacheKey, pooled, maid);
+                }
+                runCallbackOnServerThread(maid, callback, deliver(maid, pooled));
+                return;
+            }
+        }
+
+        LetterResponseCache.Key cacheKey = cacheKey(owner, maid, context);
+        if (cacheKey != null) {
+            ParsedLetter cached = LetterResponseCache.reuse(cacheKey, maid);
+            if (cached != null) {
+                runCallbackOnServerThread(maid, callback, deliver(maid, cached));
+                return;
+            }
+        }
+
         if (!AIConfig.LLM_ENABLED.get()) {
             LOGGER.warn("[MaidMail][AI] LLM disabled");
-            callback.accept(ItemStack.EMPTY);
+            runCallbackOnServerThread(maid, callback, fallback(cacheKey, maid));
             return;
         }
 
@@ -63,48 +110,213 @@ public class AILetterGenerator implements ILetterGenerator {
         LLMSite site = chatManager.getLLMSite();
         if (site == null) {
             LOGGER.warn("[MaidMail][AI] site not available");
-            callback.accept(ItemStack.EMPTY);
+            runCallbackOnServerThread(maid, callback, fallback(cacheKey, maid));
             return;
         }
         if (!site.enabled()) {
             if (DefaultLLMSite.PLAYER2.id().equals(site.id())) {
-                Player2AppCheck.checkPlayer2App(owner, () -> startAIChat(owner, maid, context, chatManager, site, callback));
+                Player2AppCheck.checkPlayer2App(owner, () -> dispatch(owner, maid, context, chatManager, site, callback));
                 return;
             }
             LOGGER.warn("[MaidMail][AI] site disabled: {}", site.id());
-            callback.accept(ItemStack.EMPTY);
+            runCallbackOnServerThread(maid, callback, fallback(cacheKey, maid));
+            return;
+        }
+
+        dispatch(owner, maid, context, chatManager, site, callback);
+    }
+
+    /**
+     * 提示词不依赖触发上下文时才能提前生成
+     */
+    public boolean canPregenerate() {
+        return !prompt.contains("${");
+    }
+
+    /**
+     * 预生成一封信（不带触发上下文），不经过合并与预生成池，在服务端线程上回调解析结果；
+     * 站点不可用或生成失败时回调 null。此时还没有交给女仆，不写入回复缓存与记忆
+     */
+    void pregenerate(ServerPlayer owner, EntityMaid maid, Consumer<ParsedLetter> callback) {
+        if (!AIConfig.LLM_ENABLED.get()) {
+            callback.accept(null);
             return;
         }
+        MaidAIChatManager chatManager = maid.getAiChatManager();
+        LLMSite site = chatManager.getLLMSite();
+        if (site == null || !site.enabled() || SiteCircuitBreaker.isOpen(site.id())) {
+            callback.accept(null);
+            return;
+        }
+        submitChat(owner.getUUID(), priority, maid, chatManager, site, buildChat(owner, maid, null),
+                content -> {
+                    ParsedLetter letter = letterParser.parseLetter(content, maid);
+                    runOnServerThread(maid, () -> callback.accept(letter));
+                },
+                () -> runOnServerThread(maid, () -> callback.accept(null)));
+    }
+
+    /**
+     * 规则触发的请求先进入 {@link LetterBatcher} 与同一主人的其他信件合并，工具调用直接发出
+     */
+    private void dispatch(ServerPlayer owner, EntityMaid maid, CompoundTag context,
+                          MaidAIChatManager chatManager, LLMSite site, Consumer<ItemStack> callback) {
+        // Player2 检查的回调不在服务端线程上
+        if (maid.level() instanceof ServerLevel serverLevel && !serverLevel.getServer().isSameThread()) {
+            serverLevel.getServer().execute(() -> dispatch(owner, maid, context, chatManager, site, callback));
+            return;
+        }
+        if (SiteCircuitBreaker.isOpen(site.id())) {
+            runCallbackOnServerThread(maid, callback, fallback(cacheKey(owner, maid, context), maid));
+            return;
+        }
+        if (priority == LetterRequestScheduler.Priority.RULE && LetterBatcher.isEnabled()) {
+            LetterBatcher.enqueue(new LetterBatcher.Pending(this, owner, maid, context, chatManager, site, callback));
+        } else {
+            startAIChat(owner, maid, context, chatManager, site, callback);
+        }
+    }
 
-        startAIChat(owner, maid, context, chatManager, site, callback);
+    /**
+     * 提示词在入队时构建（反映触发时的状态），请求由 {@link LetterRequestScheduler} 决定何时发出，
+     * 失败时按 {@link #submitChat} 的规则重试
+     */
+    void startAIChat(ServerPlayer owner, EntityMaid maid, CompoundTag context,
+                     MaidAIChatManager chatManager, LLMSite site, Consumer<ItemStack> callback) {
+        submitChat(owner.getUUID(), priority, maid, chatManager, site, buildChat(owner, maid, context),
+                content -> runCallbackOnServerThread(maid, callback,
+                        complete(owner, maid, context, letterParser.parseLetter(content, maid))),
+                () -> runCallbackOnServerThread(maid, callback, complete(owner, maid, context, null)));
     }
 
-    private void startAIChat(ServerPlayer owner, EntityMaid maid, CompoundTag context,
-                             MaidAIChatManager chatManager, LLMSite site, Consumer<ItemStack> callback) {
-        String system = promptBuilder.buildSystemPrompt(tone, maid, owner);
+    private List<LLMMessage> buildChat(ServerPlayer owner, EntityMaid maid, CompoundTag context) {
         String userPrompt = interpolatePrompt(this.prompt, context);
-        LLMClient client = site.client();
+        String system = promptBuilder.buildSystemPrompt(tone, maid, owner, userPrompt);
         List<LLMMessage> chat = new ArrayList<>();
         chat.add(LLMMessage.systemChat(maid, system));
         chat.add(LLMMessage.userChat(maid, userPrompt));
-        client.chat(new LLMCallback(chatManager, chat, true) {
+        return chat;
+    }
+
+    /**
+     * 生成结束后构建信件：成功时写入回复缓存，失败（包括解析失败）时尝试用缓存兜底
+     */
+    ItemStack complete(ServerPlayer owner, EntityMaid maid, CompoundTag context, @Nullable ParsedLetter letter) {
+        LetterResponseCache.Key cacheKey = cacheKey(owner, maid, context);
+        if (letter == null) {
+            return fallback(cacheKey, maid);
+        }
+        if (cacheKey != null) {
+            LetterResponseCache.put(cacheKey, letter, maid);
+        }
+        return deliver(maid, letter);
+    }
+
+    @Nullable
+    private LetterResponseCache.Key cacheKey(ServerPlayer owner, EntityMaid maid, CompoundTag context) {
+        return LetterResponseCache.isEnabled()
+                ? LetterResponseCache.keyOf(tone, interpolatePrompt(prompt, context), owner, maid)
+                : null;
+    }
+
+    private ItemStack fallback(@Nullable LetterResponseCache.Key cacheKey, EntityMaid maid) {
+        if (cacheKey == null) return ItemStack.EMPTY;
+        ParsedLetter cached = LetterResponseCache.fallback(cacheKey, maid);
+        return cached != null ? deliver(maid, cached) : ItemStack.EMPTY;
+    }
+
+    /**
+     * 把信交给女仆时才记入该女仆的记忆（含去重指纹）与候选统计，无论信件来自新的回复、缓存还是预生成池
+     */
+    private ItemStack deliver(EntityMaid maid, ParsedLetter letter) {
+        promptBuilder.recordGeneratedContent(maid.getStringUUID(), letter.title(), letter.message());
+        letter.recordChoices();
+        return letter.toLetter(maid.getName().getString());
+    }
+
+    /**
+     * 通过调度器发出对话请求；失败（包括超时）且未超过重试次数时，按指数退避延时后重新排队，
+     * 站点已被熔断时不再重试；最终失败、请求被丢弃或女仆已移除时调用 onFailure
+     */
+    static void submitChat(UUID owner, LetterRequestScheduler.Priority priority, EntityMaid maid,
+                           MaidAIChatManager chatManager, LLMSite site, List<LLMMessage> chat,
+                           Consumer<String> onContent, Runnable onFailure) {
+        submitAttempt(owner, priority, maid, chatManager, site, chat, onContent, onFailure, 0);
+    }
+
+    private static void submitAttempt(UUID owner, LetterRequestScheduler.Priority priority, EntityMaid maid,
+                                      MaidAIChatManager chatManager, LLMSite site, List<LLMMessage> chat,
+                                      Consumer<String> onContent, Runnable onFailure, int attempt) {
+        LetterRequestScheduler.submit(owner, priority, new LetterRequestScheduler.Request() {
+            @Override
+            public void start(LetterRequestScheduler.Completion completion) {
+                if (maid.isRemoved() || !SiteCircuitBreaker.allowRequest(site.id())) {
+                    completion.done();
+                    onFailure.run();
+                    return;
+                }
+                sendChat(maid, chatManager, site, chat, completion, onContent, () -> {
+                    if (attempt < Config.AI_MAX_RETRIES.get() && !maid.isRemoved() && !SiteCircuitBreaker.isOpen(site.id())) {
+                        long delay = (RETRY_BASE_TICKS << attempt) + ThreadLocalRandom.current().nextInt(RETRY_BASE_TICKS);
+                        LetterMetrics.AI_RETRIES.inc();
+                        LOGGER.debug("[MaidMail][AI] Retrying letter request in {} ticks (attempt {})", delay, attempt + 1);
+                        LetterRequestTimer.schedule(delay, () ->
+                                submitAttempt(owner, priority, maid, chatManager, site, chat, onContent, onFailure, attempt + 1));
+                    } else {
+                        onFailure.run();
+                    }
+                });
+            }
+
+            @Override
+            public void reject() {
+                onFailure.run();
+            }
+        });
+    }
+
+    /**
+     * 发出一次对话请求，完成时先归还调度名额，再把回复文本交给 onContent（失败时调用 onFailure）
+     * 超过配置的时限仍没有回调时按失败处理，之后到达的回调被忽略
+     */
+    private static void sendChat(EntityMaid maid, MaidAIChatManager chatManager, LLMSite site, List<LLMMessage> chat,
+                                 LetterRequestScheduler.Completion completion, Consumer<String> onContent, Runnable onFailure) {
+        long requestStart = System.nanoTime();
+        AtomicBoolean finished = new AtomicBoolean(false);
+        LetterRequestTimer.schedule(Config.AI_REQUEST_TIMEOUT.get() * 20L, () -> {
+            if (!finished.compareAndSet(false, true)) return;
+            completion.done();
+            LetterMetrics.AI_TIMEOUTS.inc();
+            SiteCircuitBreaker.recordFailure(site.id());
+            LOGGER.warn("[MaidMail][AI] Letter request to site {} timed out after {}s", site.id(), Config.AI_REQUEST_TIMEOUT.get());
+            onFailure.run();
+        });
+
+        site.client().chat(new LLMCallback(chatManager, chat, true) {
             {
                 this.needAddTools = false;
             }
 
             @Override
             public void onSuccess(ResponseChat responseChat) {
-                String content = responseChat.chatText;
-                String senderName = maid.getName().getString();
-                ItemStack result = letterParser.parseToLetter(content, senderName, maid);
-                runCallbackOnServerThread(maid, callback, result);
+                if (!finished.compareAndSet(false, true)) return;
+                completion.done();
+                LetterMetrics.AI_LATENCY.recordSince(requestStart);
+                LetterMetrics.AI_SUCCESSES.inc();
+                SiteCircuitBreaker.recordSuccess(site.id());
+                onContent.accept(responseChat.chatText);
             }
 
             @Override
             public void onFailure(HttpRequest request, Throwable throwable, int errorCode) {
+                if (!finished.compareAndSet(false, true)) return;
+                completion.done();
+                LetterMetrics.AI_LATENCY.recordSince(requestStart);
+                LetterMetrics.AI_FAILURES.inc(errorCode);
+                SiteCircuitBreaker.recordFailure(site.id());
                 LOGGER.error("[MaidMail][AI] onFailure code={} msg={}", errorCode,
                         throwable != null ? throwable.getMessage() : "null");
-                runCallbackOnServerThread(maid, callback, ItemStack.EMPTY);
+                onFailure.run();
             }
 
             @Override
@@ -115,14 +327,34 @@ public class AILetterGenerator implements ILetterGenerator {
         });
     }
 
-    private static void runCallbackOnServerThread(EntityMaid maid, Consumer<ItemStack> callback, ItemStack result) {
+    static void runCallbackOnServerThread(EntityMaid maid, Consumer<ItemStack> callback, ItemStack result) {
+        runOnServerThread(maid, () -> callback.accept(result));
+    }
+
+    private static void runOnServerThread(EntityMaid maid, Runnable task) {
         if (maid.level() instanceof ServerLevel serverLevel) {
-            serverLevel.getServer().submit(() -> callback.accept(result));
+            serverLevel.getServer().submit(task);
         } else {
-            callback.accept(result);
+            task.run();
         }
     }
 
+    String getTone() {
+        return tone;
+    }
+
+    IPromptBuilder getPromptBuilder() {
+        return promptBuilder;
+    }
+
+    ILetterParser getLetterParser() {
+        return letterParser;
+    }
+
+    String interpolatePrompt(CompoundTag ctx) {
+        return interpolatePrompt(this.prompt, ctx);
+    }
+
     private String interpolatePrompt(String p, CompoundTag ctx) {
         if (ctx == null) return p;
         String result = p;
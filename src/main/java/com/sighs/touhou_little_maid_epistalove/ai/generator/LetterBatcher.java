@@ -0,0 +1,176 @@
+package com.sighs.touhou_little_maid_epistalove.ai.generator;
+
+import com.github.tartaricacid.touhoulittlemaid.ai.manager.entity.MaidAIChatManager;
+import com.github.tartaricacid.touhoulittlemaid.ai.service.llm.LLMMessage;
+import com.github.tartaricacid.touhoulittlemaid.ai.service.llm.LLMSite;
+import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
+import com.mojang.logging.LogUtils;
+import com.sighs.touhou_little_maid_epistalove.ai.parser.ParsedLetter;
+import com.sighs.touhou_little_maid_epistalove.ai.scheduler.LetterRequestScheduler;
+import com.sighs.touhou_little_maid_epistalove.config.Config;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.item.ItemStack;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * 规则信件请求的合并：同一主人、同一 AI 站点的请求在配置的窗口内收集起来，
+ * 合并为一次请求发出，系统提示词中共用的部分（语言、可选明信片与包裹、输出格式）只发送一次，
+ * 回复的 JSON 数组由 {@link com.sighs.touhou_little_maid_epistalove.ai.parser.ILetterParser#parseLetters} 拆回各个女仆
+ * 窗口内只有一封信时按单封请求发出，提示词与未合并时相同
+ * 入队可能来自 Player2 检查的回调线程，内部状态以锁保护，提示词构建与发出请求在锁外进行
+ */
+public final class LetterBatcher {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final Object LOCK = new Object();
+
+    /**
+     * 等待合并的单封信件请求
+     */
+    record Pending(AILetterGenerator generator, ServerPlayer owner, EntityMaid maid, CompoundTag context,
+                   MaidAIChatManager chatManager, LLMSite site, Consumer<ItemStack> callback) {
+    }
+
+    private record Key(UUID owner, String siteId) {
+    }
+
+    private static final class Batch {
+        private final List<Pending> letters = new ArrayList<>();
+        private final long openedAt;
+
+        private Batch(long openedAt) {
+            this.openedAt = openedAt;
+        }
+    }
+
+    private static final Map<Key, Batch> BATCHES = new LinkedHashMap<>();
+    private static long tick = 0L;
+
+    private LetterBatcher() {
+    }
+
+    public static boolean isEnabled() {
+        return Config.AI_BATCH_WINDOW.get() > 0;
+    }
+
+    static void enqueue(Pending pending) {
+        Batch full = null;
+        synchronized (LOCK) {
+            Key key = new Key(pending.owner().getUUID(), pending.site().id());
+            Batch batch = BATCHES.computeIfAbsent(key, k -> new Batch(tick));
+            batch.letters.add(pending);
+            if (batch.letters.size() >= Config.AI_BATCH_MAX_SIZE.get()) {
+                BATCHES.remove(key);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            flush(full.letters);
+        }
+    }
+
+    /**
+     * 服务端 tick 结束时调用，发出等待时间已满的批次
+     */
+    public static void onServerTick() {
+        List<Batch> due = new ArrayList<>();
+        synchronized (LOCK) {
+            tick++;
+            int window = Config.AI_BATCH_WINDOW.get();
+            Iterator<Batch> it = BATCHES.values().iterator();
+            while (it.hasNext()) {
+                Batch batch = it.next();
+                if (tick - batch.openedAt >= window) {
+                    it.remove();
+                    due.add(batch);
+                }
+            }
+        }
+        for (Batch batch : due) {
+            flush(batch.letters);
+        }
+    }
+
+    /**
+     * 丢弃尚未发出的批次（服务器停止时调用）
+     */
+    public static void clear() {
+        List<Pending> dropped = new ArrayList<>();
+        synchronized (LOCK) {
+            BATCHES.values().forEach(batch -> dropped.addAll(batch.letters));
+            BATCHES.clear();
+            tick = 0L;
+        }
+        dropped.forEach(p -> AILetterGenerator.runCallbackOnServerThread(p.maid(), p.callback(), ItemStack.EMPTY));
+    }
+
+    private static void flush(List<Pending> letters) {
+        List<Pending> alive = new ArrayList<>(letters.size());
+        for (Pending p : letters) {
+            if (p.maid().isRemoved()) {
+                AILetterGenerator.runCallbackOnServerThread(p.maid(), p.callback(), ItemStack.EMPTY);
+            } else {
+                alive.add(p);
+            }
+        }
+        if (alive.isEmpty()) return;
+
+        if (alive.size() == 1) {
+            Pending p = alive.get(0);
+            p.generator().startAIChat(p.owner(), p.maid(), p.context(), p.chatManager(), p.site(), p.callback());
+            return;
+        }
+        try {
+            submitBatch(alive);
+        } catch (Exception e) {
+            LOGGER.error("[MaidMail][AI] Failed to build batched letter request: {}", e.getMessage());
+            alive.forEach(p -> AILetterGenerator.runCallbackOnServerThread(p.maid(), p.callback(), ItemStack.EMPTY));
+        }
+    }
+
+    private static void submitBatch(List<Pending> letters) {
+        Pending lead = letters.get(0);
+        ServerPlayer owner = lead.owner();
+
+        StringBuilder user = new StringBuilder();
+        List<EntityMaid> maids = new ArrayList<>(letters.size());
+        for (int i = 0; i < letters.size(); i++) {
+            Pending p = letters.get(i);
+            AILetterGenerator generator = p.generator();
+            user.append("[Letter ").append(i + 1).append("]\n")
+                    .append(generator.getPromptBuilder().buildLetterBrief(generator.getTone(), p.maid(), owner))
+                    .append("Request: ").append(generator.interpolatePrompt(p.context())).append("\n\n");
+            maids.add(p.maid());
+        }
+
+        String system = lead.generator().getPromptBuilder().buildBatchSystemPrompt(owner, letters.size(), user.toString());
+        List<LLMMessage> chat = new ArrayList<>();
+        chat.add(LLMMessage.systemChat(lead.maid(), system));
+        chat.add(LLMMessage.userChat(lead.maid(), user.toString()));
+
+        LetterMetrics.AI_BATCHES.inc();
+        LetterMetrics.AI_BATCHED_LETTERS.add(letters.size());
+        AILetterGenerator.submitChat(owner.getUUID(), LetterRequestScheduler.Priority.RULE, lead.maid(),
+                lead.chatManager(), lead.site(), chat,
+                content -> deliver(letters, lead.generator().getLetterParser().parseLetters(content, maids)),
+                () -> deliver(letters, List.of()));
+    }
+
+    private static void deliver(List<Pending> letters, List<ParsedLetter> results) {
+        for (int i = 0; i < letters.size(); i++) {
+            Pending p = letters.get(i);
+            ParsedLetter letter = i < results.size() ? results.get(i) : null;
+            ItemStack result = p.generator().complete(p.owner(), p.maid(), p.context(), letter);
+            AILetterGenerator.runCallbackOnServerThread(p.maid(), p.callback(), result);
+        }
+    }
+}
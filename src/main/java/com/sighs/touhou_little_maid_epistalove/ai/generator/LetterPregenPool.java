@@ -0,0 +1,166 @@
+package com.sighs.touhou_little_maid_epistalove.ai.generator;
+
+import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
+import com.sighs.touhou_little_maid_epistalove.ai.parser.ParsedLetter;
+import com.sighs.touhou_little_maid_epistalove.ai.scheduler.LetterRequestScheduler;
+import com.sighs.touhou_little_maid_epistalove.config.Config;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
+import net.minecraft.server.level.ServerPlayer;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * AI 信件预生成池：女仆空闲且全局没有排队的 AI 请求时，为静态条件（好感度、模型）已满足的规则提前生成信件，
+ * 触发时直接从池中取出，不必等待一次完整的 LLM 往返
+ * 只有提示词不含 ${...} 占位符的生成器参与预生成，因为生成时还没有触发上下文
+ * 每个女仆的池容量有上限，条目按配置的时间过期；条目按生成器实例区分，规则重载后旧条目自然不再命中
+ * 池中存放解析后的信件，取出交给女仆时才记入记忆与候选统计；过期未用的生成器按指数退避暂停补充，命中后恢复
+ * 仅在服务端线程上访问（生成回调已切回服务端线程）
+ */
+public final class LetterPregenPool {
+    // 全局同时进行的预生成请求数，预生成只占用空闲的请求名额
+    private static final int MAX_IN_FLIGHT = 1;
+    // 连续过期未用时暂停补充的时长为有效期的 2^n 倍，n 不超过此值
+    private static final int MAX_BACKOFF_SHIFT = 4;
+
+    private record Entry(AILetterGenerator generator, ParsedLetter letter, long expiresAt) {
+    }
+
+    private record Backoff(int misses, long retryAt) {
+    }
+
+    private static final Map<UUID, ArrayDeque<Entry>> POOLS = new HashMap<>();
+    private static final Map<UUID, Map<AILetterGenerator, Backoff>> BACKOFFS = new HashMap<>();
+    private static final Set<UUID> IN_FLIGHT = new HashSet<>();
+
+    private LetterPregenPool() {
+    }
+
+    public static boolean isEnabled() {
+        return Config.AI_PREGEN_ENABLED.get();
+    }
+
+    /**
+     * 取出一封该生成器预先写好的信，没有可用条目时返回 null
+     */
+    @Nullable
+    static ParsedLetter take(EntityMaid maid, AILetterGenerator generator, long gameTime) {
+        UUID maidId = maid.getUUID();
+        ArrayDeque<Entry> pool = POOLS.get(maidId);
+        if (pool == null) return null;
+
+        purgeExpired(maidId, pool, gameTime);
+        ParsedLetter result = null;
+        Iterator<Entry> it = pool.iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.generator() == generator) {
+                it.remove();
+                result = entry.letter();
+                break;
+            }
+        }
+        if (pool.isEmpty()) POOLS.remove(maidId);
+        if (result != null) {
+            LetterMetrics.AI_PREGEN_HITS.inc();
+            clearBackoff(maidId, generator);
+        }
+        return result;
+    }
+
+    /**
+     * 在女仆空闲时为一个生成器补充池中的信件；返回是否发出了预生成请求
+     */
+    public static boolean tryPregenerate(ServerPlayer owner, EntityMaid maid, AILetterGenerator generator,
+                                         long gameTime, Runnable onFilled) {
+        if (!isEnabled() || !generator.canPregenerate()) return false;
+        if (IN_FLIGHT.size() >= MAX_IN_FLIGHT || IN_FLIGHT.contains(maid.getUUID())) return false;
+        // 只使用空闲名额，避免与触发后的请求竞争
+        if (LetterRequestScheduler.getQueued() > 0 || LetterRequestScheduler.getInFlight() > 0) return false;
+        if (size(maid.getUUID(), gameTime) >= Config.AI_PREGEN_POOL_SIZE.get()) return false;
+        if (isBackingOff(maid.getUUID(), generator, gameTime)) return false;
+
+        UUID maidId = maid.getUUID();
+        IN_FLIGHT.add(maidId);
+        LetterMetrics.AI_PREGEN_REQUESTS.inc();
+        generator.pregenerate(owner, maid, letter -> {
+            IN_FLIGHT.remove(maidId);
+            if (letter == null || maid.isRemoved()) return;
+            long now = maid.level().getGameTime();
+            ArrayDeque<Entry> pool = POOLS.computeIfAbsent(maidId, k -> new ArrayDeque<>());
+            pool.addLast(new Entry(generator, letter, now + ttlTicks()));
+            while (pool.size() > Config.AI_PREGEN_POOL_SIZE.get()) {
+                pool.pollFirst();
+            }
+            onFilled.run();
+        });
+        return true;
+    }
+
+    /**
+     * 池中未过期的条目数，顺带清理过期条目
+     */
+    private static int size(UUID maidId, long gameTime) {
+        ArrayDeque<Entry> pool = POOLS.get(maidId);
+        if (pool == null) return 0;
+        purgeExpired(maidId, pool, gameTime);
+        if (pool.isEmpty()) POOLS.remove(maidId);
+        return pool.size();
+    }
+
+    /**
+     * 清理过期条目；过期未用说明该女仆近期用不上这个生成器的信，之后暂停为它补充，连续过期时翻倍
+     */
+    private static void purgeExpired(UUID maidId, ArrayDeque<Entry> pool, long gameTime) {
+        Iterator<Entry> it = pool.iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.expiresAt() > gameTime) continue;
+            it.remove();
+            LetterMetrics.AI_PREGEN_EXPIRED.inc();
+            Map<AILetterGenerator, Backoff> backoffs = BACKOFFS.computeIfAbsent(maidId, k -> new HashMap<>());
+            Backoff previous = backoffs.get(entry.generator());
+            int misses = previous == null ? 0 : Math.min(previous.misses() + 1, MAX_BACKOFF_SHIFT);
+            backoffs.put(entry.generator(), new Backoff(misses, gameTime + (ttlTicks() << misses)));
+            LetterMetrics.AI_PREGEN_BACKOFFS.inc();
+        }
+    }
+
+    private static boolean isBackingOff(UUID maidId, AILetterGenerator generator, long gameTime) {
+        Map<AILetterGenerator, Backoff> backoffs = BACKOFFS.get(maidId);
+        Backoff backoff = backoffs == null ? null : backoffs.get(generator);
+        return backoff != null && backoff.retryAt() > gameTime;
+    }
+
+    private static void clearBackoff(UUID maidId, AILetterGenerator generator) {
+        Map<AILetterGenerator, Backoff> backoffs = BACKOFFS.get(maidId);
+        if (backoffs == null) return;
+        backoffs.remove(generator);
+        if (backoffs.isEmpty()) BACKOFFS.remove(maidId);
+    }
+
+    private static long ttlTicks() {
+        return Config.AI_PREGEN_TTL.get() * 20L;
+    }
+
+    /**
+     * 女仆被移除（死亡、丢弃）时清空其池
+     */
+    public static void forgetMaid(UUID maidId) {
+        POOLS.remove(maidId);
+        BACKOFFS.remove(maidId);
+    }
+
+    public static void clearAll() {
+        POOLS.clear();
+        BACKOFFS.clear();
+        IN_FLIGHT.clear();
+    }
+}
@@ -0,0 +1,142 @@
+package com.sighs.touhou_little_maid_epistalove.ai.generator;
+
+import com.github.tartaricacid.touhoulittlemaid.ai.manager.entity.MaidAIChatManager;
+import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
+import com.sighs.touhou_little_maid_epistalove.ai.parser.ParsedLetter;
+import com.sighs.touhou_little_maid_epistalove.config.AILetterConfig;
+import com.sighs.touhou_little_maid_epistalove.config.Config;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
+import net.minecraft.server.level.ServerPlayer;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * AI 信件回复缓存：以语调、插值后的提示词、主人语言、好感度档位、称呼以及女仆名字与人设为键，每个键保留若干不同的信件
+ * 信件按女仆的人设与名字写成，键中包含这两项，缓存的信不会交给另一个女仆署名
+ * 一个键攒满配置数量的信件后，新的请求直接复用该女仆还没收到过的一封，不再请求 LLM；
+ * LLM 关闭、站点不可用或请求失败时，也从缓存中取一封该女仆没收到过的信作为兜底
+ * 同一女仆不会收到同一封缓存信件两次；键按最近使用淘汰，信件按有效期过期
+ * 请求回调可能在网络线程上写入，内部以锁保护
+ */
+public final class LetterResponseCache {
+    private static final Object LOCK = new Object();
+
+    public record Key(String tone, String prompt, String language, int affectionBand, String ownerAlias,
+                      String maidName, int personaHash) {
+    }
+
+    private static final class Variant {
+        private final ParsedLetter letter;
+        private final long expiresAt;
+        private final Set<UUID> seenBy = new HashSet<>();
+
+        private Variant(ParsedLetter letter, long expiresAt) {
+            this.letter = letter;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // 访问顺序的 LinkedHashMap，最久未使用的键在最前
+    private static final LinkedHashMap<Key, ArrayDeque<Variant>> CACHE = new LinkedHashMap<>(64, 0.75f, true);
+
+    private LetterResponseCache() {
+    }
+
+    public static boolean isEnabled() {
+        return Config.AI_RESPONSE_CACHE_SIZE.get() > 0;
+    }
+
+    /**
+     * 好感度档位与提示词中的关系描述一致
+     */
+    public static Key keyOf(String tone, String prompt, ServerPlayer owner, EntityMaid maid) {
+        int affection = maid.getFavorability();
+        int band = affection > 80 ? 3 : affection > 60 ? 2 : affection > 40 ? 1 : 0;
+        MaidAIChatManager chatManager = maid.getAiChatManager();
+        String alias = chatManager.ownerName;
+        // 与提示词一致：只有启用自定义人设时人设才会写进提示词
+        String persona = AILetterConfig.ENABLE_CUSTOM_PERSONA.get() ? chatManager.customSetting : null;
+        return new Key(tone == null ? "" : tone, prompt, owner.getLanguage(), band, alias == null ? "" : alias,
+                maid.getName().getString(), persona == null || persona.isBlank() ? 0 : persona.hashCode());
+    }
+
+    /**
+     * 该键的信件已攒满时，取一封该女仆没收到过的；否则返回 null，由调用方继续请求 LLM
+     */
+    @Nullable
+    public static ParsedLetter reuse(Key key, EntityMaid maid) {
+        synchronized (LOCK) {
+            ArrayDeque<Variant> variants = CACHE.get(key);
+            if (variants == null) return null;
+            purgeExpired(key, variants, System.currentTimeMillis());
+            if (variants.size() < Config.AI_RESPONSE_CACHE_VARIANTS.get()) return null;
+            ParsedLetter letter = takeUnseen(variants, maid.getUUID());
+            if (letter != null) LetterMetrics.AI_CACHE_HITS.inc();
+            return letter;
+        }
+    }
+
+    /**
+     * 生成失败时的兜底：任意一封该女仆没收到过的缓存信件
+     */
+    @Nullable
+    public static ParsedLetter fallback(Key key, EntityMaid maid) {
+        synchronized (LOCK) {
+            ArrayDeque<Variant> variants = CACHE.get(key);
+            if (variants == null) return null;
+            purgeExpired(key, variants, System.currentTimeMillis());
+            ParsedLetter letter = takeUnseen(variants, maid.getUUID());
+            if (letter != null) LetterMetrics.AI_CACHE_FALLBACKS.inc();
+            return letter;
+        }
+    }
+
+    /**
+     * 记录一封新生成的信，视为已被生成它的女仆收到
+     */
+    public static void put(Key key, ParsedLetter letter, EntityMaid maid) {
+        synchronized (LOCK) {
+            ArrayDeque<Variant> variants = CACHE.computeIfAbsent(key, k -> new ArrayDeque<>());
+            Variant variant = new Variant(letter, System.currentTimeMillis() + Config.AI_RESPONSE_CACHE_TTL.get() * 1000L);
+            variant.seenBy.add(maid.getUUID());
+            variants.addLast(variant);
+            while (variants.size() > Config.AI_RESPONSE_CACHE_VARIANTS.get()) {
+                variants.pollFirst();
+            }
+
+            int capacity = Config.AI_RESPONSE_CACHE_SIZE.get();
+            Iterator<ArrayDeque<Variant>> it = CACHE.values().iterator();
+            while (CACHE.size() > capacity && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    public static void clear() {
+        synchronized (LOCK) {
+            CACHE.clear();
+        }
+    }
+
+    @Nullable
+    private static ParsedLetter takeUnseen(ArrayDeque<Variant> variants, UUID maidId) {
+        for (Variant variant : variants) {
+            if (variant.seenBy.add(maidId)) {
+                return variant.letter;
+            }
+        }
+        return null;
+    }
+
+    private static void purgeExpired(Key key, ArrayDeque<Variant> variants, long now) {
+        variants.removeIf(variant -> variant.expiresAt <= now);
+        if (variants.isEmpty()) CACHE.remove(key);
+    }
+}
@@ -1,9 +1,9 @@
 package com.sighs.touhou_little_maid_epistalove.ai.generator;
 
-import com.flechazo.contact.data.PostcardDataManager;
 import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
 import com.mojang.logging.LogUtils;
 import com.sighs.touhou_little_maid_epistalove.api.letter.ILetterGenerator;
+import com.sighs.touhou_little_maid_epistalove.util.PostcardCatalog;
 import com.sighs.touhou_little_maid_epistalove.util.PostcardPackageUtil;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
@@ -31,7 +31,7 @@ public class PresetLetterGenerator implements ILetterGenerator {
     public void generate(ServerPlayer owner, EntityMaid maid, Consumer<ItemStack> callback) {
         try {
             // 验证明信片ID是否存在
-            if (!PostcardDataManager.getPostcardIds().contains(postcardId)) {
+            if (!PostcardCatalog.get().hasPostcard(postcardId)) {
                 LOGGER.error("[MaidMail] postcard not exists id={}", postcardId);
                 callback.accept(ItemStack.EMPTY);
                 return;
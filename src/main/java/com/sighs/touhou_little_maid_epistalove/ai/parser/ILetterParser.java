@@ -3,12 +3,25 @@ package com.sighs.touhou_little_maid_epistalove.ai.parser;
 import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
 import net.minecraft.world.item.ItemStack;
 
+import javax.annotation.Nullable;
+import java.util.List;
+
 /**
  * 信件解析器接口
  * 用于解析AI生成的文本内容为信件物品
  */
 public interface ILetterParser {
 
+    /**
+     * 解析AI生成的文本为信件内容
+     *
+     * @param content AI生成的原始文本内容
+     * @param maid    女仆实体（可选，用于记忆系统）
+     * @return 解析后的信件内容，如果解析失败或未通过质量检查则返回 null
+     */
+    @Nullable
+    ParsedLetter parseLetter(String content, EntityMaid maid);
+
     /**
      * 解析AI生成的文本为信件物品
      *
@@ -17,7 +30,19 @@ public interface ILetterParser {
      * @param maid       女仆实体（可选，用于记忆系统）
      * @return 解析后的信件物品，如果解析失败则返回空物品
      */
-    ItemStack parseToLetter(String content, String senderName, EntityMaid maid);
+    default ItemStack parseToLetter(String content, String senderName, EntityMaid maid) {
+        ParsedLetter letter = parseLetter(content, maid);
+        return letter != null ? letter.toLetter(senderName) : ItemStack.EMPTY;
+    }
+
+    /**
+     * 解析合并请求返回的多封信件，按信件序号拆分给各个女仆
+     *
+     * @param content AI生成的原始文本内容
+     * @param maids   各封信对应的女仆实体，顺序与请求中的信件序号一致
+     * @return 与输入等长的列表，缺失或解析失败的位置为 null
+     */
+    List<ParsedLetter> parseLetters(String content, List<EntityMaid> maids);
 
     /**
      * 验证生成内容的质量
@@ -4,61 +4,129 @@ import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.mojang.logging.LogUtils;
-import com.sighs.touhou_little_maid_epistalove.ai.prompt.IPromptBuilder;
 import com.sighs.touhou_little_maid_epistalove.config.AILetterConfig;
+import com.sighs.touhou_little_maid_epistalove.config.Config;
+import com.sighs.touhou_little_maid_epistalove.data.LetterMemoryStore;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
 import com.sighs.touhou_little_maid_epistalove.util.PostcardPackageUtil;
 import net.minecraft.resources.ResourceLocation;
-import net.minecraft.world.item.ItemStack;
 import org.slf4j.Logger;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class JsonLetterParser implements ILetterParser {
     private static final Logger LOGGER = LogUtils.getLogger();
-    private static final Pattern JSON_OBJECT = Pattern.compile("\\{.*\\}", Pattern.DOTALL);
-
-    private final IPromptBuilder promptBuilder;
-
-    public JsonLetterParser(IPromptBuilder promptBuilder) {
-        this.promptBuilder = promptBuilder;
-    }
 
     @Override
-    public ItemStack parseToLetter(String content, String senderName, EntityMaid maid) {
-        Matcher m = JSON_OBJECT.matcher(content);
-        if (!m.find()) {
+    @Nullable
+    public ParsedLetter parseLetter(String content, EntityMaid maid) {
+        // LLMClient 只回调完整回复，这里一次性喂入；扫描在对象闭合或质量检查失败时就停止
+        LetterJsonScanner scanner = newScanner();
+        LetterJsonScanner.State state = scanner.feed(content);
+        if (state == LetterJsonScanner.State.ABORTED) {
+            LetterMetrics.PARSE_QUALITY_REJECTED.inc();
+            LOGGER.warn("[MaidMail][AI] Content quality check failed while scanning; rest of the reply skipped");
+            return null;
+        }
+        if (state != LetterJsonScanner.State.COMPLETE) {
+            LetterMetrics.PARSE_JSON_NOT_FOUND.inc();
             LOGGER.warn("[MaidMail][AI] JSON object not found in content");
-            return ItemStack.EMPTY;
+            return null;
         }
-        String json = m.group(0);
         try {
-            JsonObject obj = JsonParser.parseString(json).getAsJsonObject();
-            String title = obj.has("title") ? obj.get("title").getAsString() : "";
-            String message = obj.has("message") ? obj.get("message").getAsString() : "";
-
-            // 验证内容质量，避免过于简单或重复的内容
-            if (AILetterConfig.ENABLE_QUALITY_FILTER.get() && !isContentValid(title, message)) {
-                LOGGER.warn("[MaidMail][AI] Content quality check failed: title='{}', message='{}'", title, message);
-                return ItemStack.EMPTY;
+            return toLetter(JsonParser.parseString(scanner.json()).getAsJsonObject(), maid);
+        } catch (Exception e) {
+            LetterMetrics.PARSE_ERRORS.inc();
+            LOGGER.error("[MaidMail][AI] parse JSON error: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public List<ParsedLetter> parseLetters(String content, List<EntityMaid> maids) {
+        int count = maids.size();
+        List<ParsedLetter> letters = new ArrayList<>(Collections.nCopies(count, null));
+        LetterJsonScanner scanner = LetterJsonScanner.forArray();
+        scanner.feed(content);
+        // 数组没有闭合（例如回复被截断）时，已闭合的元素仍然可用
+        List<String> elements = scanner.elements();
+        if (elements.isEmpty()) {
+            LetterMetrics.PARSE_JSON_NOT_FOUND.inc();
+            LOGGER.warn("[MaidMail][AI] JSON array not found in batched content");
+            return letters;
+        }
+
+        // 已处理的序号（包括未通过质量检查的），避免后面的条目占用
+        boolean[] taken = new boolean[count];
+        for (int i = 0; i < elements.size(); i++) {
+            try {
+                JsonObject obj = JsonParser.parseString(elements.get(i)).getAsJsonObject();
+                // 优先按模型给出的序号归位，序号缺失或无效时按数组位置
+                int slot = obj.has("index") ? obj.get("index").getAsInt() - 1 : i;
+                if (slot < 0 || slot >= count || taken[slot]) {
+                    slot = i;
+                }
+                if (slot >= count || taken[slot]) {
+                    LOGGER.warn("[MaidMail][AI] Extra letter #{} in batched content ignored", i + 1);
+                    continue;
+                }
+                taken[slot] = true;
+                letters.set(slot, toLetter(obj, maids.get(slot)));
+            } catch (Exception e) {
+                LetterMetrics.PARSE_ERRORS.inc();
+                LOGGER.error("[MaidMail][AI] parse batched letter #{} error: {}", i + 1, e.getMessage());
             }
+        }
+        return letters;
+    }
 
-            String parcelIdStr = obj.has("parcel_id") ? obj.get("parcel_id").getAsString() : null;
-            String postcardIdStr = obj.has("postcard_id") ? obj.get("postcard_id").getAsString() : null;
+    /**
+     * 创建单封信件的增量扫描器，title 与 message 读完即按配置做质量检查
+     */
+    public LetterJsonScanner newScanner() {
+        return LetterJsonScanner.forObject((title, message) ->
+                !AILetterConfig.ENABLE_QUALITY_FILTER.get() || isContentValid(title, message));
+    }
 
-            ResourceLocation packageId = PostcardPackageUtil.choosePackageId(parcelIdStr);
-            ResourceLocation postcardId = PostcardPackageUtil.choosePostcardId(postcardIdStr);
+    @Nullable
+    private ParsedLetter toLetter(JsonObject obj, EntityMaid maid) {
+        String title = obj.has("title") ? obj.get("title").getAsString() : "";
+        String message = obj.has("message") ? obj.get("message").getAsString() : "";
 
-            // 记录到记忆系统
-            if (maid != null && promptBuilder != null) {
-                promptBuilder.recordGeneratedContent(maid.getStringUUID(), title, message);
-            }
+        // 验证内容质量，避免过于简单或重复的内容
+        if (AILetterConfig.ENABLE_QUALITY_FILTER.get() && !isContentValid(title, message)) {
+            LetterMetrics.PARSE_QUALITY_REJECTED.inc();
+            LOGGER.warn("[MaidMail][AI] Content quality check failed: title='{}', message='{}'", title, message);
+            return null;
+        }
 
-            return PostcardPackageUtil.buildPackageWithPostcard(packageId, title + "\n" + message, postcardId, senderName);
-        } catch (Exception e) {
-            LOGGER.error("[MaidMail][AI] parse JSON error: {}", e.getMessage());
-            return ItemStack.EMPTY;
+        // 与该女仆最近的信件过于相近时拒绝，按生成失败处理（回退到缓存与失败退避）
+        if (maid != null && isNearDuplicate(maid, title, message)) {
+            LetterMetrics.PARSE_DUPLICATE_REJECTED.inc();
+            LOGGER.warn("[MaidMail][AI] Letter too similar to a recent one from {}: title='{}'", maid.getStringUUID(), title);
+            return null;
         }
+
+        String parcelIdStr = obj.has("parcel_id") ? obj.get("parcel_id").getAsString() : null;
+        String postcardIdStr = obj.has("postcard_id") ? obj.get("postcard_id").getAsString() : null;
+
+        ResourceLocation packageId = PostcardPackageUtil.choosePackageId(parcelIdStr);
+        ResourceLocation postcardId = PostcardPackageUtil.choosePostcardId(postcardIdStr);
+        LetterMetrics.PARSE_SUCCESSES.inc();
+        // 记忆与候选统计在信件交给女仆时记录（见 AILetterGenerator），预生成后未使用的信不计入
+        return new ParsedLetter(title, message, postcardId, packageId,
+                postcardId.toString().equals(postcardIdStr), packageId.toString().equals(parcelIdStr));
+    }
+
+    private static boolean isNearDuplicate(EntityMaid maid, String title, String message) {
+        int maxDistance = Config.AI_DUPLICATE_DISTANCE.get();
+        LetterMemoryStore store = LetterMemoryStore.get();
+        if (maxDistance <= 0 || store == null) return false;
+        return store.hasNearDuplicate(maid.getUUID(), LetterSimHash.fingerprint(title, message),
+                AILetterConfig.MEMORY_SIZE.get(), maxDistance);
     }
 
     @Override
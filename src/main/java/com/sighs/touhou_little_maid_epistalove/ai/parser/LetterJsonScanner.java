@@ -0,0 +1,207 @@
+package com.sighs.touhou_little_maid_epistalove.ai.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+/**
+ * 增量扫描 LLM 回复中的信件 JSON：可以按块喂入文本，第一个完整的对象（或对象数组）闭合后立即结束，
+ * 之后的多余文字不再读取；对象模式下 title 与 message 一读完就做质量检查，不通过时立即中止
+ * 只跟踪字符串、转义与括号深度，不构建语法树，完整的 JSON 文本交给 Gson 解析
+ * 数组模式要求 '[' 之后的第一个非空白字符是 '{'，以跳过 "[Letter 1]" 之类的文字
+ */
+public final class LetterJsonScanner {
+    public enum State {
+        SEARCHING, IN_PROGRESS, COMPLETE, ABORTED
+    }
+
+    private final boolean arrayMode;
+    private final BiPredicate<String, String> fieldCheck;
+    // 顶层对象字段所在的深度：对象模式为 1，数组模式下各元素的字段为 2
+    private final int fieldDepth;
+
+    private State state = State.SEARCHING;
+    private final StringBuilder json = new StringBuilder();
+    private final List<String> elements = new ArrayList<>();
+    private int elementStart = -1;
+    private boolean arrayCandidate = false;
+
+    private int depth = 0;
+    private boolean inString = false;
+    private boolean escape = false;
+    private int unicodeRemaining = 0;
+    private int unicodeValue = 0;
+    private final StringBuilder current = new StringBuilder();
+
+    private boolean expectingKey = false;
+    private String lastKey = null;
+    private String title = null;
+    private String message = null;
+
+    private LetterJsonScanner(boolean arrayMode, BiPredicate<String, String> fieldCheck) {
+        this.arrayMode = arrayMode;
+        this.fieldCheck = fieldCheck;
+        this.fieldDepth = arrayMode ? 2 : 1;
+    }
+
+    /**
+     * 扫描单个信件对象；title 与 message 都读完后调用 fieldCheck，返回 false 时中止
+     */
+    public static LetterJsonScanner forObject(BiPredicate<String, String> fieldCheck) {
+        return new LetterJsonScanner(false, fieldCheck);
+    }
+
+    /**
+     * 扫描合并请求返回的对象数组，各元素的质量检查由调用方在解析后进行
+     */
+    public static LetterJsonScanner forArray() {
+        return new LetterJsonScanner(true, null);
+    }
+
+    /**
+     * 喂入一段文本，返回扫描状态；结束（完成或中止）后再喂入的文本被忽略
+     */
+    public State feed(CharSequence chunk) {
+        for (int i = 0; i < chunk.length() && (state == State.SEARCHING || state == State.IN_PROGRESS); i++) {
+            char c = chunk.charAt(i);
+            if (state == State.SEARCHING) {
+                search(c);
+            } else {
+                scan(c);
+            }
+        }
+        return state;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    /**
+     * 完整的 JSON 文本，仅在 {@link State#COMPLETE} 时有意义
+     */
+    public String json() {
+        return json.toString();
+    }
+
+    /**
+     * 数组模式下已闭合的各个元素对象的文本
+     */
+    public List<String> elements() {
+        return elements;
+    }
+
+    private void search(char c) {
+        if (arrayCandidate) {
+            if (Character.isWhitespace(c)) {
+                json.append(c);
+                return;
+            }
+            arrayCandidate = false;
+            if (c == '{') {
+                state = State.IN_PROGRESS;
+                depth = 1;
+                scan(c);
+                return;
+            }
+            json.setLength(0);
+        }
+
+        if (arrayMode && c == '[') {
+            arrayCandidate = true;
+            json.append(c);
+        } else if (!arrayMode && c == '{') {
+            state = State.IN_PROGRESS;
+            scan(c);
+        }
+    }
+
+    private void scan(char c) {
+        json.append(c);
+        if (inString) {
+            scanString(c);
+            return;
+        }
+        switch (c) {
+            case '"' -> {
+                inString = true;
+                current.setLength(0);
+            }
+            case '{' -> {
+                depth++;
+                if (depth == fieldDepth) {
+                    expectingKey = true;
+                    lastKey = null;
+                    if (arrayMode) elementStart = json.length() - 1;
+                }
+            }
+            case '[' -> depth++;
+            case '}', ']' -> {
+                if (arrayMode && c == '}' && depth == fieldDepth && elementStart >= 0) {
+                    elements.add(json.substring(elementStart));
+                    elementStart = -1;
+                }
+                depth--;
+                if (depth <= 0) {
+                    state = State.COMPLETE;
+                }
+            }
+            case ',' -> {
+                if (depth == fieldDepth) expectingKey = true;
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void scanString(char c) {
+        if (unicodeRemaining > 0) {
+            unicodeValue = (unicodeValue << 4) | Character.digit(c, 16);
+            if (--unicodeRemaining == 0) current.append((char) unicodeValue);
+            return;
+        }
+        if (escape) {
+            escape = false;
+            switch (c) {
+                case 'n' -> current.append('\n');
+                case 't' -> current.append('\t');
+                case 'r' -> current.append('\r');
+                case 'b' -> current.append('\b');
+                case 'f' -> current.append('\f');
+                case 'u' -> {
+                    unicodeRemaining = 4;
+                    unicodeValue = 0;
+                }
+                default -> current.append(c);
+            }
+            return;
+        }
+        if (c == '\\') {
+            escape = true;
+        } else if (c == '"') {
+            inString = false;
+            onString(current.toString());
+        } else {
+            current.append(c);
+        }
+    }
+
+    private void onString(String value) {
+        if (depth != fieldDepth) return;
+        if (expectingKey) {
+            lastKey = value;
+            expectingKey = false;
+            return;
+        }
+        if ("title".equals(lastKey)) {
+            title = value;
+        } else if ("message".equals(lastKey)) {
+            message = value;
+        } else {
+            return;
+        }
+        if (fieldCheck != null && title != null && message != null && !fieldCheck.test(title, message)) {
+            state = State.ABORTED;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.sighs.touhou_little_maid_epistalove.ai.parser;
+
+import java.util.Locale;
+
+/**
+ * 信件文本的 64 位 SimHash：去掉空白与标点后取字符 3-gram，相近的文本指纹之间的汉明距离也小
+ * 按字符而不是按单词切分，中文等不以空格分词的文本同样适用
+ */
+public final class LetterSimHash {
+    private static final int GRAM = 3;
+
+    private LetterSimHash() {
+    }
+
+    public static long fingerprint(String title, String message) {
+        return fingerprint(title + "\n" + message);
+    }
+
+    public static long fingerprint(String text) {
+        int[] codePoints = text.toLowerCase(Locale.ROOT).codePoints()
+                .filter(Character::isLetterOrDigit)
+                .toArray();
+        if (codePoints.length == 0) return 0L;
+
+        int[] weights = new int[64];
+        int grams = Math.max(1, codePoints.length - GRAM + 1);
+        for (int start = 0; start < grams; start++) {
+            long hash = hashGram(codePoints, start, Math.min(codePoints.length, start + GRAM));
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += ((hash >>> bit) & 1L) != 0 ? 1 : -1;
+            }
+        }
+
+        long fingerprint = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) fingerprint |= 1L << bit;
+        }
+        return fingerprint;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    // FNV-1a 后再经 splitmix64 的终结混合，让相邻的 gram 也能得到分布均匀的各个位
+    private static long hashGram(int[] codePoints, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash ^= codePoints[i];
+            hash *= 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -0,0 +1,31 @@
+package com.sighs.touhou_little_maid_epistalove.ai.parser;
+
+import com.sighs.touhou_little_maid_epistalove.ai.prompt.PromptBudget;
+import com.sighs.touhou_little_maid_epistalove.util.PostcardPackageUtil;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.ItemStack;
+
+/**
+ * 解析后的信件内容（明信片与包裹已解析为可用的ID），与发送者无关，可以复用给不同的女仆
+ *
+ * @param postcardChosen 明信片ID是否由模型给出（否则为随机兜底）
+ * @param packageChosen  包裹ID是否由模型给出（否则为随机兜底）
+ */
+public record ParsedLetter(String title, String message, ResourceLocation postcardId, ResourceLocation packageId,
+                           boolean postcardChosen, boolean packageChosen) {
+
+    /**
+     * 以指定发送者署名构建信件物品
+     */
+    public ItemStack toLetter(String senderName) {
+        return PostcardPackageUtil.buildPackageWithPostcard(packageId, title + "\n" + message, postcardId, senderName);
+    }
+
+    /**
+     * 信件交给女仆时调用：模型给出的有效ID记入 {@link PromptBudget}，供提示词超出预算时筛选候选
+     */
+    public void recordChoices() {
+        if (postcardChosen) PromptBudget.recordChoice(postcardId);
+        if (packageChosen) PromptBudget.recordChoice(packageId);
+    }
+}
@@ -3,27 +3,29 @@ package com.sighs.touhou_little_maid_epistalove.ai.prompt;
 import com.github.tartaricacid.touhoulittlemaid.ai.manager.entity.MaidAIChatManager;
 import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
 import com.mojang.logging.LogUtils;
+import com.sighs.touhou_little_maid_epistalove.ai.parser.LetterSimHash;
 import com.sighs.touhou_little_maid_epistalove.config.AILetterConfig;
+import com.sighs.touhou_little_maid_epistalove.data.LetterMemoryStore;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
 import com.sighs.touhou_little_maid_epistalove.util.PostcardPackageUtil;
 import net.minecraft.core.registries.Registries;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.level.biome.Biome;
+import net.minecraftforge.common.ForgeConfigSpec;
 import org.slf4j.Logger;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 public class EnhancedPromptBuilder implements IPromptBuilder {
     private static final Logger LOGGER = LogUtils.getLogger();
 
-    // 记忆系统
-    private static final Map<String, Queue<String>> RECENT_CONTENT_MEMORY = new ConcurrentHashMap<>();
-
     // 表达技巧模板
     private static final List<String> EXPRESSION_TECHNIQUES = List.of(
             "Use vivid sensory details",
@@ -59,88 +61,269 @@ public class EnhancedPromptBuilder implements IPromptBuilder {
             "gentle", "joyful", "calm", "hopeful", "nostalgic", "content", "curious", "caring"
     );
 
+    private static final List<String> CREATIVITY_TIPS = List.of(
+            "Try using metaphor or personification",
+            "Add small details like sounds, scents, and textures",
+            "Describe the same thing from different angles",
+            "Use poetic expressions where suitable",
+            "Create a specific mood or atmosphere",
+            "Add imaginative elements",
+            "Experiment with dialogue or inner monologue",
+            "Use literary rhetorical devices"
+    );
+
+    private static final int COMPACT_MEMORY_ENTRIES = 3;
+
+    // 配置列表快照，配置值对象不变时复用上次转换的结果
+    private static final ConfiguredList CONFIGURED_TECHNIQUES = new ConfiguredList(AILetterConfig.EXPRESSION_TECHNIQUES, EXPRESSION_TECHNIQUES);
+    private static final ConfiguredList CONFIGURED_CONTEXT_TEMPLATES = new ConfiguredList(AILetterConfig.CONTEXT_TEMPLATES, CONTEXT_TEMPLATES);
+    private static final ConfiguredList CONFIGURED_WEATHER = new ConfiguredList(AILetterConfig.WEATHER_DESCRIPTIONS, WEATHER_DESCRIPTIONS);
+    private static final ConfiguredList CONFIGURED_EMOTIONS = new ConfiguredList(AILetterConfig.EMOTIONAL_STATES, EMOTIONAL_STATES);
+    private static final ConfiguredList CONFIGURED_CREATIVITY_TIPS = new ConfiguredList(AILetterConfig.CREATIVITY_TIPS, CREATIVITY_TIPS);
+
+    // 单封信件的系统提示词；${language}、${postcards}、${parcels} 按语言预先填入，其余槽位每次请求填写
+    private static final String SYSTEM_PROMPT = """
+            You are a maid. Write a heartfelt letter to your master.
+            
+            ${persona}${naming}${language}[Context]
+            ${context}
+            
+            [Expression Techniques]
+            - ${technique}
+            - Avoid generic phrasing; be innovative
+            - Try different openings and endings each time
+            - Add unique, concrete details
+            
+            [Creativity Tips]
+            ${creativity}
+            
+            [Avoid Repetition]
+            ${memory}
+            
+            Output strictly a single JSON object containing:
+            - "title": creative letter title (string)
+            - "message": engaging letter content (string, ≤160 characters)
+            - "postcard_id": optional, choose one most suitable from: [${postcards}]
+            - "parcel_id": optional, choose one most suitable from: [${parcels}]
+            
+            Do not output any extra characters or explanations.
+            Tone: ${tone}
+            
+            Example (use completely different content):
+            {"title":"A unique title","message":"An imaginative short letter","postcard_id":"contact:default","parcel_id":"contact:letter"}
+            """;
+
+    private static final String BATCH_SYSTEM_PROMPT = """
+            You write letters for several maids to their shared master. Each letter in the user message has its own maid, persona, context and tone; write every letter in its own maid's voice, as if that maid wrote it alone.
+            
+            ${language}[Expression Techniques]
+            - Avoid generic phrasing; be innovative
+            - Letters must not resemble each other in opening, ending or details
+            - Add unique, concrete details
+            
+            Output strictly a single JSON array with exactly ${count} objects, one per letter, each containing:
+            - "index": the letter number from the user message (integer)
+            - "title": creative letter title (string)
+            - "message": engaging letter content (string, ≤160 characters)
+            - "postcard_id": optional, choose one most suitable from: [${postcards}]
+            - "parcel_id": optional, choose one most suitable from: [${parcels}]
+            
+            Do not output any extra characters or explanations.
+            
+            Example (use completely different content):
+            [{"index":1,"title":"A unique title","message":"An imaginative short letter","postcard_id":"contact:default","parcel_id":"contact:letter"}]
+            """;
+
+    private static final PromptTemplate LETTER_BRIEF = PromptTemplate.compile("""
+            Maid: ${maid}
+            ${persona}${naming}[Context]
+            ${context}
+            
+            [Expression Technique]
+            ${technique}
+            
+            [Creativity Tip]
+            ${creativity}
+            
+            [Avoid Repetition]
+            ${memory}
+            
+            Tone: ${tone}
+            """, "maid", "persona", "naming", "context", "technique", "creativity", "memory", "tone");
+
+    /**
+     * 按语言编译好的系统提示词：完整版已填入全部明信片与包裹；裁剪版的两个列表留作槽位，超出 token 预算时使用
+     * baseTokens 是不含列表与动态槽位的固定部分的估算，listTokens 是完整列表的估算
+     */
+    private record LanguageTemplates(PromptTemplate single, PromptTemplate singleTrimmed, int singleBaseTokens,
+                                     PromptTemplate batch, PromptTemplate batchTrimmed, int batchBaseTokens,
+                                     int listTokens) {
+    }
+
+    // 渲染时槽位值的顺序；裁剪版在末尾追加两个列表
+    private static final String[] SINGLE_SLOTS = {"persona", "naming", "context", "technique", "creativity", "memory", "tone"};
+    private static final String[] TRIMMED_SINGLE_SLOTS = {"persona", "naming", "context", "technique", "creativity", "memory", "tone", "postcards", "parcels"};
+
+    // 按玩家语言标签缓存，数据包重载或服务器停止时清空
+    private static final Map<String, LanguageTemplates> TEMPLATES = new ConcurrentHashMap<>();
+
+    /**
+     * 丢弃已编译的系统提示词（明信片或包裹列表可能已变化），下次请求时按需重新编译
+     */
+    public static void invalidateTemplates() {
+        TEMPLATES.clear();
+    }
+
+    private static LanguageTemplates templatesFor(ServerPlayer owner) {
+        String languageTag = Objects.requireNonNullElse(owner.getLanguage(), "");
+        return TEMPLATES.computeIfAbsent(languageTag, EnhancedPromptBuilder::compileTemplates);
+    }
+
+    private static LanguageTemplates compileTemplates(String languageTag) {
+        String language = "[Language Requirement]\nStrictly write in " + formatLanguageDisplayName(languageTag) + ". Do not mix languages.\n\n";
+        String postcards = joinIds(PostcardPackageUtil.getAllPostcardIds());
+        String parcels = joinIds(PostcardPackageUtil.getAllPackageItemIds());
+
+        String singleText = SYSTEM_PROMPT.replace("${language}", language);
+        String batchText = BATCH_SYSTEM_PROMPT.replace("${language}", language);
+        PromptTemplate single = PromptTemplate.compile(fillLists(singleText, postcards, parcels), SINGLE_SLOTS);
+        PromptTemplate singleTrimmed = PromptTemplate.compile(singleText, TRIMMED_SINGLE_SLOTS);
+        PromptTemplate batch = PromptTemplate.compile(fillLists(batchText, postcards, parcels), "count");
+        PromptTemplate batchTrimmed = PromptTemplate.compile(batchText, "count", "postcards", "parcels");
+        LOGGER.debug("[MaidMail][AI] Compiled letter prompt templates for language '{}'", languageTag);
+        return new LanguageTemplates(single, singleTrimmed, PromptBudget.estimateTokens(fillLists(singleText, "", "")),
+                batch, batchTrimmed, PromptBudget.estimateTokens(fillLists(batchText, "", "")),
+                PromptBudget.estimateTokens(postcards, parcels));
+    }
+
+    private static String fillLists(String text, String postcards, String parcels) {
+        return text.replace("${postcards}", postcards).replace("${parcels}", parcels);
+    }
+
     @Override
     public String buildSystemPrompt(String tone, EntityMaid maid, ServerPlayer owner) {
-        var allPostcards = PostcardPackageUtil.getAllPostcardIds();
-        var allParcels = PostcardPackageUtil.getAllPackageItemIds();
-        String postcardsList = allPostcards.stream().map(ResourceLocation::toString).collect(Collectors.joining(", "));
-        String parcelsList = allParcels.stream().map(ResourceLocation::toString).collect(Collectors.joining(", "));
+        return buildSystemPrompt(tone, maid, owner, "");
+    }
+
+    @Override
+    public String buildSystemPrompt(String tone, EntityMaid maid, ServerPlayer owner, String request) {
+        LanguageTemplates templates = templatesFor(owner);
+        MaidAIChatManager chatManager = maid.getAiChatManager();
+        String[] slots = {
+                buildPersonaSection(chatManager),
+                buildNameRuleSection(chatManager),
+                buildContextInfo(maid, owner),
+                getRandomExpressionTechnique(),
+                generateCreativityBoost(),
+                generateMemoryConstraints(maid.getStringUUID(), false),
+                resolveTone(tone),
+                "", ""
+        };
+
+        int budget = PromptBudget.limit();
+        int fullTokens = templates.singleBaseTokens() + templates.listTokens() + PromptBudget.estimateTokens(slots);
+        if (budget <= 0 || fullTokens <= budget) {
+            return templates.single().render(slots);
+        }
+
+        // 超出预算：先压缩记忆约束，剩余的预算再分给明信片与包裹列表
+        slots[5] = generateMemoryConstraints(maid.getStringUUID(), true);
+        int listBudget = budget - templates.singleBaseTokens() - PromptBudget.estimateTokens(slots);
+        String hint = slots[6] + " " + request;
+        slots[8] = PromptBudget.shortlist(PostcardPackageUtil.getAllPackageItemIds(), hint, listBudget / 3);
+        slots[7] = PromptBudget.shortlist(PostcardPackageUtil.getAllPostcardIds(), hint, listBudget - PromptBudget.estimateTokens(slots[8]));
+        return trimmed(templates.singleTrimmed().render(slots), fullTokens);
+    }
+
+    @Override
+    public String buildBatchSystemPrompt(ServerPlayer owner, int letterCount) {
+        return buildBatchSystemPrompt(owner, letterCount, "");
+    }
+
+    @Override
+    public String buildBatchSystemPrompt(ServerPlayer owner, int letterCount, String request) {
+        LanguageTemplates templates = templatesFor(owner);
+        String count = String.valueOf(letterCount);
+
+        int budget = PromptBudget.limit();
+        int fullTokens = templates.batchBaseTokens() + templates.listTokens();
+        if (budget <= 0 || fullTokens <= budget) {
+            return templates.batch().render(count);
+        }
+
+        int listBudget = budget - templates.batchBaseTokens();
+        String parcels = PromptBudget.shortlist(PostcardPackageUtil.getAllPackageItemIds(), request, listBudget / 3);
+        String postcards = PromptBudget.shortlist(PostcardPackageUtil.getAllPostcardIds(), request, listBudget - PromptBudget.estimateTokens(parcels));
+        return trimmed(templates.batchTrimmed().render(count, postcards, parcels), fullTokens);
+    }
 
-        // 生成动态上下文信息
-        String contextInfo = AILetterConfig.ENABLE_CONTEXT_ENRICHMENT.get() ?
+    private static String trimmed(String prompt, int fullTokens) {
+        LetterMetrics.AI_PROMPT_TRIMMED.inc();
+        LetterMetrics.AI_PROMPT_TOKENS_SAVED.add(Math.max(0, fullTokens - PromptBudget.estimateTokens(prompt)));
+        return prompt;
+    }
+
+    @Override
+    public String buildLetterBrief(String tone, EntityMaid maid, ServerPlayer owner) {
+        MaidAIChatManager chatManager = maid.getAiChatManager();
+        return LETTER_BRIEF.render(
+                maid.getName().getString(),
+                buildPersonaSection(chatManager),
+                buildNameRuleSection(chatManager),
+                buildContextInfo(maid, owner),
+                getRandomExpressionTechnique(),
+                generateCreativityBoost(),
+                generateMemoryConstraints(maid.getStringUUID(), false),
+                resolveTone(tone));
+    }
+
+    private String buildContextInfo(EntityMaid maid, ServerPlayer owner) {
+        return AILetterConfig.ENABLE_CONTEXT_ENRICHMENT.get() ?
                 generateContextInfo(maid, owner) : "当前环境：普通";
-        String expressionTechnique = getRandomExpressionTechnique();
-        String creativityBoost = generateCreativityBoost();
-        String memoryConstraints = generateMemoryConstraints(maid.getStringUUID());
+    }
 
-        String toneInline = (tone != null && !tone.isBlank())
+    private static String resolveTone(String tone) {
+        return (tone != null && !tone.isBlank())
                 ? tone
                 : "Pick a suitable style word based on the player's dialogue; do not ask the player; if no clear preference, choose randomly";
+    }
 
-        MaidAIChatManager chatManager = maid.getAiChatManager();
-        String personaSection = "";
+    private static String buildPersonaSection(MaidAIChatManager chatManager) {
         if (AILetterConfig.ENABLE_CUSTOM_PERSONA.get()) {
             String cs = chatManager.customSetting;
             if (cs != null && !cs.isBlank()) {
-                personaSection = "[Persona]\n" + cs + "\n\n";
+                return "[Persona]\n" + cs + "\n\n";
             }
         }
-        String nameRuleSection = "";
+        return "";
+    }
+
+    private static String buildNameRuleSection(MaidAIChatManager chatManager) {
         String ownerAlias = chatManager.ownerName;
         if (ownerAlias != null && !ownerAlias.isBlank()) {
-            nameRuleSection = "[Naming Rule]\nYou must address the master strictly as '" + ownerAlias + "'. Do not use any other form of address.\n\n";
+            return "[Naming Rule]\nYou must address the master strictly as '" + ownerAlias + "'. Do not use any other form of address.\n\n";
         }
-        String clientLang = resolveClientLanguage(owner);
-        String languageSection = "[Language Requirement]\nStrictly write in " + clientLang + ". Do not mix languages.\n\n";
-
-        return """
-                You are a maid. Write a heartfelt letter to your master.
-                
-                %s%s%s[Context]
-                %s
-                
-                [Expression Techniques]
-                - %s
-                - Avoid generic phrasing; be innovative
-                - Try different openings and endings each time
-                - Add unique, concrete details
-                
-                [Creativity Tips]
-                %s
-                
-                [Avoid Repetition]
-                %s
-                
-                Output strictly a single JSON object containing:
-                - "title": creative letter title (string)
-                - "message": engaging letter content (string, ≤160 characters)
-                - "postcard_id": optional, choose one most suitable from: [%s]
-                - "parcel_id": optional, choose one most suitable from: [%s]
-                
-                Do not output any extra characters or explanations.
-                Tone: %s
-                
-                Example (use completely different content):
-                {"title":"A unique title","message":"An imaginative short letter","postcard_id":"contact:default","parcel_id":"contact:letter"}
-                """.formatted(personaSection, nameRuleSection, languageSection, contextInfo, expressionTechnique, creativityBoost, memoryConstraints, postcardsList, parcelsList, toneInline);
+        return "";
+    }
+
+    private static String joinIds(Collection<ResourceLocation> ids) {
+        return ids.stream().map(ResourceLocation::toString).collect(Collectors.joining(", "));
     }
 
     @Override
     public void recordGeneratedContent(String maidId, String title, String message) {
+        LetterMemoryStore store = LetterMemoryStore.get();
+        if (store == null) return;
         String contentSummary = title + ": " + (message.length() > 30 ? message.substring(0, 30) + "..." : message);
-
-        Queue<String> recentContent = RECENT_CONTENT_MEMORY.computeIfAbsent(maidId, k -> new LinkedList<>());
-
-        recentContent.offer(contentSummary);
-        int maxMemorySize = AILetterConfig.MEMORY_SIZE.get();
-        if (recentContent.size() > maxMemorySize) {
-            recentContent.poll(); // 移除最旧的记录
-        }
+        store.append(UUID.fromString(maidId), contentSummary, LetterSimHash.fingerprint(title, message));
     }
 
     @Override
     public void clearMemory(String maidId) {
-        RECENT_CONTENT_MEMORY.remove(maidId);
+        LetterMemoryStore store = LetterMemoryStore.get();
+        if (store != null) {
+            store.forget(UUID.fromString(maidId));
+        }
     }
 
     private String generateContextInfo(EntityMaid maid, ServerPlayer owner) {
@@ -172,8 +355,8 @@ public class EnhancedPromptBuilder implements IPromptBuilder {
             context.append("Relationship: ").append(affectionDesc).append(" (favorability ").append(affection).append(")\n");
 
             String weatherPhrase = computeWeatherPhrase(maid);
-            String emotion = randomPick(getConfiguredOrDefault(AILetterConfig.EMOTIONAL_STATES.get(), EMOTIONAL_STATES));
-            String template = randomPick(getConfiguredOrDefault(AILetterConfig.CONTEXT_TEMPLATES.get(), CONTEXT_TEMPLATES));
+            String emotion = randomPick(CONFIGURED_EMOTIONS.get());
+            String template = randomPick(CONFIGURED_CONTEXT_TEMPLATES.get());
             context.append("Atmosphere: ").append(String.format(template, weatherPhrase, emotion));
         }
         return context.toString();
@@ -193,43 +376,74 @@ public class EnhancedPromptBuilder implements IPromptBuilder {
     }
 
     private String getRandomExpressionTechnique() {
-        return randomPick(getConfiguredOrDefault(AILetterConfig.EXPRESSION_TECHNIQUES.get(), EXPRESSION_TECHNIQUES));
+        return randomPick(CONFIGURED_TECHNIQUES.get());
     }
 
     private String generateCreativityBoost() {
-        List<String> defaults = List.of(
-                "Try using metaphor or personification",
-                "Add small details like sounds, scents, and textures",
-                "Describe the same thing from different angles",
-                "Use poetic expressions where suitable",
-                "Create a specific mood or atmosphere",
-                "Add imaginative elements",
-                "Experiment with dialogue or inner monologue",
-                "Use literary rhetorical devices"
-        );
-        return randomPick(getConfiguredOrDefault(AILetterConfig.CREATIVITY_TIPS.get(), defaults));
+        return randomPick(CONFIGURED_CREATIVITY_TIPS.get());
     }
 
     private static <T> T randomPick(List<T> list) {
         if (list == null || list.isEmpty()) {
             return null;
         }
-        Random random = new Random();
-        return list.get(random.nextInt(list.size()));
+        return list.get(ThreadLocalRandom.current().nextInt(list.size()));
+    }
+
+    /**
+     * 配置列表的只读快照：配置文件重载或在配置界面修改后配置值对象会更换，此时重新转换，
+     * 否则直接返回上次的结果，避免每次构建提示词都复制列表
+     */
+    private static final class ConfiguredList {
+        private final ForgeConfigSpec.ConfigValue<List<? extends String>> value;
+        private final List<String> defaults;
+        private volatile Snapshot snapshot;
+
+        private record Snapshot(List<? extends String> source, List<String> values) {
+        }
+
+        private ConfiguredList(ForgeConfigSpec.ConfigValue<List<? extends String>> value, List<String> defaults) {
+            this.value = value;
+            this.defaults = defaults;
+        }
+
+        private List<String> get() {
+            List<? extends String> configured = value.get();
+            Snapshot current = snapshot;
+            if (current == null || current.source() != configured) {
+                current = new Snapshot(configured, getConfiguredOrDefault(configured, defaults));
+                snapshot = current;
+            }
+            return current.values();
+        }
     }
 
     private static List<String> getConfiguredOrDefault(List<? extends String> configured, List<String> defaults) {
         return (configured != null && !configured.isEmpty())
-                ? configured.stream().map(String::valueOf).collect(Collectors.toList())
+                ? configured.stream().map(String::valueOf).toList()
                 : defaults;
     }
 
-    private String generateMemoryConstraints(String maidId) {
-        Queue<String> recentContent = RECENT_CONTENT_MEMORY.get(maidId);
-        if (recentContent == null || recentContent.isEmpty()) {
+    /**
+     * @param compact 为 true 时只列出最多 {@link #COMPACT_MEMORY_ENTRIES} 个标题（超出 token 预算时使用）
+     */
+    private String generateMemoryConstraints(String maidId, boolean compact) {
+        LetterMemoryStore store = LetterMemoryStore.get();
+        List<String> recentContent = store != null
+                ? store.recent(UUID.fromString(maidId), AILetterConfig.MEMORY_SIZE.get())
+                : List.of();
+        if (recentContent.isEmpty()) {
             return "This is the first letter; feel free to be creative.";
         }
 
+        if (compact) {
+            StringJoiner titles = new StringJoiner(" / ", "Avoid repeating recent letters: ", ". Use a completely different angle.");
+            recentContent.stream().limit(COMPACT_MEMORY_ENTRIES)
+                    .map(content -> content.substring(0, Math.max(0, content.indexOf(": "))))
+                    .forEach(titles::add);
+            return titles.toString();
+        }
+
         StringBuilder constraints = new StringBuilder("Please avoid the following recently used expressions:\n");
         int count = 0;
         for (String content : recentContent) {
@@ -241,10 +455,6 @@ public class EnhancedPromptBuilder implements IPromptBuilder {
         return constraints.toString();
     }
 
-    private String resolveClientLanguage(ServerPlayer sp) {
-        return formatLanguageDisplayName(sp.getLanguage());
-    }
-
     // from 车万女仆
     private static String formatLanguageDisplayName(String languageTag) {
         if (languageTag == null || languageTag.isEmpty()) {
@@ -300,7 +510,7 @@ public class EnhancedPromptBuilder implements IPromptBuilder {
             night = level.isNight();
 
         }
-        List<String> configured = getConfiguredOrDefault(AILetterConfig.WEATHER_DESCRIPTIONS.get(), WEATHER_DESCRIPTIONS);
+        List<String> configured = CONFIGURED_WEATHER.get();
         List<String> filtered = new ArrayList<>();
 
         for (String w : configured) {
@@ -353,7 +563,7 @@ public class EnhancedPromptBuilder implements IPromptBuilder {
             return List.of();
         }
         List<String> copy = new ArrayList<>(list);
-        Collections.shuffle(copy, new Random());
+        Collections.shuffle(copy, ThreadLocalRandom.current());
         int n = Math.min(count, copy.size());
         return copy.subList(0, n);
     }
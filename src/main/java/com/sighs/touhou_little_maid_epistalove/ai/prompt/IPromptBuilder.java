@@ -15,6 +15,50 @@ public interface IPromptBuilder {
      */
     String buildSystemPrompt(String tone, EntityMaid maid, ServerPlayer owner);
 
+    /**
+     * 构建系统提示词，并参考本次的写信请求（例如在提示词超出预算时挑选相关的明信片与包裹）
+     *
+     * @param tone    语调风格
+     * @param maid    女仆实体
+     * @param owner   女仆主人
+     * @param request 本次的写信请求文本
+     * @return 构建完成的系统提示词
+     */
+    default String buildSystemPrompt(String tone, EntityMaid maid, ServerPlayer owner, String request) {
+        return buildSystemPrompt(tone, maid, owner);
+    }
+
+    /**
+     * 构建合并请求的系统提示词：语言要求、可选明信片与包裹、JSON 数组输出格式等各封信共用的部分
+     *
+     * @param owner       女仆主人（合并请求中的信件属于同一主人）
+     * @param letterCount 信件数量
+     * @return 构建完成的系统提示词
+     */
+    String buildBatchSystemPrompt(ServerPlayer owner, int letterCount);
+
+    /**
+     * 构建合并请求的系统提示词，并参考各封信的请求文本
+     *
+     * @param owner       女仆主人
+     * @param letterCount 信件数量
+     * @param request     合并后的请求文本
+     * @return 构建完成的系统提示词
+     */
+    default String buildBatchSystemPrompt(ServerPlayer owner, int letterCount, String request) {
+        return buildBatchSystemPrompt(owner, letterCount);
+    }
+
+    /**
+     * 构建合并请求中单封信件的说明：女仆名字、人设、称呼、情境、记忆约束与语调
+     *
+     * @param tone  语调风格
+     * @param maid  女仆实体
+     * @param owner 女仆主人
+     * @return 单封信件的说明文本
+     */
+    String buildLetterBrief(String tone, EntityMaid maid, ServerPlayer owner);
+
     /**
      * 记录生成的内容到记忆系统
      *
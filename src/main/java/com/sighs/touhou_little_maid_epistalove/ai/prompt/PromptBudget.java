@@ -0,0 +1,112 @@
+package com.sighs.touhou_little_maid_epistalove.ai.prompt;
+
+import com.sighs.touhou_little_maid_epistalove.config.Config;
+import net.minecraft.resources.ResourceLocation;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 系统提示词的 token 预算：超出配置的上限时，只列出与本次请求最相关的明信片与包裹，并压缩记忆约束
+ * token 数按字符粗略估算（ASCII 约 4 个字符一个 token，其他字符各算一个），只用于裁剪决策与指标
+ * 相关性：id 中的单词出现在规则请求或语调里的优先，其次是模型以往选过的，其余随机轮换
+ */
+public final class PromptBudget {
+    // 记录模型选择次数的 id 数量上限，明信片与包裹都来自数据包，正常不会达到
+    private static final int MAX_TRACKED_CHOICES = 1024;
+    private static final Map<ResourceLocation, Integer> CHOICES = new ConcurrentHashMap<>();
+
+    private record Candidate(String id, double score) {
+    }
+
+    private PromptBudget() {
+    }
+
+    static int limit() {
+        return Config.AI_PROMPT_TOKEN_BUDGET.get();
+    }
+
+    static int estimateTokens(CharSequence text) {
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                ascii++;
+            } else if (!Character.isLowSurrogate(c)) {
+                other++;
+            }
+        }
+        return (ascii + 3) / 4 + other;
+    }
+
+    static int estimateTokens(String... parts) {
+        int tokens = 0;
+        for (String part : parts) {
+            tokens += estimateTokens(part);
+        }
+        return tokens;
+    }
+
+    /**
+     * 记录模型在回复中选择的明信片或包裹，作为之后筛选的参考
+     */
+    public static void recordChoice(@Nullable ResourceLocation id) {
+        if (id == null) return;
+        if (CHOICES.size() >= MAX_TRACKED_CHOICES && !CHOICES.containsKey(id)) return;
+        CHOICES.merge(id, 1, Integer::sum);
+    }
+
+    public static void clear() {
+        CHOICES.clear();
+    }
+
+    /**
+     * 按相关性从高到低挑选 id，直到放不进 tokenBudget；至少保留一个
+     *
+     * @param hint 规则请求与语调文本，用于匹配 id 中的单词
+     * @return 以逗号分隔的 id 列表
+     */
+    static String shortlist(List<ResourceLocation> ids, String hint, int tokenBudget) {
+        if (ids.isEmpty()) return "";
+        String lowerHint = hint.toLowerCase(Locale.ROOT);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        List<Candidate> candidates = new ArrayList<>(ids.size());
+        for (ResourceLocation id : ids) {
+            double score = relevance(id, lowerHint) * 4.0
+                    + Math.log1p(CHOICES.getOrDefault(id, 0))
+                    + random.nextDouble();
+            candidates.add(new Candidate(id.toString(), score));
+        }
+        candidates.sort(Comparator.comparingDouble(Candidate::score).reversed());
+
+        StringBuilder sb = new StringBuilder();
+        int used = 0;
+        for (Candidate candidate : candidates) {
+            int cost = estimateTokens(candidate.id()) + 1;
+            if (!sb.isEmpty() && used + cost > tokenBudget) break;
+            if (!sb.isEmpty()) sb.append(", ");
+            sb.append(candidate.id());
+            used += cost;
+        }
+        return sb.toString();
+    }
+
+    private static int relevance(ResourceLocation id, String lowerHint) {
+        if (lowerHint.isEmpty()) return 0;
+        int matches = 0;
+        for (String word : id.getPath().split("[_/.\\-]")) {
+            if (word.length() >= 3 && lowerHint.contains(word)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,70 @@
+package com.sighs.touhou_little_maid_epistalove.ai.prompt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 预编译的提示词模板：文本中的 ${name} 是动态槽位，编译时把文本拆成固定片段与槽位序号，
+ * 渲染时只做一次按预估容量的拼接，不再解析格式串
+ * 未在槽位名列表中的 ${...} 按原文保留
+ */
+final class PromptTemplate {
+    private final String[] literals;
+    private final int[] slots;
+    private final int literalLength;
+
+    private PromptTemplate(String[] literals, int[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * @param text      模板文本
+     * @param slotNames 槽位名，渲染时按此顺序传入各槽位的值
+     */
+    static PromptTemplate compile(String text, String... slotNames) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            int start = text.indexOf("${", i);
+            if (start < 0) {
+                literal.append(text, i, text.length());
+                break;
+            }
+            int end = text.indexOf('}', start + 2);
+            int slot = end < 0 ? -1 : Arrays.asList(slotNames).indexOf(text.substring(start + 2, end));
+            if (slot < 0) {
+                literal.append(text, i, start + 2);
+                i = start + 2;
+                continue;
+            }
+            literal.append(text, i, start);
+            literals.add(literal.toString());
+            literal.setLength(0);
+            slots.add(slot);
+            i = end + 1;
+        }
+        literals.add(literal.toString());
+        return new PromptTemplate(literals.toArray(new String[0]), slots.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    String render(String... values) {
+        int length = literalLength;
+        for (int slot : slots) {
+            length += values[slot].length();
+        }
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < slots.length; i++) {
+            sb.append(literals[i]).append(values[slots[i]]);
+        }
+        return sb.append(literals[slots.length]).toString();
+    }
+}
@@ -0,0 +1,226 @@
+package com.sighs.touhou_little_maid_epistalove.ai.scheduler;
+
+import com.mojang.logging.LogUtils;
+import com.sighs.touhou_little_maid_epistalove.config.Config;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 全局 LLM 请求调度：限制同时进行的请求数，超出的请求排队
+ * 工具调用（WriteLetterTool）的请求走优先通道，按提交顺序发出；
+ * 规则触发的请求按主人分队列，轮流从各主人的队列中取出，避免一个主人的大量女仆占满通道
+ * 排队总数有上限，队列满时丢弃请求（优先请求会挤掉排队最长的主人最新的一条规则请求）
+ * 请求完成时由回调线程调用 {@link Completion#done()}，因此内部状态以锁保护，发出请求在锁外进行
+ */
+public final class LetterRequestScheduler {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final Object LOCK = new Object();
+
+    public enum Priority {
+        TOOL, RULE
+    }
+
+    /**
+     * 排队中的请求，由调度器决定何时发出或丢弃
+     */
+    public interface Request {
+        /**
+         * 发出请求；请求结束（成功或失败）后必须调用一次 completion.done()
+         */
+        void start(Completion completion);
+
+        /**
+         * 请求在发出前被丢弃（队列已满或服务器停止）
+         */
+        void reject();
+    }
+
+    @FunctionalInterface
+    public interface Completion {
+        void done();
+    }
+
+    private record Entry(UUID owner, Request request, long enqueuedAt) {
+    }
+
+    private static final ArrayDeque<Entry> PRIORITY_LANE = new ArrayDeque<>();
+    private static final Map<UUID, ArrayDeque<Entry>> OWNER_QUEUES = new HashMap<>();
+    // 有排队请求的主人，按轮转顺序
+    private static final ArrayDeque<UUID> ROTATION = new ArrayDeque<>();
+
+    private static int inFlight = 0;
+    private static int queued = 0;
+
+    private LetterRequestScheduler() {
+    }
+
+    /**
+     * 提交请求：有空闲名额且没有排队时立即发出，否则排队；队列已满时请求被丢弃并调用 reject()
+     */
+    public static void submit(UUID owner, Priority priority, Request request) {
+        LetterMetrics.AI_REQUESTS_SUBMITTED.inc();
+        Entry entry = new Entry(owner, request, System.nanoTime());
+        Entry shed = null;
+        boolean startNow = false;
+        boolean rejected = false;
+        synchronized (LOCK) {
+            if (queued == 0 && inFlight < Config.AI_MAX_CONCURRENT_REQUESTS.get()) {
+                // 有空闲名额时直接发出，不占用队列容量
+                inFlight++;
+                startNow = true;
+            } else {
+                if (queued >= Config.AI_REQUEST_QUEUE_CAPACITY.get()) {
+                    if (priority == Priority.TOOL) {
+                        shed = pollNewestFromLongestOwnerQueue();
+                    }
+                    rejected = shed == null;
+                }
+                if (!rejected) {
+                    enqueue(entry, priority);
+                }
+            }
+            LetterMetrics.AI_REQUESTS_QUEUED.set(queued);
+        }
+
+        if (shed != null) {
+            shed(shed);
+        }
+        if (rejected) {
+            shed(entry);
+        } else if (startNow) {
+            start(entry);
+        } else {
+            // 上限在运行中调大时，排队的请求可以立即发出
+            dispatch();
+        }
+    }
+
+    private static void enqueue(Entry entry, Priority priority) {
+        if (priority == Priority.TOOL) {
+            PRIORITY_LANE.addLast(entry);
+        } else {
+            ArrayDeque<Entry> queue = OWNER_QUEUES.computeIfAbsent(entry.owner(), k -> new ArrayDeque<>());
+            if (queue.isEmpty()) ROTATION.addLast(entry.owner());
+            queue.addLast(entry);
+        }
+        queued++;
+    }
+
+    /**
+     * 丢弃所有排队中的请求（服务器停止时调用），已发出的请求不受影响
+     */
+    public static void clear() {
+        List<Entry> dropped = new ArrayList<>();
+        synchronized (LOCK) {
+            dropped.addAll(PRIORITY_LANE);
+            OWNER_QUEUES.values().forEach(dropped::addAll);
+            PRIORITY_LANE.clear();
+            OWNER_QUEUES.clear();
+            ROTATION.clear();
+            queued = 0;
+            LetterMetrics.AI_REQUESTS_QUEUED.set(0);
+        }
+        dropped.forEach(entry -> entry.request().reject());
+    }
+
+    public static int getInFlight() {
+        synchronized (LOCK) {
+            return inFlight;
+        }
+    }
+
+    public static int getQueued() {
+        synchronized (LOCK) {
+            return queued;
+        }
+    }
+
+    private static void dispatch() {
+        List<Entry> toStart = new ArrayList<>();
+        synchronized (LOCK) {
+            int limit = Config.AI_MAX_CONCURRENT_REQUESTS.get();
+            while (inFlight < limit) {
+                Entry next = pollNext();
+                if (next == null) break;
+                inFlight++;
+                toStart.add(next);
+            }
+            LetterMetrics.AI_REQUESTS_QUEUED.set(queued);
+        }
+        for (Entry entry : toStart) {
+            start(entry);
+        }
+    }
+
+    private static void start(Entry entry) {
+        LetterMetrics.AI_REQUESTS_IN_FLIGHT.inc();
+        LetterMetrics.AI_QUEUE_WAIT.recordSince(entry.enqueuedAt());
+        AtomicBoolean finished = new AtomicBoolean(false);
+        Completion completion = () -> {
+            if (!finished.compareAndSet(false, true)) return;
+            LetterMetrics.AI_REQUESTS_IN_FLIGHT.dec();
+            synchronized (LOCK) {
+                inFlight--;
+            }
+            dispatch();
+        };
+        try {
+            entry.request().start(completion);
+        } catch (Exception e) {
+            LOGGER.error("[MaidMail][AI] Failed to start letter request owner={}: {}", entry.owner(), e.getMessage());
+            completion.done();
+        }
+    }
+
+    private static Entry pollNext() {
+        Entry entry = PRIORITY_LANE.pollFirst();
+        if (entry == null) {
+            UUID owner = ROTATION.pollFirst();
+            if (owner == null) return null;
+            ArrayDeque<Entry> queue = OWNER_QUEUES.get(owner);
+            entry = queue.pollFirst();
+            if (queue.isEmpty()) {
+                OWNER_QUEUES.remove(owner);
+            } else {
+                ROTATION.addLast(owner);
+            }
+        }
+        queued--;
+        return entry;
+    }
+
+    private static Entry pollNewestFromLongestOwnerQueue() {
+        UUID longest = null;
+        int longestSize = 0;
+        for (var e : OWNER_QUEUES.entrySet()) {
+            if (e.getValue().size() > longestSize) {
+                longest = e.getKey();
+                longestSize = e.getValue().size();
+            }
+        }
+        if (longest == null) return null;
+
+        ArrayDeque<Entry> queue = OWNER_QUEUES.get(longest);
+        Entry entry = queue.pollLast();
+        if (queue.isEmpty()) {
+            OWNER_QUEUES.remove(longest);
+            ROTATION.remove(longest);
+        }
+        queued--;
+        return entry;
+    }
+
+    private static void shed(Entry entry) {
+        LetterMetrics.AI_REQUESTS_SHED.inc();
+        LOGGER.warn("[MaidMail][AI] Letter request queue full, dropping request owner={}", entry.owner());
+        entry.request().reject();
+    }
+}
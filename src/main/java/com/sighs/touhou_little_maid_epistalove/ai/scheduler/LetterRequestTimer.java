@@ -0,0 +1,68 @@
+package com.sighs.touhou_little_maid_epistalove.ai.scheduler;
+
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 按服务端 tick 计时的延时任务，用于 AI 请求的超时与重试退避
+ * 可以在任意线程上登记，任务总是在服务端线程的 tick 结束时执行
+ * 不提供取消：超时任务由调用方用完成标记判断是否仍然有效
+ */
+public final class LetterRequestTimer {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final Object LOCK = new Object();
+
+    private record Task(long dueTick, long seq, Runnable action) {
+    }
+
+    private static final PriorityQueue<Task> TASKS = new PriorityQueue<>((a, b) ->
+            a.dueTick() != b.dueTick() ? Long.compare(a.dueTick(), b.dueTick()) : Long.compare(a.seq(), b.seq()));
+
+    private static long tick = 0L;
+    private static long seq = 0L;
+
+    private LetterRequestTimer() {
+    }
+
+    public static void schedule(long delayTicks, Runnable action) {
+        synchronized (LOCK) {
+            TASKS.add(new Task(tick + Math.max(1L, delayTicks), seq++, action));
+        }
+    }
+
+    /**
+     * 服务端 tick 结束时调用，执行到期的任务
+     */
+    public static void onServerTick() {
+        List<Task> due = null;
+        synchronized (LOCK) {
+            tick++;
+            while (!TASKS.isEmpty() && TASKS.peek().dueTick() <= tick) {
+                if (due == null) due = new ArrayList<>();
+                due.add(TASKS.poll());
+            }
+        }
+        if (due == null) return;
+        for (Task task : due) {
+            try {
+                task.action().run();
+            } catch (Exception e) {
+                LOGGER.error("[MaidMail][AI] Timed letter request task failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 丢弃所有未到期的任务（服务器停止时调用）
+     */
+    public static void clear() {
+        synchronized (LOCK) {
+            TASKS.clear();
+            tick = 0L;
+        }
+    }
+}
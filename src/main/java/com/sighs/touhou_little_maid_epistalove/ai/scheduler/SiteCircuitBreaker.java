@@ -0,0 +1,119 @@
+package com.sighs.touhou_little_maid_epistalove.ai.scheduler;
+
+import com.mojang.logging.LogUtils;
+import com.sighs.touhou_little_maid_epistalove.config.Config;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按 AI 站点的熔断器：连续失败达到阈值后断开，断开期间不再向该站点发送写信请求；
+ * 断开时间结束后放行一个试探请求，成功则恢复，失败则再次断开
+ * 请求结果在网络线程上回报，内部状态以锁保护
+ */
+public final class SiteCircuitBreaker {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final Object LOCK = new Object();
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final class Site {
+        private State state = State.CLOSED;
+        private int failures = 0;
+        // OPEN：恢复试探的时间；HALF_OPEN：试探请求的超时时间
+        private long until = 0L;
+    }
+
+    private static final Map<String, Site> SITES = new HashMap<>();
+
+    private SiteCircuitBreaker() {
+    }
+
+    private static boolean isEnabled() {
+        return Config.AI_BREAKER_THRESHOLD.get() > 0;
+    }
+
+    /**
+     * 站点是否处于断开期（不消耗试探名额），用于在排队前快速放弃
+     */
+    public static boolean isOpen(String siteId) {
+        if (!isEnabled()) return false;
+        synchronized (LOCK) {
+            Site site = SITES.get(siteId);
+            return site != null && site.state == State.OPEN && System.currentTimeMillis() < site.until;
+        }
+    }
+
+    /**
+     * 发出请求前调用；断开期间返回 false，断开结束后只放行一个试探请求
+     */
+    public static boolean allowRequest(String siteId) {
+        if (!isEnabled()) return true;
+        synchronized (LOCK) {
+            Site site = SITES.get(siteId);
+            if (site == null || site.state == State.CLOSED) return true;
+
+            long now = System.currentTimeMillis();
+            // 试探请求没有回报结果时（例如被丢弃），超时后允许新的试探
+            if (now >= site.until) {
+                site.state = State.HALF_OPEN;
+                site.until = now + openMillis();
+                updateOpenGauge();
+                return true;
+            }
+            LetterMetrics.AI_BREAKER_REJECTED.inc();
+            return false;
+        }
+    }
+
+    public static void recordSuccess(String siteId) {
+        if (!isEnabled()) return;
+        synchronized (LOCK) {
+            Site site = SITES.get(siteId);
+            if (site == null) return;
+            if (site.state != State.CLOSED) {
+                LOGGER.info("[MaidMail][AI] Site {} recovered, resuming letter requests", siteId);
+            }
+            SITES.remove(siteId);
+            updateOpenGauge();
+        }
+    }
+
+    public static void recordFailure(String siteId) {
+        if (!isEnabled()) return;
+        synchronized (LOCK) {
+            Site site = SITES.computeIfAbsent(siteId, k -> new Site());
+            site.failures++;
+            if (site.state == State.HALF_OPEN || site.failures >= Config.AI_BREAKER_THRESHOLD.get()) {
+                if (site.state == State.CLOSED) {
+                    LetterMetrics.AI_BREAKER_TRIPS.inc(siteId);
+                    LOGGER.warn("[MaidMail][AI] Site {} failed {} times in a row, pausing letter requests for {}s",
+                            siteId, site.failures, Config.AI_BREAKER_OPEN_SECONDS.get());
+                }
+                site.state = State.OPEN;
+                site.until = System.currentTimeMillis() + openMillis();
+                updateOpenGauge();
+            }
+        }
+    }
+
+    public static void clear() {
+        synchronized (LOCK) {
+            SITES.clear();
+            updateOpenGauge();
+        }
+    }
+
+    private static long openMillis() {
+        return Config.AI_BREAKER_OPEN_SECONDS.get() * 1000L;
+    }
+
+    private static void updateOpenGauge() {
+        long open = SITES.values().stream().filter(site -> site.state != State.CLOSED).count();
+        LetterMetrics.AI_BREAKER_OPEN_SITES.set(open);
+    }
+}
@@ -16,6 +16,7 @@ import com.mojang.serialization.codecs.RecordCodecBuilder;
 import com.sighs.touhou_little_maid_epistalove.ai.generator.AILetterGenerator;
 import com.sighs.touhou_little_maid_epistalove.ai.parser.JsonLetterParser;
 import com.sighs.touhou_little_maid_epistalove.ai.prompt.EnhancedPromptBuilder;
+import com.sighs.touhou_little_maid_epistalove.ai.scheduler.LetterRequestScheduler;
 import net.minecraft.server.level.ServerPlayer;
 
 import java.util.Optional;
@@ -102,8 +103,9 @@ public class WriteLetterTool implements ITool<WriteLetterTool.Args> {
         String tone = args.tone().orElse(null);
 
         EnhancedPromptBuilder builder = new EnhancedPromptBuilder();
-        JsonLetterParser parser = new JsonLetterParser(builder);
-        AILetterGenerator generator = new AILetterGenerator(tone, args.prompt(), builder, parser);
+        JsonLetterParser parser = new JsonLetterParser();
+        AILetterGenerator generator = new AILetterGenerator(tone, args.prompt(), builder, parser,
+                LetterRequestScheduler.Priority.TOOL);
 
         generator.generate(owner, maid, result -> {
             if (result.isEmpty()) {
@@ -4,6 +4,8 @@ import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
 
+import java.util.Set;
+
 public interface ITriggerManager {
 
     /**
@@ -23,6 +25,14 @@ public interface ITriggerManager {
      */
     boolean hasTriggered(ServerPlayer player, ResourceLocation triggerId);
 
+    /**
+     * 获取玩家当前所有激活的触发器
+     *
+     * @param player 玩家
+     * @return 只读的触发器ID集合，没有激活的触发器时返回空集合
+     */
+    Set<ResourceLocation> getActiveTriggers(ServerPlayer player);
+
     /**
      * 消耗触发器（用于一次性触发器）
      *
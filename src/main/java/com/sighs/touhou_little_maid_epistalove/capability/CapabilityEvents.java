@@ -0,0 +1,33 @@
+package com.sighs.touhou_little_maid_epistalove.capability;
+
+import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
+import com.sighs.touhou_little_maid_epistalove.TLMEpistalove;
+import net.minecraft.world.entity.Entity;
+import net.minecraftforge.common.capabilities.RegisterCapabilitiesEvent;
+import net.minecraftforge.event.AttachCapabilitiesEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+public final class CapabilityEvents {
+    private CapabilityEvents() {
+    }
+
+    @Mod.EventBusSubscriber(modid = TLMEpistalove.MODID, bus = Mod.EventBusSubscriber.Bus.MOD)
+    public static final class ModBus {
+        @SubscribeEvent
+        public static void onRegisterCapabilities(RegisterCapabilitiesEvent event) {
+            event.register(MaidLetterState.class);
+        }
+    }
+
+    @Mod.EventBusSubscriber(modid = TLMEpistalove.MODID)
+    public static final class ForgeBus {
+        @SubscribeEvent
+        public static void onAttachEntityCapabilities(AttachCapabilitiesEvent<Entity> event) {
+            // 只在服务端附加，状态不会同步给客户端
+            if (event.getObject() instanceof EntityMaid maid && !maid.level().isClientSide()) {
+                event.addCapability(MaidLetterStateProvider.ID, new MaidLetterStateProvider(maid));
+            }
+        }
+    }
+}
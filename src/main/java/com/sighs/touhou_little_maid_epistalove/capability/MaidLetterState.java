@@ -0,0 +1,162 @@
+package com.sighs.touhou_little_maid_epistalove.capability;
+
+import com.sighs.touhou_little_maid_epistalove.api.letter.ILetterRule;
+import com.sighs.touhou_little_maid_epistalove.data.CompiledRuleSet;
+import com.sighs.touhou_little_maid_epistalove.data.LetterRuleRegistry;
+import com.sighs.touhou_little_maid_epistalove.data.RuleOrdinals;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 女仆的送信运行时状态（仅服务端，不同步到客户端）
+ * 冷却时间戳与 AI 生成中标记都按规则驻留序号存放，避免每次检查拼接字符串键
+ */
+public class MaidLetterState {
+    private static final String TAG_RULES = "Rules";
+    private static final String TAG_TIMES = "Times";
+    // 当前快照中不存在的规则，冷却记录最多保留 7 个游戏日
+    private static final long DETACHED_RETENTION_TICKS = 24000L * 7;
+    // 每个女仆最多写出的冷却记录数，超出时保留最近的
+    private static final int MAX_SAVED_ENTRIES = 256;
+
+    // 下标为规则序号，值为上次成功送信的游戏时间，0 表示没有记录
+    private long[] lastLetterTimes = new long[0];
+    // AI 生成中的规则；只在内存中存在，重启后自然清空
+    private final BitSet pending = new BitSet();
+    // AI 生成连续失败后的退避：下标为规则序号，只在内存中存在
+    private long[] retryAfter = new long[0];
+    private int[] failureCounts = new int[0];
+
+    private boolean legacyChecked = false;
+
+    public long getLastLetterTime(int ordinal) {
+        return ordinal < lastLetterTimes.length ? lastLetterTimes[ordinal] : 0L;
+    }
+
+    public void setLastLetterTime(int ordinal, long gameTime) {
+        if (ordinal >= lastLetterTimes.length) {
+            lastLetterTimes = Arrays.copyOf(lastLetterTimes, Math.max(ordinal + 1, lastLetterTimes.length * 2));
+        }
+        lastLetterTimes[ordinal] = gameTime;
+    }
+
+    public boolean isPending(int ordinal) {
+        return pending.get(ordinal);
+    }
+
+    /**
+     * 标记规则为生成中
+     *
+     * @return 之前未处于生成中时返回 true
+     */
+    public boolean markPending(int ordinal) {
+        if (pending.get(ordinal)) {
+            return false;
+        }
+        pending.set(ordinal);
+        return true;
+    }
+
+    public void clearPending(int ordinal) {
+        pending.clear(ordinal);
+    }
+
+    /**
+     * 规则因生成失败处于退避中时，返回可以再次尝试的游戏时间，否则返回 0
+     */
+    public long getRetryAfter(int ordinal) {
+        return ordinal < retryAfter.length ? retryAfter[ordinal] : 0L;
+    }
+
+    /**
+     * 记录一次生成失败，退避时间随连续失败次数翻倍，不超过 maxTicks
+     *
+     * @return 可以再次尝试的游戏时间
+     */
+    public long recordFailure(int ordinal, long gameTime, int baseTicks, int maxTicks) {
+        if (ordinal >= retryAfter.length) {
+            int size = Math.max(ordinal + 1, retryAfter.length * 2);
+            retryAfter = Arrays.copyOf(retryAfter, size);
+            failureCounts = Arrays.copyOf(failureCounts, size);
+        }
+        int failures = Math.min(failureCounts[ordinal], 16);
+        failureCounts[ordinal] = failures + 1;
+        long backoff = Math.min((long) baseTicks << failures, maxTicks);
+        retryAfter[ordinal] = gameTime + backoff;
+        return retryAfter[ordinal];
+    }
+
+    public void clearFailures(int ordinal) {
+        if (ordinal < retryAfter.length) {
+            retryAfter[ordinal] = 0L;
+            failureCounts[ordinal] = 0;
+        }
+    }
+
+    public boolean isLegacyChecked() {
+        return legacyChecked;
+    }
+
+    public void markLegacyChecked() {
+        legacyChecked = true;
+    }
+
+    /**
+     * 按规则ID写出仍然有效的冷却记录，不修改内存中的状态
+     * 快照中的规则冷却结束后不再写出；快照中不存在的规则（保存时数据包或 KubeJS 规则可能尚未加载）保留
+     * {@link #DETACHED_RETENTION_TICKS}，删除后很快加回的规则也能沿用冷却；总数不超过 {@link #MAX_SAVED_ENTRIES}
+     */
+    public CompoundTag serializeNBT(long gameTime) {
+        CompiledRuleSet snapshot = LetterRuleRegistry.getSnapshot();
+        int[] kept = new int[lastLetterTimes.length];
+        int count = 0;
+        for (int ordinal = 0; ordinal < lastLetterTimes.length; ordinal++) {
+            long time = lastLetterTimes[ordinal];
+            if (time <= 0 || isExpired(snapshot.ruleForOrdinal(ordinal), gameTime - time)) continue;
+            kept[count++] = ordinal;
+        }
+        if (count > MAX_SAVED_ENTRIES) {
+            IntArrays.quickSort(kept, 0, count, (a, b) -> Long.compare(lastLetterTimes[b], lastLetterTimes[a]));
+            count = MAX_SAVED_ENTRIES;
+        }
+
+        ListTag rules = new ListTag();
+        long[] times = new long[count];
+        int written = 0;
+        for (int i = 0; i < count; i++) {
+            String id = RuleOrdinals.idOf(kept[i]);
+            if (id == null) continue;
+            rules.add(StringTag.valueOf(id));
+            times[written++] = lastLetterTimes[kept[i]];
+        }
+
+        CompoundTag tag = new CompoundTag();
+        if (written > 0) {
+            tag.put(TAG_RULES, rules);
+            tag.putLongArray(TAG_TIMES, Arrays.copyOf(times, written));
+        }
+        return tag;
+    }
+
+    private static boolean isExpired(ILetterRule rule, long age) {
+        if (rule == null) return age > DETACHED_RETENTION_TICKS;
+        Integer cooldown = rule.getCooldown();
+        return cooldown == null || age >= cooldown;
+    }
+
+    public void deserializeNBT(CompoundTag tag) {
+        lastLetterTimes = new long[0];
+        ListTag rules = tag.getList(TAG_RULES, Tag.TAG_STRING);
+        long[] times = tag.getLongArray(TAG_TIMES);
+        int count = Math.min(rules.size(), times.length);
+        for (int i = 0; i < count; i++) {
+            setLastLetterTime(RuleOrdinals.of(rules.getString(i)), times[i]);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.sighs.touhou_little_maid_epistalove.capability;
+
+import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
+import com.sighs.touhou_little_maid_epistalove.TLMEpistalove;
+import net.minecraft.core.Direction;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.capabilities.CapabilityManager;
+import net.minecraftforge.common.capabilities.CapabilityToken;
+import net.minecraftforge.common.capabilities.ICapabilitySerializable;
+import net.minecraftforge.common.util.LazyOptional;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public class MaidLetterStateProvider implements ICapabilitySerializable<CompoundTag> {
+    public static final ResourceLocation ID = new ResourceLocation(TLMEpistalove.MODID, "letter_state");
+    public static final Capability<MaidLetterState> MAID_LETTER_STATE = CapabilityManager.get(new CapabilityToken<>() {
+    });
+
+    private final EntityMaid maid;
+    private final MaidLetterState state = new MaidLetterState();
+    private final LazyOptional<MaidLetterState> optional = LazyOptional.of(() -> state);
+
+    public MaidLetterStateProvider(EntityMaid maid) {
+        this.maid = maid;
+    }
+
+    /**
+     * 获取女仆的送信状态，客户端或能力未附加时返回 null
+     */
+    @Nullable
+    public static MaidLetterState get(EntityMaid maid) {
+        return maid.getCapability(MAID_LETTER_STATE).resolve().orElse(null);
+    }
+
+    @Override
+    public @NotNull <T> LazyOptional<T> getCapability(@NotNull Capability<T> cap, @Nullable Direction side) {
+        return MAID_LETTER_STATE.orEmpty(cap, optional);
+    }
+
+    @Override
+    public CompoundTag serializeNBT() {
+        return state.serializeNBT(maid.level().getGameTime());
+    }
+
+    @Override
+    public void deserializeNBT(CompoundTag nbt) {
+        state.deserializeNBT(nbt);
+    }
+}
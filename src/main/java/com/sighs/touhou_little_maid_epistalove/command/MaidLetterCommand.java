@@ -3,6 +3,7 @@ package com.sighs.touhou_little_maid_epistalove.command;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.context.CommandContext;
 import com.sighs.touhou_little_maid_epistalove.TLMEpistalove;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
 import com.sighs.touhou_little_maid_epistalove.trigger.TriggerManager;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
@@ -11,6 +12,7 @@ import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraftforge.fml.loading.FMLLoader;
 
+import java.util.List;
 import java.util.UUID;
 
 public class MaidLetterCommand {
@@ -18,17 +20,46 @@ public class MaidLetterCommand {
 
     public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
         dispatcher.register(Commands.literal("maidletter")
-                .requires(source -> {
-                    if (!(source.getEntity() instanceof ServerPlayer player)) return false;
-                    return player.getUUID().equals(ALLOWED_UUID) || !FMLLoader.isProduction();
-                })
                 .then(Commands.literal("trigger")
+                        .requires(source -> {
+                            if (!(source.getEntity() instanceof ServerPlayer player)) return false;
+                            return player.getUUID().equals(ALLOWED_UUID) || !FMLLoader.isProduction();
+                        })
                         .then(Commands.literal("first_gift")
                                 .requires(source -> source.hasPermission(4))
                                 .executes(MaidLetterCommand::executeFirstGift)))
+                .then(Commands.literal("stats")
+                        .requires(source -> source.hasPermission(2))
+                        .executes(MaidLetterCommand::executeStats)
+                        .then(Commands.literal("reset")
+                                .executes(MaidLetterCommand::executeStatsReset))
+                        .then(Commands.literal("dump")
+                                .executes(MaidLetterCommand::executeStatsDump)))
         );
     }
 
+    private static int executeStats(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        List<String> lines = LetterMetrics.describe();
+        source.sendSuccess(() -> Component.literal("[MaidMail] 运行指标："), false);
+        for (String line : lines) {
+            source.sendSuccess(() -> Component.literal(line), false);
+        }
+        return lines.size();
+    }
+
+    private static int executeStatsReset(CommandContext<CommandSourceStack> context) {
+        LetterMetrics.reset();
+        context.getSource().sendSuccess(() -> Component.literal("[MaidMail] 运行指标已清零"), true);
+        return 1;
+    }
+
+    private static int executeStatsDump(CommandContext<CommandSourceStack> context) {
+        LetterMetrics.dump(context.getSource().getServer());
+        context.getSource().sendSuccess(() -> Component.literal("[MaidMail] 运行指标已写入 maidmail-metrics.json"), false);
+        return 1;
+    }
+
     private static int executeFirstGift(CommandContext<CommandSourceStack> context) {
         CommandSourceStack source = context.getSource();
         if (source.getEntity() instanceof ServerPlayer player) {
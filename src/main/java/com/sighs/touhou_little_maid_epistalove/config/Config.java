@@ -13,8 +13,25 @@ public final class Config {
     public static final int DEFAULT_HIGH_QUALITY_THRESHOLD = 80;
     public static final int DEFAULT_PATH_SAFETY_PERCENTAGE = 65;
     public static final int DEFAULT_MAX_CONSECUTIVE_DANGEROUS = 2;
+    public static final int DEFAULT_METRICS_DUMP_INTERVAL = 300;
+    public static final int DEFAULT_AI_MAX_CONCURRENT_REQUESTS = 4;
+    public static final int DEFAULT_AI_REQUEST_QUEUE_CAPACITY = 64;
+    public static final int DEFAULT_AI_BATCH_WINDOW = 20;
+    public static final int DEFAULT_AI_BATCH_MAX_SIZE = 4;
+    public static final int DEFAULT_AI_PREGEN_POOL_SIZE = 1;
+    public static final int DEFAULT_AI_PREGEN_TTL = 1800;
+    public static final int DEFAULT_AI_RESPONSE_CACHE_SIZE = 128;
+    public static final int DEFAULT_AI_RESPONSE_CACHE_TTL = 3600;
+    public static final int DEFAULT_AI_RESPONSE_CACHE_VARIANTS = 4;
+    public static final int DEFAULT_AI_REQUEST_TIMEOUT = 60;
+    public static final int DEFAULT_AI_MAX_RETRIES = 2;
+    public static final int DEFAULT_AI_BREAKER_THRESHOLD = 5;
+    public static final int DEFAULT_AI_BREAKER_OPEN_SECONDS = 60;
+    public static final int DEFAULT_AI_PROMPT_TOKEN_BUDGET = 1500;
+    public static final int DEFAULT_AI_DUPLICATE_DISTANCE = 4;
 
     public static final ForgeConfigSpec.IntValue MAILBOX_SEARCH_RADIUS;
+    public static final ForgeConfigSpec.BooleanValue MAILBOX_LEGACY_SCAN;
 
     public static final ForgeConfigSpec.IntValue MAILBOX_MIN_SAFETY_SCORE;
     public static final ForgeConfigSpec.IntValue AREA_HAZARD_THRESHOLD;
@@ -22,6 +39,27 @@ public final class Config {
 
     public static final ForgeConfigSpec.IntValue PATH_SAFETY_PERCENTAGE;
     public static final ForgeConfigSpec.IntValue MAX_CONSECUTIVE_DANGEROUS;
+    public static final ForgeConfigSpec.BooleanValue PATH_TYPE_CACHE;
+    public static final ForgeConfigSpec.BooleanValue ASYNC_PATH_PLANNING;
+
+    public static final ForgeConfigSpec.IntValue METRICS_DUMP_INTERVAL;
+
+    public static final ForgeConfigSpec.IntValue AI_MAX_CONCURRENT_REQUESTS;
+    public static final ForgeConfigSpec.IntValue AI_REQUEST_QUEUE_CAPACITY;
+    public static final ForgeConfigSpec.IntValue AI_BATCH_WINDOW;
+    public static final ForgeConfigSpec.IntValue AI_BATCH_MAX_SIZE;
+    public static final ForgeConfigSpec.BooleanValue AI_PREGEN_ENABLED;
+    public static final ForgeConfigSpec.IntValue AI_PREGEN_POOL_SIZE;
+    public static final ForgeConfigSpec.IntValue AI_PREGEN_TTL;
+    public static final ForgeConfigSpec.IntValue AI_RESPONSE_CACHE_SIZE;
+    public static final ForgeConfigSpec.IntValue AI_RESPONSE_CACHE_TTL;
+    public static final ForgeConfigSpec.IntValue AI_RESPONSE_CACHE_VARIANTS;
+    public static final ForgeConfigSpec.IntValue AI_REQUEST_TIMEOUT;
+    public static final ForgeConfigSpec.IntValue AI_MAX_RETRIES;
+    public static final ForgeConfigSpec.IntValue AI_BREAKER_THRESHOLD;
+    public static final ForgeConfigSpec.IntValue AI_BREAKER_OPEN_SECONDS;
+    public static final ForgeConfigSpec.IntValue AI_PROMPT_TOKEN_BUDGET;
+    public static final ForgeConfigSpec.IntValue AI_DUPLICATE_DISTANCE;
 
     static {
         ForgeConfigSpec.Builder builder = new ForgeConfigSpec.Builder();
@@ -29,7 +67,12 @@ public final class Config {
         builder.push("mail_delivery");
         MAILBOX_SEARCH_RADIUS = builder
                 .comment("女仆搜索邮筒的最大半径（格），值越大搜索范围越广但性能消耗越高")
-                .defineInRange("mailbox_search_radius", DEFAULT_MAILBOX_SEARCH_RADIUS, 4, 32);
+                .defineInRange("mailbox_search_radius", DEFAULT_MAILBOX_SEARCH_RADIUS, 4, 64);
+
+        MAILBOX_LEGACY_SCAN = builder
+                .comment("POI 索引中找不到邮筒时，是否逐方块扫描附近区域（最多 32 格）并补登记，用于安装本模组前放置的邮筒；"
+                        + "邮筒标签对 POI 查找没有作用，通过数据包加入标签的其它方块只能由这项扫描找到")
+                .define("mailbox_legacy_scan", true);
         builder.pop();
 
         builder.push("safety_evaluation");
@@ -54,6 +97,86 @@ public final class Config {
         MAX_CONSECUTIVE_DANGEROUS = builder
                 .comment("路径中允许的最大连续危险节点数，超过此数量的路径会被拒绝")
                 .defineInRange("max_consecutive_dangerous", DEFAULT_MAX_CONSECUTIVE_DANGEROUS, 0, 10);
+
+        PATH_TYPE_CACHE = builder
+                .comment("在同一 tick 内缓存方块路径类型，减少安全评估时的重复计算")
+                .define("path_type_cache", false);
+
+        ASYNC_PATH_PLANNING = builder
+                .comment("在后台线程上基于区域快照规划远距离避险路径，规划期间女仆沿当前路径继续移动")
+                .define("async_path_planning", false);
+        builder.pop();
+
+        builder.push("metrics");
+        METRICS_DUMP_INTERVAL = builder
+                .comment("运行指标写入服务器目录下 maidmail-metrics.json 的间隔（秒），0 表示不写入")
+                .defineInRange("metrics_dump_interval", DEFAULT_METRICS_DUMP_INTERVAL, 0, 86400);
+        builder.pop();
+
+        builder.push("ai_requests");
+        AI_MAX_CONCURRENT_REQUESTS = builder
+                .comment("同时进行的 AI 写信请求上限（全服共享），超出的请求排队等待")
+                .defineInRange("ai_max_concurrent_requests", DEFAULT_AI_MAX_CONCURRENT_REQUESTS, 1, 64);
+
+        AI_REQUEST_QUEUE_CAPACITY = builder
+                .comment("排队等待的 AI 写信请求上限，队列满时新的规则请求会被丢弃")
+                .defineInRange("ai_request_queue_capacity", DEFAULT_AI_REQUEST_QUEUE_CAPACITY, 0, 1024);
+
+        AI_BATCH_WINDOW = builder
+                .comment("同一主人的规则信件请求合并等待时间（tick），窗口内的请求合并为一次 AI 请求；0 表示不合并")
+                .defineInRange("ai_batch_window", DEFAULT_AI_BATCH_WINDOW, 0, 200);
+
+        AI_BATCH_MAX_SIZE = builder
+                .comment("一次合并请求最多包含的信件数，达到上限时立即发出")
+                .defineInRange("ai_batch_max_size", DEFAULT_AI_BATCH_MAX_SIZE, 2, 16);
+
+        AI_PREGEN_ENABLED = builder
+                .comment("女仆空闲时为已满足好感度与模型条件的 AI 规则提前生成信件，触发时直接使用（会额外消耗 AI 请求）")
+                .define("ai_pregen_enabled", false);
+
+        AI_PREGEN_POOL_SIZE = builder
+                .comment("每个女仆最多保留的预生成信件数")
+                .defineInRange("ai_pregen_pool_size", DEFAULT_AI_PREGEN_POOL_SIZE, 1, 8);
+
+        AI_PREGEN_TTL = builder
+                .comment("预生成信件的有效期（秒），过期后丢弃")
+                .defineInRange("ai_pregen_ttl", DEFAULT_AI_PREGEN_TTL, 60, 86400);
+
+        AI_RESPONSE_CACHE_SIZE = builder
+                .comment("AI 回复缓存的键数量上限（语调、提示词、语言、好感度档位相同的请求共用一个键），0 表示关闭缓存")
+                .defineInRange("ai_response_cache_size", DEFAULT_AI_RESPONSE_CACHE_SIZE, 0, 4096);
+
+        AI_RESPONSE_CACHE_TTL = builder
+                .comment("缓存信件的有效期（秒）")
+                .defineInRange("ai_response_cache_ttl", DEFAULT_AI_RESPONSE_CACHE_TTL, 60, 604800);
+
+        AI_RESPONSE_CACHE_VARIANTS = builder
+                .comment("每个键保留的不同信件数；攒满后相同请求直接复用女仆没收到过的信件，LLM 不可用时也会用缓存兜底")
+                .defineInRange("ai_response_cache_variants", DEFAULT_AI_RESPONSE_CACHE_VARIANTS, 1, 16);
+
+        AI_REQUEST_TIMEOUT = builder
+                .comment("单次 AI 写信请求的超时时间（秒），超时按失败处理")
+                .defineInRange("ai_request_timeout", DEFAULT_AI_REQUEST_TIMEOUT, 5, 600);
+
+        AI_MAX_RETRIES = builder
+                .comment("AI 写信请求失败后的最大重试次数，重试间隔按指数退避")
+                .defineInRange("ai_max_retries", DEFAULT_AI_MAX_RETRIES, 0, 5);
+
+        AI_BREAKER_THRESHOLD = builder
+                .comment("同一 AI 站点连续失败多少次后暂停向其发送写信请求，0 表示不熔断")
+                .defineInRange("ai_breaker_threshold", DEFAULT_AI_BREAKER_THRESHOLD, 0, 50);
+
+        AI_BREAKER_OPEN_SECONDS = builder
+                .comment("熔断后暂停的时间（秒），之后放行一个试探请求")
+                .defineInRange("ai_breaker_open_seconds", DEFAULT_AI_BREAKER_OPEN_SECONDS, 5, 3600);
+
+        AI_PROMPT_TOKEN_BUDGET = builder
+                .comment("系统提示词的估算 token 上限；超出时只列出与请求最相关的明信片与包裹，并压缩记忆约束，0 表示不限制")
+                .defineInRange("ai_prompt_token_budget", DEFAULT_AI_PROMPT_TOKEN_BUDGET, 0, 32000);
+
+        AI_DUPLICATE_DISTANCE = builder
+                .comment("新信件与该女仆最近信件的 SimHash 指纹汉明距离（0～64）不超过此值时视为重复并拒绝，0 表示不检查")
+                .defineInRange("ai_duplicate_distance", DEFAULT_AI_DUPLICATE_DISTANCE, 0, 16);
         builder.pop();
 
         builder.push("lost_rescue_mail");
@@ -93,12 +93,20 @@ public final class EpistaloveClothConfigScreen {
 
         mailDelivery.addEntry(entry.startIntSlider(
                         Component.translatable("config.touhou_little_maid_epistalove.mail_delivery.search_radius"),
-                        Config.MAILBOX_SEARCH_RADIUS.get(), 4, 32)
+                        Config.MAILBOX_SEARCH_RADIUS.get(), 4, 64)
                 .setDefaultValue(Config.DEFAULT_MAILBOX_SEARCH_RADIUS)
                 .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.mail_delivery.search_radius.tooltip"))
                 .setSaveConsumer(Config.MAILBOX_SEARCH_RADIUS::set)
                 .build());
 
+        mailDelivery.addEntry(entry.startBooleanToggle(
+                        Component.translatable("config.touhou_little_maid_epistalove.mail_delivery.legacy_scan"),
+                        Config.MAILBOX_LEGACY_SCAN.get())
+                .setDefaultValue(true)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.mail_delivery.legacy_scan.tooltip"))
+                .setSaveConsumer(Config.MAILBOX_LEGACY_SCAN::set)
+                .build());
+
         // 安全评估
         ConfigCategory safety = root.getOrCreateCategory(
                 Component.translatable("config.touhou_little_maid_epistalove.safety_evaluation"));
@@ -147,6 +155,180 @@ public final class EpistaloveClothConfigScreen {
                 .setSaveConsumer(Config.MAX_CONSECUTIVE_DANGEROUS::set)
                 .build());
 
+        pathfinding.addEntry(entry.startBooleanToggle(
+                        Component.translatable("config.touhou_little_maid_epistalove.pathfinding.path_type_cache"),
+                        Config.PATH_TYPE_CACHE.get())
+                .setDefaultValue(false)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.pathfinding.path_type_cache.tooltip"))
+                .setSaveConsumer(Config.PATH_TYPE_CACHE::set)
+                .build());
+
+        pathfinding.addEntry(entry.startBooleanToggle(
+                        Component.translatable("config.touhou_little_maid_epistalove.pathfinding.async_path_planning"),
+                        Config.ASYNC_PATH_PLANNING.get())
+                .setDefaultValue(false)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.pathfinding.async_path_planning.tooltip"))
+                .setSaveConsumer(Config.ASYNC_PATH_PLANNING::set)
+                .build());
+
+        // 运行指标
+        ConfigCategory metrics = root.getOrCreateCategory(
+                Component.translatable("config.touhou_little_maid_epistalove.metrics"));
+
+        metrics.addEntry(entry.startIntField(
+                        Component.translatable("config.touhou_little_maid_epistalove.metrics.dump_interval"),
+                        Config.METRICS_DUMP_INTERVAL.get())
+                .setDefaultValue(Config.DEFAULT_METRICS_DUMP_INTERVAL)
+                .setMin(0)
+                .setMax(86400)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.metrics.dump_interval.tooltip"))
+                .setSaveConsumer(Config.METRICS_DUMP_INTERVAL::set)
+                .build());
+
+        // AI 请求调度
+        ConfigCategory aiRequests = root.getOrCreateCategory(
+                Component.translatable("config.touhou_little_maid_epistalove.ai_requests"));
+
+        aiRequests.addEntry(entry.startIntSlider(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.max_concurrent"),
+                        Config.AI_MAX_CONCURRENT_REQUESTS.get(), 1, 64)
+                .setDefaultValue(Config.DEFAULT_AI_MAX_CONCURRENT_REQUESTS)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.max_concurrent.tooltip"))
+                .setSaveConsumer(Config.AI_MAX_CONCURRENT_REQUESTS::set)
+                .build());
+
+        aiRequests.addEntry(entry.startIntField(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.queue_capacity"),
+                        Config.AI_REQUEST_QUEUE_CAPACITY.get())
+                .setDefaultValue(Config.DEFAULT_AI_REQUEST_QUEUE_CAPACITY)
+                .setMin(0)
+                .setMax(1024)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.queue_capacity.tooltip"))
+                .setSaveConsumer(Config.AI_REQUEST_QUEUE_CAPACITY::set)
+                .build());
+
+        aiRequests.addEntry(entry.startIntSlider(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.batch_window"),
+                        Config.AI_BATCH_WINDOW.get(), 0, 200)
+                .setDefaultValue(Config.DEFAULT_AI_BATCH_WINDOW)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.batch_window.tooltip"))
+                .setSaveConsumer(Config.AI_BATCH_WINDOW::set)
+                .build());
+
+        aiRequests.addEntry(entry.startIntSlider(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.batch_max_size"),
+                        Config.AI_BATCH_MAX_SIZE.get(), 2, 16)
+                .setDefaultValue(Config.DEFAULT_AI_BATCH_MAX_SIZE)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.batch_max_size.tooltip"))
+                .setSaveConsumer(Config.AI_BATCH_MAX_SIZE::set)
+                .build());
+
+        aiRequests.addEntry(entry.startBooleanToggle(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.pregen_enabled"),
+                        Config.AI_PREGEN_ENABLED.get())
+                .setDefaultValue(false)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.pregen_enabled.tooltip"))
+                .setSaveConsumer(Config.AI_PREGEN_ENABLED::set)
+                .build());
+
+        aiRequests.addEntry(entry.startIntSlider(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.pregen_pool_size"),
+                        Config.AI_PREGEN_POOL_SIZE.get(), 1, 8)
+                .setDefaultValue(Config.DEFAULT_AI_PREGEN_POOL_SIZE)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.pregen_pool_size.tooltip"))
+                .setSaveConsumer(Config.AI_PREGEN_POOL_SIZE::set)
+                .build());
+
+        aiRequests.addEntry(entry.startIntField(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.pregen_ttl"),
+                        Config.AI_PREGEN_TTL.get())
+                .setDefaultValue(Config.DEFAULT_AI_PREGEN_TTL)
+                .setMin(60)
+                .setMax(86400)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.pregen_ttl.tooltip"))
+                .setSaveConsumer(Config.AI_PREGEN_TTL::set)
+                .build());
+
+        aiRequests.addEntry(entry.startIntField(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.response_cache_size"),
+                        Config.AI_RESPONSE_CACHE_SIZE.get())
+                .setDefaultValue(Config.DEFAULT_AI_RESPONSE_CACHE_SIZE)
+                .setMin(0)
+                .setMax(4096)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.response_cache_size.tooltip"))
+                .setSaveConsumer(Config.AI_RESPONSE_CACHE_SIZE::set)
+                .build());
+
+        aiRequests.addEntry(entry.startIntField(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.response_cache_ttl"),
+                        Config.AI_RESPONSE_CACHE_TTL.get())
+                .setDefaultValue(Config.DEFAULT_AI_RESPONSE_CACHE_TTL)
+                .setMin(60)
+                .setMax(604800)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.response_cache_ttl.tooltip"))
+                .setSaveConsumer(Config.AI_RESPONSE_CACHE_TTL::set)
+                .build());
+
+        aiRequests.addEntry(entry.startIntSlider(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.response_cache_variants"),
+                        Config.AI_RESPONSE_CACHE_VARIANTS.get(), 1, 16)
+                .setDefaultValue(Config.DEFAULT_AI_RESPONSE_CACHE_VARIANTS)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.response_cache_variants.tooltip"))
+                .setSaveConsumer(Config.AI_RESPONSE_CACHE_VARIANTS::set)
+                .build());
+
+        aiRequests.addEntry(entry.startIntSlider(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.timeout"),
+                        Config.AI_REQUEST_TIMEOUT.get(), 5, 600)
+                .setDefaultValue(Config.DEFAULT_AI_REQUEST_TIMEOUT)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.timeout.tooltip"))
+                .setSaveConsumer(Config.AI_REQUEST_TIMEOUT::set)
+                .build());
+
+        aiRequests.addEntry(entry.startIntSlider(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.max_retries"),
+                        Config.AI_MAX_RETRIES.get(), 0, 5)
+                .setDefaultValue(Config.DEFAULT_AI_MAX_RETRIES)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.max_retries.tooltip"))
+                .setSaveConsumer(Config.AI_MAX_RETRIES::set)
+                .build());
+
+        aiRequests.addEntry(entry.startIntSlider(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.breaker_threshold"),
+                        Config.AI_BREAKER_THRESHOLD.get(), 0, 50)
+                .setDefaultValue(Config.DEFAULT_AI_BREAKER_THRESHOLD)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.breaker_threshold.tooltip"))
+                .setSaveConsumer(Config.AI_BREAKER_THRESHOLD::set)
+                .build());
+
+        aiRequests.addEntry(entry.startIntField(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.breaker_open_seconds"),
+                        Config.AI_BREAKER_OPEN_SECONDS.get())
+                .setDefaultValue(Config.DEFAULT_AI_BREAKER_OPEN_SECONDS)
+                .setMin(5)
+                .setMax(3600)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.breaker_open_seconds.tooltip"))
+                .setSaveConsumer(Config.AI_BREAKER_OPEN_SECONDS::set)
+                .build());
+
+        aiRequests.addEntry(entry.startIntField(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.prompt_token_budget"),
+                        Config.AI_PROMPT_TOKEN_BUDGET.get())
+                .setDefaultValue(Config.DEFAULT_AI_PROMPT_TOKEN_BUDGET)
+                .setMin(0)
+                .setMax(32000)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.prompt_token_budget.tooltip"))
+                .setSaveConsumer(Config.AI_PROMPT_TOKEN_BUDGET::set)
+                .build());
+
+        aiRequests.addEntry(entry.startIntSlider(
+                        Component.translatable("config.touhou_little_maid_epistalove.ai_requests.duplicate_distance"),
+                        Config.AI_DUPLICATE_DISTANCE.get(), 0, 16)
+                .setDefaultValue(Config.DEFAULT_AI_DUPLICATE_DISTANCE)
+                .setTooltip(Component.translatable("config.touhou_little_maid_epistalove.ai_requests.duplicate_distance.tooltip"))
+                .setSaveConsumer(Config.AI_DUPLICATE_DISTANCE::set)
+                .build());
+
 
         // 关键提示词集合
         aiLetter.addEntry(entry.startStrList(
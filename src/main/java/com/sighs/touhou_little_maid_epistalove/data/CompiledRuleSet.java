@@ -0,0 +1,205 @@
+package com.sighs.touhou_little_maid_epistalove.data;
+
+import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
+import com.sighs.touhou_little_maid_epistalove.api.letter.ILetterRule;
+import net.minecraft.resources.ResourceLocation;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 规则快照：仅在数据包重载或 KubeJS 重载后编译一次，之后只读
+ * 按触发器ID、好感度区间与模型ID建立索引，匹配时只检查与当前激活触发器相关的规则
+ */
+public final class CompiledRuleSet {
+    public static final CompiledRuleSet EMPTY = compile(List.of());
+
+    private static final int[] NO_RULES = new int[0];
+
+    // 快照顺序：动态规则在前，数据包规则在后
+    private final List<ILetterRule> rules;
+
+    // 规则驻留序号（见 RuleOrdinals）-> 快照下标，不在快照中的序号为 -1
+    private final int[] indexByOrdinal;
+
+    // 好感度区间按列存放，无上限时为 Integer.MAX_VALUE
+    private final int[] minAffection;
+    private final int[] maxAffection;
+
+    // 触发器ID -> 包含该触发器的规则下标（升序）
+    private final Map<ResourceLocation, int[]> byTrigger;
+
+    // 模型ID -> 限定了该模型的规则；不限模型的规则单独存放
+    private final Map<ResourceLocation, BitSet> byModel;
+    private final BitSet anyModel;
+
+    private CompiledRuleSet(List<ILetterRule> rules, int[] indexByOrdinal,
+                            int[] minAffection, int[] maxAffection,
+                            Map<ResourceLocation, int[]> byTrigger,
+                            Map<ResourceLocation, BitSet> byModel, BitSet anyModel) {
+        this.rules = rules;
+        this.indexByOrdinal = indexByOrdinal;
+        this.minAffection = minAffection;
+        this.maxAffection = maxAffection;
+        this.byTrigger = byTrigger;
+        this.byModel = byModel;
+        this.anyModel = anyModel;
+    }
+
+    public static CompiledRuleSet compile(List<ILetterRule> source) {
+        List<ILetterRule> rules = List.copyOf(source);
+        int size = rules.size();
+        int[] ordinals = new int[size];
+        int maxOrdinal = -1;
+        int[] minAffection = new int[size];
+        int[] maxAffection = new int[size];
+        Map<ResourceLocation, List<Integer>> triggerLists = new HashMap<>();
+        Map<ResourceLocation, BitSet> byModel = new HashMap<>();
+        BitSet anyModel = new BitSet(size);
+
+        for (int i = 0; i < size; i++) {
+            ILetterRule rule = rules.get(i);
+            ordinals[i] = RuleOrdinals.of(rule.getId());
+            maxOrdinal = Math.max(maxOrdinal, ordinals[i]);
+            minAffection[i] = rule.getMinAffection();
+            Integer max = rule.getMaxAffection();
+            maxAffection[i] = max != null ? max : Integer.MAX_VALUE;
+
+            for (ResourceLocation tid : rule.getTriggers()) {
+                List<Integer> list = triggerLists.computeIfAbsent(tid, k -> new ArrayList<>());
+                // 同一规则重复声明同一触发器时只记录一次
+                if (list.isEmpty() || list.get(list.size() - 1) != i) {
+                    list.add(i);
+                }
+            }
+
+            List<ResourceLocation> models = rule.getRequiredMaidIds();
+            if (models == null || models.isEmpty()) {
+                anyModel.set(i);
+            } else {
+                for (ResourceLocation model : models) {
+                    byModel.computeIfAbsent(model, k -> new BitSet(size)).set(i);
+                }
+            }
+        }
+
+        int[] indexByOrdinal = new int[maxOrdinal + 1];
+        Arrays.fill(indexByOrdinal, -1);
+        for (int i = 0; i < size; i++) {
+            indexByOrdinal[ordinals[i]] = i;
+        }
+
+        Map<ResourceLocation, int[]> byTrigger = new HashMap<>(triggerLists.size() * 2);
+        triggerLists.forEach((tid, list) ->
+                byTrigger.put(tid, list.stream().mapToInt(Integer::intValue).toArray()));
+
+        return new CompiledRuleSet(rules, indexByOrdinal, minAffection, maxAffection,
+                Map.copyOf(byTrigger), Map.copyOf(byModel), anyModel);
+    }
+
+    public List<ILetterRule> rules() {
+        return rules;
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    /**
+     * 按驻留序号查找快照中的规则，规则不在快照中时返回 null
+     */
+    @Nullable
+    public ILetterRule ruleForOrdinal(int ordinal) {
+        int index = ordinal >= 0 && ordinal < indexByOrdinal.length ? indexByOrdinal[ordinal] : -1;
+        return index >= 0 ? rules.get(index) : null;
+    }
+
+    /**
+     * 获取包含指定触发器的规则下标（升序），没有规则使用该触发器时返回空数组
+     */
+    public int[] rulesForTrigger(ResourceLocation triggerId) {
+        return byTrigger.getOrDefault(triggerId, NO_RULES);
+    }
+
+    /**
+     * 检查规则的静态条件（好感度区间与模型ID），不依赖触发器状态
+     */
+    public boolean staticMatches(int index, int affection, @Nullable ResourceLocation modelId) {
+        if (affection < minAffection[index] || affection > maxAffection[index]) return false;
+        if (anyModel.get(index)) return true;
+        if (modelId == null) return false;
+        BitSet models = byModel.get(modelId);
+        return models != null && models.get(index);
+    }
+
+    /**
+     * 选出被任一激活触发器引用、且静态条件满足的规则，保持快照顺序
+     * 冷却、一次性消费等动态条件仍由 {@link ILetterRule#matches} 判定
+     */
+    public List<ILetterRule> select(Collection<ResourceLocation> activeTriggers, int affection,
+                                    @Nullable ResourceLocation modelId) {
+        if (activeTriggers.isEmpty() || rules.isEmpty()) return List.of();
+
+        BitSet candidates = null;
+        for (ResourceLocation tid : activeTriggers) {
+            int[] indices = byTrigger.get(tid);
+            if (indices == null) continue;
+            for (int index : indices) {
+                if (candidates != null && candidates.get(index)) continue;
+                if (!staticMatches(index, affection, modelId)) continue;
+                if (candidates == null) candidates = new BitSet(rules.size());
+                candidates.set(index);
+            }
+        }
+        if (candidates == null) return List.of();
+
+        List<ILetterRule> result = new ArrayList<>(candidates.cardinality());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            result.add(rules.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 找出不被任何静态条件满足的规则引用的激活触发器，它们在本次评估中不会促成任何信件
+     * 没有规则使用的触发器不计入
+     *
+     * @return 需要清除的触发器，没有时返回空列表
+     */
+    public List<ResourceLocation> unmatchedTriggers(Collection<ResourceLocation> activeTriggers, int affection,
+                                                    @Nullable ResourceLocation modelId) {
+        List<ResourceLocation> unmatched = null;
+        for (ResourceLocation tid : activeTriggers) {
+            int[] indices = byTrigger.get(tid);
+            if (indices == null) continue;
+
+            boolean usedBySomeMatchingRule = false;
+            for (int index : indices) {
+                if (staticMatches(index, affection, modelId)) {
+                    usedBySomeMatchingRule = true;
+                    break;
+                }
+            }
+            if (!usedBySomeMatchingRule) {
+                if (unmatched == null) unmatched = new ArrayList<>();
+                unmatched.add(tid);
+            }
+        }
+        return unmatched != null ? unmatched : List.of();
+    }
+
+    /**
+     * 解析女仆当前模型ID，未设置或非法时返回 null
+     */
+    @Nullable
+    public static ResourceLocation modelIdOf(EntityMaid maid) {
+        String modelIdStr = maid.getModelId();
+        return modelIdStr.isEmpty() ? null : ResourceLocation.tryParse(modelIdStr);
+    }
+}
@@ -0,0 +1,229 @@
+package com.sighs.touhou_little_maid_epistalove.data;
+
+import com.mojang.logging.LogUtils;
+import com.sighs.touhou_little_maid_epistalove.ai.parser.LetterSimHash;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.saveddata.SavedData;
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 女仆最近信件的记忆，随存档保存在主世界，用于在提示词中避免重复
+ * 每个女仆一个固定容量的环形缓冲区，追加只做一次原子自增与写入，可以在 LLM 回调线程上调用；
+ * 读档时只保留原始 NBT，某个女仆第一次被访问时才解析
+ * 每条记录带有信件全文的 SimHash 指纹，用于拒绝与最近信件过于相近的新信件
+ * 女仆被移除时丢弃其记忆，记录的女仆数量超过上限时淘汰最久未写信的
+ */
+public final class LetterMemoryStore extends SavedData {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final String DATA_NAME = "maid_mail_letter_memory";
+    private static final String TAG_MAIDS = "Maids";
+    private static final String TAG_ID = "Id";
+    private static final String TAG_ENTRIES = "Entries";
+    private static final String TAG_FINGERPRINTS = "Fingerprints";
+    private static final String TAG_LAST_USED = "LastUsed";
+
+    // 与 memory_size 配置的上限一致
+    public static final int CAPACITY = 50;
+    private static final int MAX_MAIDS = 4096;
+    // 没有指纹的记录（旧存档），不参与重复判断
+    private static final long NO_FINGERPRINT = 0L;
+
+    private static volatile LetterMemoryStore instance;
+
+    private final Map<UUID, Ring> rings = new ConcurrentHashMap<>();
+    private final Map<UUID, CompoundTag> unparsed = new ConcurrentHashMap<>();
+
+    /**
+     * @param summary     写入提示词的信件摘要
+     * @param fingerprint 信件全文的 SimHash 指纹
+     */
+    private record Entry(String summary, long fingerprint) {
+    }
+
+    /**
+     * 单个女仆的环形缓冲区；next 是下一次写入的序号，序号对容量取模即为槽位
+     */
+    private static final class Ring {
+        private final AtomicReferenceArray<Entry> slots = new AtomicReferenceArray<>(CAPACITY);
+        private final AtomicLong next = new AtomicLong();
+        private volatile long lastUsed;
+
+        private void append(Entry entry) {
+            long seq = next.getAndIncrement();
+            slots.set((int) (seq % CAPACITY), entry);
+            lastUsed = System.currentTimeMillis();
+        }
+
+        /**
+         * 最近的至多 limit 条记录，按从旧到新排列
+         */
+        private List<Entry> recent(int limit) {
+            long end = next.get();
+            long start = Math.max(0L, end - Math.min(limit, CAPACITY));
+            List<Entry> result = new ArrayList<>((int) (end - start));
+            for (long seq = start; seq < end; seq++) {
+                Entry entry = slots.get((int) (seq % CAPACITY));
+                if (entry != null) result.add(entry);
+            }
+            return result;
+        }
+    }
+
+    private LetterMemoryStore() {
+    }
+
+    /**
+     * 服务器启动完成后在服务端线程上调用，从主世界的存档数据中取得（或创建）记忆
+     */
+    public static void attach(MinecraftServer server) {
+        instance = server.overworld().getDataStorage()
+                .computeIfAbsent(LetterMemoryStore::load, LetterMemoryStore::new, DATA_NAME);
+    }
+
+    public static void detach() {
+        instance = null;
+    }
+
+    /**
+     * 当前服务器的记忆；服务器未启动时返回 null
+     */
+    @Nullable
+    public static LetterMemoryStore get() {
+        return instance;
+    }
+
+    public void append(UUID maidId, String summary, long fingerprint) {
+        Ring ring = ring(maidId);
+        boolean added = ring == null;
+        if (added) {
+            ring = rings.computeIfAbsent(maidId, k -> new Ring());
+        }
+        ring.append(new Entry(summary, fingerprint));
+        if (added) {
+            evictIfFull();
+        }
+        setDirty();
+    }
+
+    public List<String> recent(UUID maidId, int limit) {
+        Ring ring = ring(maidId);
+        return ring != null ? ring.recent(limit).stream().map(Entry::summary).toList() : List.of();
+    }
+
+    /**
+     * 最近 window 封信中是否有指纹与给定指纹的汉明距离不超过 maxDistance 的，每次最多比较 {@link #CAPACITY} 个指纹
+     */
+    public boolean hasNearDuplicate(UUID maidId, long fingerprint, int window, int maxDistance) {
+        Ring ring = ring(maidId);
+        if (ring == null) return false;
+        for (Entry entry : ring.recent(window)) {
+            if (entry.fingerprint() != NO_FINGERPRINT
+                    && LetterSimHash.distance(entry.fingerprint(), fingerprint) <= maxDistance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void forget(UUID maidId) {
+        boolean removed = rings.remove(maidId) != null;
+        removed |= unparsed.remove(maidId) != null;
+        if (removed) {
+            setDirty();
+        }
+    }
+
+    @Nullable
+    private Ring ring(UUID maidId) {
+        Ring ring = rings.get(maidId);
+        if (ring != null || !unparsed.containsKey(maidId)) return ring;
+        // 在 computeIfAbsent 内解析，并发访问同一女仆时只解析一次
+        return rings.computeIfAbsent(maidId, k -> {
+            CompoundTag tag = unparsed.remove(k);
+            return tag != null ? parse(tag) : new Ring();
+        });
+    }
+
+    private void evictIfFull() {
+        int overflow = rings.size() + unparsed.size() - MAX_MAIDS;
+        // 未解析的记录说明本次运行中没有被访问过，优先淘汰
+        Iterator<UUID> stale = unparsed.keySet().iterator();
+        while (overflow > 0 && stale.hasNext()) {
+            stale.next();
+            stale.remove();
+            overflow--;
+        }
+        if (overflow <= 0) return;
+        rings.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().lastUsed))
+                .limit(overflow)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(rings::remove);
+    }
+
+    private static Ring parse(CompoundTag tag) {
+        Ring ring = new Ring();
+        ListTag entries = tag.getList(TAG_ENTRIES, Tag.TAG_STRING);
+        long[] fingerprints = tag.getLongArray(TAG_FINGERPRINTS);
+        for (int i = Math.max(0, entries.size() - CAPACITY); i < entries.size(); i++) {
+            String summary = entries.getString(i);
+            // 旧存档没有指纹：摘要与信件全文不同，不能用来计算，记为 0 并在比较时跳过
+            long fingerprint = i < fingerprints.length ? fingerprints[i] : NO_FINGERPRINT;
+            ring.append(new Entry(summary, fingerprint));
+        }
+        ring.lastUsed = tag.getLong(TAG_LAST_USED);
+        return ring;
+    }
+
+    private static LetterMemoryStore load(CompoundTag tag) {
+        LetterMemoryStore store = new LetterMemoryStore();
+        ListTag maids = tag.getList(TAG_MAIDS, Tag.TAG_COMPOUND);
+        for (int i = 0; i < maids.size(); i++) {
+            CompoundTag maid = maids.getCompound(i);
+            if (maid.hasUUID(TAG_ID)) {
+                store.unparsed.put(maid.getUUID(TAG_ID), maid);
+            }
+        }
+        LOGGER.debug("[MaidMail] Loaded letter memory for {} maids", store.unparsed.size());
+        return store;
+    }
+
+    @Override
+    public CompoundTag save(CompoundTag tag) {
+        ListTag maids = new ListTag();
+        maids.addAll(unparsed.values());
+        rings.forEach((id, ring) -> {
+            CompoundTag maid = new CompoundTag();
+            maid.putUUID(TAG_ID, id);
+            List<Entry> recent = ring.recent(CAPACITY);
+            ListTag entries = new ListTag();
+            long[] fingerprints = new long[recent.size()];
+            for (int i = 0; i < recent.size(); i++) {
+                entries.add(StringTag.valueOf(recent.get(i).summary()));
+                fingerprints[i] = recent.get(i).fingerprint();
+            }
+            maid.put(TAG_ENTRIES, entries);
+            maid.putLongArray(TAG_FINGERPRINTS, fingerprints);
+            maid.putLong(TAG_LAST_USED, ring.lastUsed);
+            maids.add(maid);
+        });
+        tag.put(TAG_MAIDS, maids);
+        return tag;
+    }
+}
@@ -9,10 +9,12 @@ import net.minecraft.advancements.Advancement;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.ServerAdvancementManager;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.item.ItemStack;
 
 import java.util.List;
+import java.util.UUID;
 import java.util.function.Consumer;
 
 public class LetterRule implements ILetterRule {
@@ -126,31 +128,39 @@ public class LetterRule implements ILetterRule {
         return generator.getType();
     }
 
+    public ILetterGenerator getGenerator() {
+        return generator;
+    }
+
     private boolean hasAnyTrigger(ServerPlayer owner) {
         MinecraftServer server = owner.getServer();
         if (server == null) {
             return false;
         }
+        return hasAnyTrigger(owner.getUUID(), owner.getPersistentData(), server.getAdvancements());
+    }
 
+    /**
+     * 触发器检查，只依赖主人 UUID、主人的持久化数据与成就表，不需要 ServerPlayer 实例；基准测试直接调用
+     */
+    public boolean hasAnyTrigger(UUID ownerId, CompoundTag ownerData, ServerAdvancementManager advancements) {
+        TriggerManager triggerManager = TriggerManager.getInstance();
         for (ResourceLocation triggerId : triggers) {
             // 成就：只看事件激活
-            Advancement advancement = server.getAdvancements().getAdvancement(triggerId);
+            Advancement advancement = advancements.getAdvancement(triggerId);
             if (advancement != null) {
-                if (TRIGGER_MANAGER.hasTriggered(owner, triggerId)) {
+                if (triggerManager.hasTriggered(ownerId, triggerId)) {
                     return true;
                 }
                 continue;
             }
 
             // 自定义触发器
-            boolean active = TRIGGER_MANAGER.hasTriggered(owner, triggerId);
+            boolean active = triggerManager.hasTriggered(ownerId, triggerId);
             if (active) {
-                ResourceLocation consumeKey = new ResourceLocation(
-                        "internal",
-                        ("custom_" + id + "_" + triggerId.toString().replace(":", "_"))
-                );
+                ResourceLocation consumeKey = consumeKeyOf(triggerId);
                 if (triggerType == TriggerType.ONCE) {
-                    if (TRIGGER_MANAGER.hasConsumedOnce(owner, consumeKey)) {
+                    if (triggerManager.hasConsumedOnce(ownerData, consumeKey)) {
                         continue;
                     }
                 }
@@ -160,6 +170,42 @@ public class LetterRule implements ILetterRule {
         return false;
     }
 
+    /**
+     * 规则之后是否还可能被触发：已消费的一次性自定义触发器、已完成且当前未激活的成就不再计入
+     * 用于判断是否值得为该规则预生成信件
+     */
+    public boolean canStillTrigger(ServerPlayer owner) {
+        MinecraftServer server = owner.getServer();
+        if (server == null) {
+            return false;
+        }
+        for (ResourceLocation triggerId : triggers) {
+            if (TRIGGER_MANAGER.hasTriggered(owner, triggerId)) {
+                if (triggerType == TriggerType.ONCE && server.getAdvancements().getAdvancement(triggerId) == null
+                        && TRIGGER_MANAGER.hasConsumedOnce(owner, consumeKeyOf(triggerId))) {
+                    continue;
+                }
+                return true;
+            }
+            Advancement advancement = server.getAdvancements().getAdvancement(triggerId);
+            if (advancement != null) {
+                // 成就只会完成一次，已完成的不会再触发
+                if (!owner.getAdvancements().getOrStartProgress(advancement).isDone()) {
+                    return true;
+                }
+                continue;
+            }
+            if (triggerType != TriggerType.ONCE || !TRIGGER_MANAGER.hasConsumedOnce(owner, consumeKeyOf(triggerId))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ResourceLocation consumeKeyOf(ResourceLocation triggerId) {
+        return new ResourceLocation("internal", "custom_" + id + "_" + triggerId.toString().replace(":", "_"));
+    }
+
     public void consumeTriggers(ServerPlayer owner) {
         MinecraftServer server = owner.getServer();
 
@@ -172,10 +218,7 @@ public class LetterRule implements ILetterRule {
 
             if (TRIGGER_MANAGER.hasTriggered(owner, triggerId)) {
                 if (triggerType == TriggerType.ONCE) {
-                    ResourceLocation consumeKey = new ResourceLocation(
-                            "internal",
-                            ("custom_" + id + "_" + triggerId.toString().replace(":", "_"))
-                    );
+                    ResourceLocation consumeKey = consumeKeyOf(triggerId);
                     TRIGGER_MANAGER.markConsumedOnce(owner, consumeKey);
                     TRIGGER_MANAGER.clearTriggered(owner, triggerId);
                 } else {
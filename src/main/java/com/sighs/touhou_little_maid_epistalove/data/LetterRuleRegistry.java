@@ -4,13 +4,16 @@ import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
 import cc.sighs.oelib.forge.data.DataManager;
 import com.mojang.logging.LogUtils;
 import com.sighs.touhou_little_maid_epistalove.api.letter.ILetterRule;
+import com.sighs.touhou_little_maid_epistalove.trigger.TriggerManager;
+import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
 import org.slf4j.Logger;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public final class LetterRuleRegistry {
     private static final Logger LOGGER = LogUtils.getLogger();
@@ -18,43 +21,105 @@ public final class LetterRuleRegistry {
 
     private static final ConcurrentHashMap<String, ILetterRule> DYNAMIC_RULES = new ConcurrentHashMap<>();
 
+    // 编译后的规则快照，为 null 表示需要在下次访问时重新编译
+    private static volatile CompiledRuleSet SNAPSHOT = null;
+    // 快照失效时通知，例如让评估调度重新评估所有女仆
+    private static final List<Runnable> INVALIDATION_LISTENERS = new CopyOnWriteArrayList<>();
+
     public static void init() {
         DATA_MANAGER = DataManager.get(MaidLetterRule.class);
     }
 
     public static List<ILetterRule> getAllRules() {
+        return getSnapshot().rules();
+    }
+
+    public static CompiledRuleSet getSnapshot() {
+        CompiledRuleSet snapshot = SNAPSHOT;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (LetterRuleRegistry.class) {
+            if (SNAPSHOT == null) {
+                SNAPSHOT = compileSnapshot();
+            }
+            return SNAPSHOT;
+        }
+    }
+
+    /**
+     * 订阅规则快照失效，之后的评估会使用重新编译的快照
+     */
+    public static void addInvalidationListener(Runnable listener) {
+        INVALIDATION_LISTENERS.add(listener);
+    }
+
+    /**
+     * 使规则快照失效（数据包重载、KubeJS 重载或动态规则变更时调用）
+     */
+    public static synchronized void invalidate() {
+        SNAPSHOT = null;
+        for (Runnable listener : INVALIDATION_LISTENERS) {
+            listener.run();
+        }
+    }
+
+    private static CompiledRuleSet compileSnapshot() {
         List<ILetterRule> rules = new ArrayList<>(DYNAMIC_RULES.values());
 
         if (DATA_MANAGER != null) {
-            List<MaidLetterRule> dataPackRules = DATA_MANAGER.getDataList();
-            rules.addAll(dataPackRules.stream()
-                    .map(DataPackLetterRuleAdapter::new)
-                    .toList());
+            for (MaidLetterRule dataPackRule : DATA_MANAGER.getDataList()) {
+                try {
+                    rules.add(new DataPackLetterRuleAdapter(dataPackRule));
+                } catch (IllegalStateException e) {
+                    LOGGER.error("[MaidMail] Skip invalid data pack letter rule {}: {}", dataPackRule.id(), e.getMessage());
+                }
+            }
         }
 
-        return rules;
+        CompiledRuleSet snapshot = CompiledRuleSet.compile(rules);
+        LOGGER.debug("[MaidMail] Compiled letter rule snapshot: {} rules", snapshot.size());
+        return snapshot;
     }
 
     public static List<ILetterRule> getMatchingRules(ServerPlayer owner, EntityMaid maid, long gameTime) {
-        return getAllRules().stream()
-                .filter(rule -> rule.matches(owner, maid, gameTime))
-                .collect(Collectors.toList());
+        Set<ResourceLocation> activeTriggers = TriggerManager.getInstance().getActiveTriggers(owner);
+        if (activeTriggers.isEmpty()) {
+            return List.of();
+        }
+
+        List<ILetterRule> candidates = getSnapshot().select(activeTriggers,
+                maid.getFavorability(), CompiledRuleSet.modelIdOf(maid));
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        List<ILetterRule> matching = new ArrayList<>(candidates.size());
+        for (ILetterRule rule : candidates) {
+            if (rule.matches(owner, maid, gameTime)) {
+                matching.add(rule);
+            }
+        }
+        return matching;
     }
 
     public static void registerRule(ILetterRule rule) {
         DYNAMIC_RULES.put(rule.getId(), rule);
+        invalidate();
         LOGGER.info("[MaidMail] Registered dynamic letter rule: {}", rule.getId());
     }
 
     public static void removeRule(String ruleId) {
         ILetterRule removed = DYNAMIC_RULES.remove(ruleId);
         if (removed != null) {
+            invalidate();
             LOGGER.info("[MaidMail] Removed dynamic letter rule: {}", ruleId);
         }
     }
 
     public static void clearDynamicRules() {
         DYNAMIC_RULES.clear();
+        invalidate();
         LOGGER.info("[MaidMail] Cleared all dynamic letter rules");
     }
 
@@ -65,4 +130,4 @@ public final class LetterRuleRegistry {
     public static int getDataPackRuleCount() {
         return DATA_MANAGER != null ? DATA_MANAGER.getDataList().size() : 0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package com.sighs.touhou_little_maid_epistalove.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 规则ID驻留表：为每个规则ID分配一个在本次运行期间稳定的整数序号
+ * 序号只在内存中使用，持久化时仍写回规则ID
+ * 序号数量等于本次运行中出现过的不同规则ID数：已删除规则的冷却记录保存时会过期回收（见 MaidLetterState），
+ * 不会在多次重启之间不断读回并驻留
+ */
+public final class RuleOrdinals {
+    private static final ConcurrentHashMap<String, Integer> ORDINALS = new ConcurrentHashMap<>();
+    private static final List<String> IDS = new ArrayList<>();
+
+    private RuleOrdinals() {
+    }
+
+    public static int of(String ruleId) {
+        Integer ordinal = ORDINALS.get(ruleId);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        synchronized (IDS) {
+            return ORDINALS.computeIfAbsent(ruleId, id -> {
+                IDS.add(id);
+                return IDS.size() - 1;
+            });
+        }
+    }
+
+    public static String idOf(int ordinal) {
+        synchronized (IDS) {
+            return ordinal >= 0 && ordinal < IDS.size() ? IDS.get(ordinal) : null;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.sighs.touhou_little_maid_epistalove.entity.ai.behavior;
 
 import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
 import com.mojang.logging.LogUtils;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
 import com.sighs.touhou_little_maid_epistalove.util.HazardUtil;
 import net.minecraft.core.BlockPos;
 import net.minecraft.server.level.ServerLevel;
@@ -19,6 +20,7 @@ public final class AdvancedMovement {
      * 强制移动到目标位置（当常规导航失败时使用）
      */
     public static boolean forceMoveTo(EntityMaid maid, BlockPos target, double speed) {
+        LetterMetrics.FORCE_MOVE_FALLBACKS.inc();
         try {
             var nav = maid.getNavigation();
             nav.stop();
@@ -5,16 +5,22 @@ import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
 import com.github.tartaricacid.touhoulittlemaid.util.ItemsUtil;
 import com.mojang.logging.LogUtils;
 import com.sighs.touhou_little_maid_epistalove.config.Config;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
+import com.sighs.touhou_little_maid_epistalove.util.AsyncPathPlanner;
 import com.sighs.touhou_little_maid_epistalove.util.HazardUtil;
 import com.sighs.touhou_little_maid_epistalove.util.MailboxSafetyEvaluator;
+import com.sighs.touhou_little_maid_epistalove.util.PathReuseCache;
 import com.sighs.touhou_little_maid_epistalove.util.PathSafetyPlanner;
 import net.minecraft.core.BlockPos;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.ai.behavior.Behavior;
 import net.minecraft.world.entity.ai.behavior.BehaviorControl;
+import net.minecraft.world.level.pathfinder.Path;
 import org.slf4j.Logger;
 
+import java.util.concurrent.CompletableFuture;
+
 public class LetterDeliveryBehavior implements BehaviorControl<EntityMaid> {
     private static final Logger LOGGER = LogUtils.getLogger();
 
@@ -40,6 +46,12 @@ public class LetterDeliveryBehavior implements BehaviorControl<EntityMaid> {
     private BlockPos lastPos = null;
     private int noMovementTicks = 0;
 
+    // 异步规划中的路径及其目标
+    private CompletableFuture<PathSafetyPlanner.PlannedPath> pendingPath = null;
+    private BlockPos pendingPathTarget = null;
+    // 卡住后的下一次远距离规划不使用路径复用缓存
+    private boolean bypassPathCache = false;
+
     @Override
     public Behavior.Status getStatus() {
         return status;
@@ -62,6 +74,15 @@ public class LetterDeliveryBehavior implements BehaviorControl<EntityMaid> {
 
     @Override
     public void tickOrStop(ServerLevel level, EntityMaid maid, long gameTime) {
+        long profileStart = LetterTickProfiler.begin();
+        try {
+            tickDelivery(level, maid, gameTime);
+        } finally {
+            LetterTickProfiler.end(LetterTickProfiler.Section.DELIVERY, profileStart);
+        }
+    }
+
+    private void tickDelivery(ServerLevel level, EntityMaid maid, long gameTime) {
         LetterGenerationService.processMaidLetterGeneration(maid);
         if (!hasLetter(maid)) {
             doStop(level, maid, gameTime);
@@ -109,6 +130,7 @@ public class LetterDeliveryBehavior implements BehaviorControl<EntityMaid> {
     @Override
     public void doStop(ServerLevel level, EntityMaid maid, long gameTime) {
         maid.getNavigation().stop();
+        cancelPendingPath();
         status = Behavior.Status.STOPPED;
         targetType = null;
         targetPos = null;
@@ -116,6 +138,7 @@ public class LetterDeliveryBehavior implements BehaviorControl<EntityMaid> {
         stayTick = 0;
         lastPos = null;
         noMovementTicks = 0;
+        bypassPathCache = false;
     }
 
     @Override
@@ -138,9 +161,16 @@ public class LetterDeliveryBehavior implements BehaviorControl<EntityMaid> {
     }
 
     private void planTarget(ServerLevel level, EntityMaid maid) {
-        var nav = maid.getNavigation();
-        nav.stop();
+        BlockPos previousTarget = targetPos;
+        selectTarget(level, maid);
+        // 目标不变且异步规划尚未完成时保留当前路径，规划完成后再切换
+        boolean awaitingPlan = pendingPath != null && targetPos != null && targetPos.equals(previousTarget);
+        if (!awaitingPlan) {
+            maid.getNavigation().stop();
+        }
+    }
 
+    private void selectTarget(ServerLevel level, EntityMaid maid) {
         boolean homeMode = maid.isHomeModeEnable();
         ServerPlayer owner = (ServerPlayer) maid.getOwner();
 
@@ -274,12 +304,67 @@ public class LetterDeliveryBehavior implements BehaviorControl<EntityMaid> {
      * 远距离导航：使用路径规划器生成安全路径，失败时回退到直接导航和强制移动
      */
     private boolean handleLongRangeNavigation(EntityMaid maid, BlockPos target, double speed) {
+        // 同一区段出发前往同一目标时优先复用之前验证过的路径
+        ServerLevel level = (ServerLevel) maid.level();
+        if (!bypassPathCache) {
+            Path cached = PathReuseCache.get(level, maid.blockPosition(), target);
+            if (cached != null && maid.getNavigation().moveTo(cached, speed)) {
+                LetterMetrics.PATH_REUSE_HITS.inc();
+                return true;
+            }
+        }
+        bypassPathCache = false;
+
+        if (Config.ASYNC_PATH_PLANNING.get()) {
+            return handleAsyncLongRangeNavigation(maid, target, speed);
+        }
+
+        LetterMetrics.PATH_PLANS.inc();
+        long planStart = System.nanoTime();
+        var planned = PathSafetyPlanner.planSimpleAvoidancePath(maid, target);
+        LetterMetrics.PATH_PLAN_TIME.recordSince(planStart);
+        return moveAlongPlannedPath(maid, planned, target, speed);
+    }
+
+    /**
+     * 异步远距离导航：提交规划后继续沿当前路径移动，规划完成后的 tick 再切换到新路径
+     */
+    private boolean handleAsyncLongRangeNavigation(EntityMaid maid, BlockPos target, double speed) {
+        if (pendingPath != null && !target.equals(pendingPathTarget)) {
+            cancelPendingPath();
+        }
+
+        if (pendingPath == null) {
+            pendingPath = AsyncPathPlanner.submit(maid, target);
+            pendingPathTarget = target;
+        }
+
+        if (!pendingPath.isDone()) {
+            // 等待期间没有可走的路径（例如脱困时已停止导航）则先直接朝目标移动
+            var nav = maid.getNavigation();
+            if (!nav.isInProgress()) {
+                nav.moveTo(target.getX() + 0.5, target.getY(), target.getZ() + 0.5, speed);
+            }
+            return true;
+        }
+
+        PathSafetyPlanner.PlannedPath planned = pendingPath.getNow(null);
+        pendingPath = null;
+        pendingPathTarget = null;
+        return moveAlongPlannedPath(maid, planned, target, speed);
+    }
+
+    private boolean moveAlongPlannedPath(EntityMaid maid, PathSafetyPlanner.PlannedPath planned, BlockPos target, double speed) {
         var nav = maid.getNavigation();
 
-        var path = PathSafetyPlanner.planSimpleAvoidancePath(maid, target);
-        if (path != null) {
-            boolean pathResult = nav.moveTo(path, speed);
+        if (planned != null && planned.path() != null) {
+            BlockPos start = maid.blockPosition();
+            boolean pathResult = nav.moveTo(planned.path(), speed);
             if (pathResult) {
+                // 只缓存通过安全检查的路径，未验证的直接路径不应被之后的投递复用
+                if (planned.safe()) {
+                    PathReuseCache.put((ServerLevel) maid.level(), start, target, planned.path());
+                }
                 return true;
             }
         }
@@ -291,6 +376,24 @@ public class LetterDeliveryBehavior implements BehaviorControl<EntityMaid> {
         return true;
     }
 
+    /**
+     * 卡住时丢弃可能正在使用的缓存路径，并让下一次规划跳过缓存
+     */
+    private void forgetStuckPath(ServerLevel level, EntityMaid maid) {
+        if (targetPos != null) {
+            PathReuseCache.evict(level, maid.blockPosition(), targetPos);
+        }
+        bypassPathCache = true;
+    }
+
+    private void cancelPendingPath() {
+        if (pendingPath != null) {
+            pendingPath.cancel(false);
+            pendingPath = null;
+            pendingPathTarget = null;
+        }
+    }
+
     private void handleMovementTracking(EntityMaid maid, boolean moveOk, ServerLevel level) {
         BlockPos cur = maid.blockPosition();
         if (cur.equals(lastPos)) {
@@ -301,6 +404,7 @@ public class LetterDeliveryBehavior implements BehaviorControl<EntityMaid> {
         }
 
         if (!moveOk || noMovementTicks > 80) {
+            forgetStuckPath(level, maid);
             planTarget(level, maid);
             replanCooldown = REPLAN_COOLDOWN;
             noMovementTicks = 0;
@@ -320,6 +424,7 @@ public class LetterDeliveryBehavior implements BehaviorControl<EntityMaid> {
 
         if (isStuck) {
             nav.stop();
+            forgetStuckPath(level, maid);
             planTarget(level, maid);
             replanCooldown = REPLAN_COOLDOWN;
             noMovementTicks = 0;
@@ -11,6 +11,7 @@ import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
 import com.github.tartaricacid.touhoulittlemaid.util.ItemsUtil;
 import com.mojang.logging.LogUtils;
 import com.sighs.touhou_little_maid_epistalove.config.Config;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
 import com.sighs.touhou_little_maid_epistalove.util.MailboxSafetyEvaluator;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.GlobalPos;
@@ -71,6 +72,7 @@ public final class LetterDeliveryService {
                 boolean sent = sendViaPostbox(level, owner, parcel, pos, maid);
                 if (sent) {
                     removeOneMarkedParcel(maid);
+                    LetterMetrics.DELIVERIES_MAILBOX.inc();
                     return true;
                 }
             }
@@ -97,6 +99,7 @@ public final class LetterDeliveryService {
             }
             ItemHandlerHelper.giveItemToPlayer(owner, parcel.copy());
             removeOneMarkedParcel(maid);
+            LetterMetrics.DELIVERIES_HANDOVER.inc();
         }
     }
 
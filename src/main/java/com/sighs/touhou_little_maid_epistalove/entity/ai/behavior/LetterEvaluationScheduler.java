@@ -0,0 +1,125 @@
+package com.sighs.touhou_little_maid_epistalove.entity.ai.behavior;
+
+import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
+import com.sighs.touhou_little_maid_epistalove.data.LetterRuleRegistry;
+import com.sighs.touhou_little_maid_epistalove.trigger.TriggerManager;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 信件规则评估调度：只有状态发生变化的女仆才会重新评估规则
+ * 触发器激活、规则重载、好感度/模型变化、冷却到期或生成回调都会让对应女仆变“脏”
+ */
+public final class LetterEvaluationScheduler {
+    // 兜底：即使没有任何变化，也每隔这么多 tick 重新评估一次
+    private static final long MAX_IDLE_TICKS = 1200;
+
+    private static final AtomicLong EPOCH_COUNTER = new AtomicLong();
+    private static final ConcurrentHashMap<UUID, Long> OWNER_EPOCHS = new ConcurrentHashMap<>();
+    private static volatile long ruleEpoch = 0;
+
+    private static final ConcurrentHashMap<UUID, MaidWatch> MAID_WATCHES = new ConcurrentHashMap<>();
+
+    private LetterEvaluationScheduler() {
+    }
+
+    /**
+     * 订阅触发器状态变化与规则快照失效，在模组构造时调用一次
+     */
+    public static void init() {
+        TriggerManager.addChangeListener(LetterEvaluationScheduler::markOwnerDirty);
+        LetterRuleRegistry.addInvalidationListener(LetterEvaluationScheduler::markAllDirty);
+    }
+
+    private static final class MaidWatch {
+        volatile boolean dirty = true;
+        UUID ownerId;
+        long ownerEpoch;
+        long ruleEpoch;
+        int favorability;
+        String modelId;
+        long lastEvaluated;
+        long wakeTick = Long.MAX_VALUE;
+    }
+
+    /**
+     * 主人的触发器状态发生了可能产生新信件的变化
+     */
+    public static void markOwnerDirty(UUID ownerId) {
+        if (ownerId == null) return;
+        OWNER_EPOCHS.put(ownerId, EPOCH_COUNTER.incrementAndGet());
+    }
+
+    /**
+     * 规则快照重建后，所有女仆都需要重新评估
+     */
+    public static void markAllDirty() {
+        ruleEpoch = EPOCH_COUNTER.incrementAndGet();
+    }
+
+    public static void markMaidDirty(EntityMaid maid) {
+        MaidWatch watch = MAID_WATCHES.get(maid.getUUID());
+        if (watch != null) {
+            watch.dirty = true;
+        }
+    }
+
+    public static void forgetMaid(UUID maidId) {
+        MAID_WATCHES.remove(maidId);
+    }
+
+    public static void forgetOwner(UUID ownerId) {
+        OWNER_EPOCHS.remove(ownerId);
+    }
+
+    /**
+     * 判断女仆是否需要重新评估规则（只读，不修改状态）
+     */
+    public static boolean needsEvaluation(EntityMaid maid, ServerPlayer owner, long gameTime) {
+        MaidWatch watch = MAID_WATCHES.get(maid.getUUID());
+        if (watch == null || watch.dirty) return true;
+        if (!owner.getUUID().equals(watch.ownerId)) return true;
+        if (ownerEpoch(owner.getUUID()) != watch.ownerEpoch) return true;
+        if (ruleEpoch != watch.ruleEpoch) return true;
+        if (maid.getFavorability() != watch.favorability) return true;
+        if (!Objects.equals(maid.getModelId(), watch.modelId)) return true;
+        if (gameTime >= watch.wakeTick) return true;
+        return gameTime - watch.lastEvaluated >= MAX_IDLE_TICKS;
+    }
+
+    /**
+     * 开始一次评估：记录评估前的状态并清除脏标记
+     * 评估过程中发生的变化（例如同步回调）会重新置脏，不会被本次评估吞掉
+     */
+    public static void beginEvaluation(EntityMaid maid, ServerPlayer owner, long gameTime) {
+        MaidWatch watch = MAID_WATCHES.computeIfAbsent(maid.getUUID(), k -> new MaidWatch());
+        watch.dirty = false;
+        watch.ownerId = owner.getUUID();
+        watch.ownerEpoch = ownerEpoch(owner.getUUID());
+        watch.ruleEpoch = ruleEpoch;
+        watch.favorability = maid.getFavorability();
+        watch.modelId = maid.getModelId();
+        watch.lastEvaluated = gameTime;
+        watch.wakeTick = Long.MAX_VALUE;
+    }
+
+    /**
+     * 结束评估
+     *
+     * @param wakeTick 最早需要再次评估的时间（如最近的冷却到期时间），无需定时唤醒时传 Long.MAX_VALUE
+     */
+    public static void finishEvaluation(EntityMaid maid, long wakeTick) {
+        MaidWatch watch = MAID_WATCHES.get(maid.getUUID());
+        if (watch != null) {
+            watch.wakeTick = wakeTick;
+        }
+    }
+
+    private static long ownerEpoch(UUID ownerId) {
+        return OWNER_EPOCHS.getOrDefault(ownerId, 0L);
+    }
+}
@@ -6,11 +6,20 @@ import com.github.tartaricacid.touhoulittlemaid.entity.favorability.Favorability
 import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
 import com.github.tartaricacid.touhoulittlemaid.util.ItemsUtil;
 import com.mojang.logging.LogUtils;
+import com.sighs.touhou_little_maid_epistalove.ai.generator.AILetterGenerator;
+import com.sighs.touhou_little_maid_epistalove.ai.generator.LetterPregenPool;
+import com.sighs.touhou_little_maid_epistalove.api.letter.ILetterGenerator;
 import com.sighs.touhou_little_maid_epistalove.api.letter.ILetterRule;
 import com.sighs.touhou_little_maid_epistalove.api.trigger.ITriggerManager;
+import com.sighs.touhou_little_maid_epistalove.capability.MaidLetterState;
+import com.sighs.touhou_little_maid_epistalove.capability.MaidLetterStateProvider;
+import com.sighs.touhou_little_maid_epistalove.config.Config;
+import com.sighs.touhou_little_maid_epistalove.data.CompiledRuleSet;
 import com.sighs.touhou_little_maid_epistalove.data.DataPackLetterRuleAdapter;
 import com.sighs.touhou_little_maid_epistalove.data.LetterRule;
 import com.sighs.touhou_little_maid_epistalove.data.LetterRuleRegistry;
+import com.sighs.touhou_little_maid_epistalove.data.RuleOrdinals;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
 import com.sighs.touhou_little_maid_epistalove.trigger.TriggerManager;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
@@ -19,7 +28,7 @@ import net.minecraft.server.level.ServerPlayer;
 import net.minecraftforge.fml.loading.FMLLoader;
 import org.slf4j.Logger;
 
-import java.util.HashSet;
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Set;
 
@@ -27,6 +36,9 @@ public final class LetterGenerationService {
     private static final Logger LOGGER = LogUtils.getLogger();
     private static TaskDataKey<CompoundTag> RUNTIME_DATA_KEY;
     private static final ITriggerManager TRIGGER_MANAGER = TriggerManager.getInstance();
+    // AI 规则生成失败后的退避（tick）：首次 10 秒，连续失败时翻倍，最多 5 分钟
+    private static final int FAILURE_BACKOFF_BASE = 200;
+    private static final int FAILURE_BACKOFF_MAX = 6000;
 
     private LetterGenerationService() {
     }
@@ -36,21 +48,48 @@ public final class LetterGenerationService {
     }
 
     public static void processMaidLetterGeneration(EntityMaid maid) {
+        long profileStart = LetterTickProfiler.begin();
+        try {
+            generateLetters(maid);
+        } finally {
+            LetterTickProfiler.end(LetterTickProfiler.Section.GENERATION, profileStart);
+        }
+    }
+
+    private static void generateLetters(EntityMaid maid) {
         if (!(maid.level() instanceof ServerLevel serverLevel)) return;
         ServerPlayer owner = (ServerPlayer) maid.getOwner();
         if (owner == null) return;
         if (maid.tickCount % 10 != 0) return;
+
+        long gameTime = serverLevel.getGameTime();
+        if (!LetterEvaluationScheduler.needsEvaluation(maid, owner, gameTime)) return;
+        // 持有信件时保持“脏”状态，送出后再评估
         if (hasLetter(maid)) return;
 
-        if (maid.tickCount % 200 == 0 && !FMLLoader.isProduction()) {
-            logCooldownInfo(maid, serverLevel, owner);
-        }
+        LetterEvaluationScheduler.beginEvaluation(maid, owner, gameTime);
+        LetterMetrics.RULE_EVALUATIONS.inc();
+        long evaluationStart = System.nanoTime();
 
         pruneUnmatchedTriggers(owner, maid);
 
-        List<ILetterRule> candidates = LetterRuleRegistry.getMatchingRules(owner, maid, serverLevel.getGameTime());
+        long wakeTick = Long.MAX_VALUE;
+        boolean started = false;
+        List<ILetterRule> candidates = LetterRuleRegistry.getMatchingRules(owner, maid, gameTime);
+        if (!FMLLoader.isProduction() && LOGGER.isDebugEnabled()) {
+            logCooldownInfo(maid, candidates, gameTime);
+        }
         for (ILetterRule rule : candidates) {
-            if (isOnCooldown(maid, rule, serverLevel.getGameTime())) continue;
+            if (isOnCooldown(maid, rule, gameTime)) {
+                wakeTick = Math.min(wakeTick, gameTime + getCooldownRemaining(maid, rule, gameTime));
+                continue;
+            }
+
+            long retryAfter = getRetryAfter(maid, rule);
+            if (retryAfter > gameTime) {
+                wakeTick = Math.min(wakeTick, retryAfter);
+                continue;
+            }
 
             if ("ai".equals(rule.getType()) && !markAIPending(maid, rule)) {
                 continue;
@@ -76,85 +115,81 @@ public final class LetterGenerationService {
 
                 if ("ai".equals(rule.getType())) {
                     clearAIPending(maid, rule);
+                    recordAIResult(maid, rule, success, serverLevel.getGameTime());
                 }
+                // 其余候选规则在信件送出后继续评估
+                LetterEvaluationScheduler.markMaidDirty(maid);
             });
+            started = true;
             break;
         }
+
+        if (!started && LetterPregenPool.isEnabled()) {
+            pregenerateIdleLetter(owner, maid, gameTime);
+        }
+
+        LetterEvaluationScheduler.finishEvaluation(maid, wakeTick);
+        LetterMetrics.RULE_EVALUATION_TIME.recordSince(evaluationStart);
     }
 
     /**
-     * 按触发器ID清理：如果某触发器当前没有任何规则在本帧可匹配，则清除它
-     * 规则“可匹配”仅检查非触发条件，不包含冷却与触发是否激活
+     * 女仆本次评估没有要写的信时，为静态条件已满足的 AI 规则预生成一封信
+     * 冷却剩余时间超过池条目有效期的规则、之后不会再被触发的规则（如已消费的一次性规则）、池中的信过期未用而处于退避中的规则跳过；
+     * 预生成完成后标记女仆待评估，以便继续补充
      */
-    private static void pruneUnmatchedTriggers(ServerPlayer owner, EntityMaid maid) {
-        var allRules = LetterRuleRegistry.getAllRules();
-
-        // 收集当前激活的所有触发器ID
-        Set<ResourceLocation> activeTriggers = new HashSet<>();
-        for (ILetterRule rule : allRules) {
-            for (ResourceLocation tid : rule.getTriggers()) {
-                if (TRIGGER_MANAGER.hasTriggered(owner, tid)) {
-                    activeTriggers.add(tid);
-                }
+    private static void pregenerateIdleLetter(ServerPlayer owner, EntityMaid maid, long gameTime) {
+        CompiledRuleSet snapshot = LetterRuleRegistry.getSnapshot();
+        int affection = maid.getFavorability();
+        ResourceLocation modelId = CompiledRuleSet.modelIdOf(maid);
+        long ttlTicks = Config.AI_PREGEN_TTL.get() * 20L;
+
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (!snapshot.staticMatches(i, affection, modelId)) continue;
+            ILetterRule rule = snapshot.rules().get(i);
+            if (!(generatorOf(rule) instanceof AILetterGenerator generator) || !generator.canPregenerate()) continue;
+            if (getCooldownRemaining(maid, rule, gameTime) > ttlTicks) continue;
+            if (!canStillTrigger(rule, owner)) continue;
+            if (LetterPregenPool.tryPregenerate(owner, maid, generator, gameTime,
+                    () -> LetterEvaluationScheduler.markMaidDirty(maid))) {
+                return;
             }
         }
-        if (activeTriggers.isEmpty()) return;
-
-        // 对每个激活的触发器，判断是否存在任一规则在本帧可匹配
-        for (ResourceLocation tid : activeTriggers) {
-            boolean useBySomeMatchingRule = false;
-            for (ILetterRule rule : allRules) {
-                // 该规则是否包含该触发器
-                boolean ruleContainsTrigger = false;
-                for (ResourceLocation rtid : rule.getTriggers()) {
-                    if (rtid.equals(tid)) {
-                        ruleContainsTrigger = true;
-                        break;
-                    }
-                }
-                if (!ruleContainsTrigger) continue;
+    }
 
-                // 仅检查规则的静态条件，不依赖当前触发是否激活
-                if (staticConstraintsSatisfied(rule, maid)) {
-                    useBySomeMatchingRule = true;
-                    break;
-                }
-            }
+    @Nullable
+    private static ILetterGenerator generatorOf(ILetterRule rule) {
+        if (rule instanceof LetterRule letterRule) {
+            return letterRule.getGenerator();
+        } else if (rule instanceof DataPackLetterRuleAdapter adapter) {
+            return adapter.getGenerator();
+        }
+        return null;
+    }
 
-            // 如果该触发器当前没有任何可匹配规则，则清除它
-            if (!useBySomeMatchingRule) {
-                TRIGGER_MANAGER.clearTriggered(owner, tid);
-            }
+    private static boolean canStillTrigger(ILetterRule rule, ServerPlayer owner) {
+        if (rule instanceof LetterRule letterRule) {
+            return letterRule.canStillTrigger(owner);
+        } else if (rule instanceof DataPackLetterRuleAdapter adapter) {
+            return adapter.canStillTrigger(owner);
         }
+        return true;
     }
 
     /**
-     * 检查规则的静态匹配条件，不依赖触发器状态
+     * 按触发器ID清理：如果某触发器当前没有任何规则在本帧可匹配，则清除它
+     * 规则“可匹配”仅检查非触发条件，不包含冷却与触发是否激活
+     * 通过快照的触发器反向索引查找规则（见 {@link CompiledRuleSet#unmatchedTriggers}），耗时只与激活触发器数量相关
      */
-    private static boolean staticConstraintsSatisfied(ILetterRule rule, EntityMaid maid) {
-        int affection = maid.getFavorability();
-        Integer max = rule.getMaxAffection();
-        if (affection < rule.getMinAffection()) return false;
-        if (max != null && affection > max) return false;
-
-        List<ResourceLocation> requiredIds = null;
-
-        // 动态规则
-        if (rule instanceof LetterRule lr) {
-            requiredIds = lr.getRequiredMaidIds();
-        }
-        // 数据包规则
-        else if (rule instanceof DataPackLetterRuleAdapter adp) {
-            requiredIds = adp.getRequiredMaidIds();
-        }
+    private static void pruneUnmatchedTriggers(ServerPlayer owner, EntityMaid maid) {
+        Set<ResourceLocation> activeTriggers = TRIGGER_MANAGER.getActiveTriggers(owner);
+        if (activeTriggers.isEmpty()) return;
 
-        if (requiredIds != null && !requiredIds.isEmpty()) {
-            String modelIdStr = maid.getModelId();
-            ResourceLocation maidModel = !modelIdStr.isEmpty()
-                    ? new ResourceLocation(modelIdStr) : null;
-            return maidModel != null && requiredIds.contains(maidModel);
+        List<ResourceLocation> unmatched = LetterRuleRegistry.getSnapshot().unmatchedTriggers(activeTriggers,
+                maid.getFavorability(), CompiledRuleSet.modelIdOf(maid));
+        // 激活集合是只读视图，遍历结束后再清除
+        for (ResourceLocation tid : unmatched) {
+            TRIGGER_MANAGER.clearTriggered(owner, tid);
         }
-        return true;
     }
 
     private static boolean hasLetter(EntityMaid maid) {
@@ -165,68 +200,103 @@ public final class LetterGenerationService {
         });
     }
 
-    // 调试冷却信息
-    private static void logCooldownInfo(EntityMaid maid, ServerLevel serverLevel, ServerPlayer owner) {
-        List<ILetterRule> rules = LetterRuleRegistry.getMatchingRules(owner, maid, serverLevel.getGameTime());
+    // 调试冷却信息，复用本次评估的候选规则
+    private static void logCooldownInfo(EntityMaid maid, List<ILetterRule> rules, long gameTime) {
         for (ILetterRule rule : rules) {
-            int remain = getCooldownRemaining(maid, rule, serverLevel.getGameTime());
-            if (remain > 0 && !FMLLoader.isProduction()) {
+            int remain = getCooldownRemaining(maid, rule, gameTime);
+            if (remain > 0) {
                 LOGGER.debug("[MaidMail] cooldown maidId={} rule={} remaining={}",
                         maid.getId(), rule.getId(), remain);
             }
         }
     }
 
+    /**
+     * 获取女仆的送信状态；首次访问时把旧版本写在 TaskData 中的冷却迁移过来
+     */
+    @Nullable
+    private static MaidLetterState getState(EntityMaid maid) {
+        MaidLetterState state = MaidLetterStateProvider.get(maid);
+        if (state != null && !state.isLegacyChecked()) {
+            state.markLegacyChecked();
+            migrateLegacyData(maid, state);
+        }
+        return state;
+    }
+
+    private static void migrateLegacyData(EntityMaid maid, MaidLetterState state) {
+        if (RUNTIME_DATA_KEY == null) return;
+        CompoundTag legacy = maid.getOrCreateData(RUNTIME_DATA_KEY, new CompoundTag());
+        if (legacy.isEmpty()) return;
+
+        for (ILetterRule rule : LetterRuleRegistry.getAllRules()) {
+            long last = legacy.getLong("cd_" + rule.getId().replace(":", "_"));
+            int ordinal = RuleOrdinals.of(rule.getId());
+            if (last > 0 && state.getLastLetterTime(ordinal) <= 0) {
+                state.setLastLetterTime(ordinal, last);
+            }
+        }
+        maid.setAndSyncData(RUNTIME_DATA_KEY, new CompoundTag());
+        LOGGER.debug("[MaidMail] Migrated legacy letter state maidId={}", maid.getId());
+    }
+
     private static boolean markAIPending(EntityMaid maid, ILetterRule rule) {
-        if (RUNTIME_DATA_KEY == null) {
-            LOGGER.warn("[MaidMail] RUNTIME_DATA_KEY not set; cannot mark AI pending maidId={} rule={}",
+        MaidLetterState state = getState(maid);
+        if (state == null) {
+            LOGGER.warn("[MaidMail] Letter state missing; cannot mark AI pending maidId={} rule={}",
                     maid.getId(), rule.getId());
             return false;
         }
-        CompoundTag data = maid.getOrCreateData(RUNTIME_DATA_KEY, new CompoundTag());
-        String key = "ai_pending_" + rule.getId().replace(":", "_");
-        if (data.getBoolean(key)) {
-            return false;
-        }
-        data.putBoolean(key, true);
-        maid.setAndSyncData(RUNTIME_DATA_KEY, data);
-        return true;
+        return state.markPending(RuleOrdinals.of(rule.getId()));
     }
 
     private static void clearAIPending(EntityMaid maid, ILetterRule rule) {
-        if (RUNTIME_DATA_KEY == null) return;
-        CompoundTag data = maid.getOrCreateData(RUNTIME_DATA_KEY, new CompoundTag());
-        String key = "ai_pending_" + rule.getId().replace(":", "_");
-        data.putBoolean(key, false);
-        maid.setAndSyncData(RUNTIME_DATA_KEY, data);
+        MaidLetterState state = getState(maid);
+        if (state == null) return;
+        state.clearPending(RuleOrdinals.of(rule.getId()));
+    }
+
+    private static long getRetryAfter(EntityMaid maid, ILetterRule rule) {
+        MaidLetterState state = getState(maid);
+        return state == null ? 0L : state.getRetryAfter(RuleOrdinals.of(rule.getId()));
+    }
+
+    /**
+     * AI 规则生成失败（重试用尽或站点熔断）后进入退避，避免每次评估都重新请求；成功后清除
+     */
+    private static void recordAIResult(EntityMaid maid, ILetterRule rule, boolean success, long gameTime) {
+        MaidLetterState state = getState(maid);
+        if (state == null) return;
+        int ordinal = RuleOrdinals.of(rule.getId());
+        if (success) {
+            state.clearFailures(ordinal);
+        } else {
+            long retryAfter = state.recordFailure(ordinal, gameTime, FAILURE_BACKOFF_BASE, FAILURE_BACKOFF_MAX);
+            LetterMetrics.AI_RULE_BACKOFFS.inc();
+            LOGGER.debug("[MaidMail] AI rule backing off maidId={} rule={} until={}", maid.getId(), rule.getId(), retryAfter);
+        }
     }
 
     private static boolean isOnCooldown(EntityMaid maid, ILetterRule rule, long nowTick) {
-        if (RUNTIME_DATA_KEY == null) return false;
-        CompoundTag data = maid.getOrCreateData(RUNTIME_DATA_KEY, new CompoundTag());
-        String key = "cd_" + rule.getId().replace(":", "_");
-        long last = data.getLong(key);
-        Integer cd = rule.getCooldown();
-        return cd != null && cd > 0 && last > 0 && (nowTick - last) < cd;
+        return getCooldownRemaining(maid, rule, nowTick) > 0;
     }
 
     private static void setCooldown(EntityMaid maid, ILetterRule rule, long nowTick, Integer cooldown) {
-        if (RUNTIME_DATA_KEY == null || cooldown == null || cooldown <= 0) return;
-        CompoundTag data = maid.getOrCreateData(RUNTIME_DATA_KEY, new CompoundTag());
-        String key = "cd_" + rule.getId().replace(":", "_");
-        data.putLong(key, nowTick);
-        maid.setAndSyncData(RUNTIME_DATA_KEY, data);
+        if (cooldown == null || cooldown <= 0) return;
+        MaidLetterState state = getState(maid);
+        if (state == null) return;
+        state.setLastLetterTime(RuleOrdinals.of(rule.getId()), nowTick);
     }
 
     private static int getCooldownRemaining(EntityMaid maid, ILetterRule rule, long nowTick) {
-        if (RUNTIME_DATA_KEY == null) return 0;
-        CompoundTag data = maid.getOrCreateData(RUNTIME_DATA_KEY, new CompoundTag());
-        String key = "cd_" + rule.getId().replace(":", "_");
-        long last = data.getLong(key);
         Integer cd = rule.getCooldown();
-        if (cd == null || cd <= 0 || last <= 0) return 0;
+        if (cd == null || cd <= 0) return 0;
+        MaidLetterState state = getState(maid);
+        if (state == null) return 0;
+        long last = state.getLastLetterTime(RuleOrdinals.of(rule.getId()));
+        if (last <= 0) return 0;
         long elapsed = nowTick - last;
-        return Math.max(0, cd - (int) elapsed);
+        return (int) Math.max(0, cd - elapsed);
     }
 
     private static void applyFavorabilityChange(EntityMaid maid, ILetterRule rule) {
@@ -0,0 +1,115 @@
+package com.sighs.touhou_little_maid_epistalove.entity.ai.behavior;
+
+/**
+ * 信件相关逻辑的按 tick 耗时统计（仅服务端线程使用）
+ * 默认关闭，关闭时 {@link #begin()} 不读取时钟；由负载测试在测量窗口内开启
+ * 嵌套调用（如 tickOrStop 内的信件生成）分别计入各自的分段，但每 tick 总耗时只累计最外层
+ */
+public final class LetterTickProfiler {
+    public enum Section {
+        DELIVERY, GENERATION
+    }
+
+    private static final Section[] SECTIONS = Section.values();
+
+    private static boolean enabled = false;
+    private static int depth = 0;
+
+    // 当前 tick 的累计值
+    private static final long[] tickSections = new long[SECTIONS.length];
+    private static long tickTotal = 0L;
+
+    // 测量窗口内的累计值
+    private static final long[] windowSections = new long[SECTIONS.length];
+    private static long windowTotal = 0L;
+    private static long maxTickTotal = 0L;
+    private static int ticks = 0;
+
+    private LetterTickProfiler() {
+    }
+
+    /**
+     * 清空统计并开始测量
+     */
+    public static void start() {
+        reset();
+        enabled = true;
+    }
+
+    public static void stop() {
+        enabled = false;
+        depth = 0;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static long begin() {
+        if (!enabled) return 0L;
+        depth++;
+        return System.nanoTime();
+    }
+
+    public static void end(Section section, long start) {
+        if (!enabled || start == 0L) return;
+        long elapsed = System.nanoTime() - start;
+        tickSections[section.ordinal()] += elapsed;
+        if (--depth <= 0) {
+            depth = 0;
+            tickTotal += elapsed;
+        }
+    }
+
+    /**
+     * 在服务端 tick 结束时调用，把当前 tick 的耗时并入测量窗口
+     */
+    public static void onServerTickEnd() {
+        if (!enabled) return;
+        for (int i = 0; i < SECTIONS.length; i++) {
+            windowSections[i] += tickSections[i];
+            tickSections[i] = 0L;
+        }
+        windowTotal += tickTotal;
+        maxTickTotal = Math.max(maxTickTotal, tickTotal);
+        tickTotal = 0L;
+        ticks++;
+    }
+
+    public static Report report() {
+        int n = Math.max(1, ticks);
+        double[] sections = new double[SECTIONS.length];
+        for (int i = 0; i < SECTIONS.length; i++) {
+            sections[i] = windowSections[i] / 1.0E6 / n;
+        }
+        return new Report(ticks, windowTotal / 1.0E6 / n, maxTickTotal / 1.0E6, sections);
+    }
+
+    private static void reset() {
+        depth = 0;
+        for (int i = 0; i < SECTIONS.length; i++) {
+            tickSections[i] = 0L;
+            windowSections[i] = 0L;
+        }
+        tickTotal = 0L;
+        windowTotal = 0L;
+        maxTickTotal = 0L;
+        ticks = 0;
+    }
+
+    /**
+     * 测量窗口统计，耗时单位为毫秒
+     */
+    public record Report(int ticks, double meanTickMs, double maxTickMs, double[] sectionMeanMs) {
+        public double sectionMeanMs(Section section) {
+            return sectionMeanMs[section.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ticks=%d mean=%.3fms max=%.3fms delivery=%.3fms generation=%.3fms",
+                    ticks, meanTickMs, maxTickMs,
+                    sectionMeanMs(Section.DELIVERY), sectionMeanMs(Section.GENERATION));
+        }
+    }
+}
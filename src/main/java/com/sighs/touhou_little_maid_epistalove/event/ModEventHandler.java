@@ -1,13 +1,39 @@
 package com.sighs.touhou_little_maid_epistalove.event;
 
+import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
+import com.sighs.touhou_little_maid_epistalove.ai.generator.LetterBatcher;
+import com.sighs.touhou_little_maid_epistalove.ai.generator.LetterPregenPool;
+import com.sighs.touhou_little_maid_epistalove.ai.generator.LetterResponseCache;
+import com.sighs.touhou_little_maid_epistalove.ai.prompt.EnhancedPromptBuilder;
+import com.sighs.touhou_little_maid_epistalove.ai.prompt.PromptBudget;
+import com.sighs.touhou_little_maid_epistalove.ai.scheduler.LetterRequestScheduler;
+import com.sighs.touhou_little_maid_epistalove.ai.scheduler.LetterRequestTimer;
+import com.sighs.touhou_little_maid_epistalove.ai.scheduler.SiteCircuitBreaker;
 import com.sighs.touhou_little_maid_epistalove.api.letter.ILetterRule;
+import com.sighs.touhou_little_maid_epistalove.data.LetterMemoryStore;
 import com.sighs.touhou_little_maid_epistalove.data.LetterRuleRegistry;
+import com.sighs.touhou_little_maid_epistalove.entity.ai.behavior.LetterEvaluationScheduler;
+import com.sighs.touhou_little_maid_epistalove.entity.ai.behavior.LetterTickProfiler;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
 import com.sighs.touhou_little_maid_epistalove.trigger.TriggerManager;
+import com.sighs.touhou_little_maid_epistalove.util.AsyncPathPlanner;
+import com.sighs.touhou_little_maid_epistalove.util.MailboxEvaluationCache;
+import com.sighs.touhou_little_maid_epistalove.util.MailboxSafetyEvaluator;
+import com.sighs.touhou_little_maid_epistalove.util.PathReuseCache;
+import com.sighs.touhou_little_maid_epistalove.util.PathTypeCache;
+import com.sighs.touhou_little_maid_epistalove.util.PostcardCatalog;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraftforge.event.OnDatapackSyncEvent;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.EntityLeaveLevelEvent;
 import net.minecraftforge.event.entity.player.AdvancementEvent;
 import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.level.BlockEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.event.server.ServerStartedEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
@@ -18,6 +44,51 @@ public class ModEventHandler {
     public static void onPlayerLogout(PlayerEvent.PlayerLoggedOutEvent event) {
         if (event.getEntity() instanceof ServerPlayer sp) {
             TriggerManager.getInstance().clearAllTriggered(sp);
+            LetterEvaluationScheduler.forgetOwner(sp.getUUID());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onEntityLeaveLevel(EntityLeaveLevelEvent event) {
+        if (!event.getLevel().isClientSide() && event.getEntity() instanceof EntityMaid maid) {
+            LetterEvaluationScheduler.forgetMaid(maid.getUUID());
+            // 区块卸载时保留预生成的信件，女仆真正被移除时才丢弃
+            if (maid.getRemovalReason() != null && maid.getRemovalReason().shouldDestroy()) {
+                LetterPregenPool.forgetMaid(maid.getUUID());
+                LetterMemoryStore store = LetterMemoryStore.get();
+                if (store != null) {
+                    store.forget(maid.getUUID());
+                }
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onNeighborNotify(BlockEvent.NeighborNotifyEvent event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            MailboxEvaluationCache.onBlockChanged(level, event.getPos());
+            PathTypeCache.onBlockChanged(level, event.getPos());
+            PathReuseCache.onBlockChanged(level, event.getPos());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            MailboxEvaluationCache.clear(level.dimension());
+            PathTypeCache.clear(level.dimension());
+            PathReuseCache.clear(level.dimension());
+            MailboxSafetyEvaluator.clear(level.dimension());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END) {
+            LetterBatcher.onServerTick();
+            LetterRequestTimer.onServerTick();
+            LetterTickProfiler.onServerTickEnd();
+            LetterMetrics.onServerTick(event.getServer());
         }
     }
 
@@ -30,6 +101,13 @@ public class ModEventHandler {
 
     @SubscribeEvent
     public static void onDatapackSync(OnDatapackSyncEvent event) {
+        // player 为空表示数据包重载（/reload），此时重新编译规则快照与提示词模板
+        if (event.getPlayer() == null) {
+            LetterRuleRegistry.invalidate();
+            PostcardCatalog.invalidate();
+            EnhancedPromptBuilder.invalidateTemplates();
+        }
+
         var rules = LetterRuleRegistry.getAllRules();
         var triggerManager = TriggerManager.getInstance();
         var server = event.getPlayerList().getServer();
@@ -52,4 +130,30 @@ public class ModEventHandler {
             }
         }
     }
+
+    @SubscribeEvent
+    public static void onServerStarted(ServerStartedEvent event) {
+        LetterMemoryStore.attach(event.getServer());
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        LetterRuleRegistry.invalidate();
+        PostcardCatalog.invalidate();
+        EnhancedPromptBuilder.invalidateTemplates();
+        PromptBudget.clear();
+        LetterMemoryStore.detach();
+        MailboxEvaluationCache.clearAll();
+        PathTypeCache.clearAll();
+        PathReuseCache.clearAll();
+        MailboxSafetyEvaluator.clearAll();
+        AsyncPathPlanner.clear();
+        LetterBatcher.clear();
+        LetterPregenPool.clearAll();
+        LetterResponseCache.clear();
+        LetterRequestScheduler.clear();
+        LetterRequestTimer.clear();
+        SiteCircuitBreaker.clear();
+        LetterMetrics.onServerStopped(event.getServer());
+    }
 }
@@ -0,0 +1,205 @@
+package com.sighs.touhou_little_maid_epistalove.gametest;
+
+import com.github.tartaricacid.touhoulittlemaid.entity.passive.EntityMaid;
+import com.github.tartaricacid.touhoulittlemaid.init.InitEntities;
+import com.github.tartaricacid.touhoulittlemaid.util.ItemsUtil;
+import com.mojang.logging.LogUtils;
+import com.sighs.touhou_little_maid_epistalove.TLMEpistalove;
+import com.sighs.touhou_little_maid_epistalove.ai.generator.PresetLetterGenerator;
+import com.sighs.touhou_little_maid_epistalove.api.letter.ILetterRule;
+import com.sighs.touhou_little_maid_epistalove.data.LetterRule;
+import com.sighs.touhou_little_maid_epistalove.data.LetterRuleRegistry;
+import com.sighs.touhou_little_maid_epistalove.entity.ai.behavior.LetterTickProfiler;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
+import com.sighs.touhou_little_maid_epistalove.trigger.TriggerManager;
+import com.sighs.touhou_little_maid_epistalove.util.PostcardPackageUtil;
+import net.minecraft.core.BlockPos;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.GameRules;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.BlockStateProperties;
+import net.minecraft.world.level.block.state.properties.DoubleBlockHalf;
+import net.minecraftforge.gametest.GameTestHolder;
+import net.minecraftforge.gametest.PrefixGameTestTemplate;
+import net.minecraftforge.registries.ForgeRegistries;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 信件投递负载测试：在多个住所周围生成 N 个女仆（部分携带信件），
+ * 每个住所有一个主人、一个安全邮筒和一个被岩浆与篝火包围的邮筒，
+ * 统计测量窗口内 {@link LetterTickProfiler} 记录的每 tick 耗时，超过预算则失败
+ * 大部分女仆开启住所模式，测试结束时要求至少有一封信投进了邮筒
+ * 预算（毫秒）通过系统属性 maidmail.gametest.msptBudget 配置，见 build.gradle 的 gameTestServer
+ * 每个规模单独成批，避免同时运行的测试互相计入耗时
+ */
+@GameTestHolder(TLMEpistalove.MODID)
+@PrefixGameTestTemplate(false)
+public final class LetterLoadGameTests {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    private static final String TEMPLATE = "letter_load_arena";
+    private static final int ARENA_SIZE = 48;
+    private static final int WARMUP_TICKS = 40;
+    private static final int WINDOW_TICKS = 200;
+    private static final int TIMEOUT_TICKS = WARMUP_TICKS + WINDOW_TICKS + 40;
+    private static final int HOME_RADIUS = 6;
+    // 每这么多个女仆中有一个保持跟随模式，其余开启住所模式
+    private static final int FOLLOW_MODE_EVERY = 4;
+
+    private static final String BUDGET_PROPERTY = "maidmail.gametest.msptBudget";
+    private static final double DEFAULT_BUDGET_MS = 10.0;
+
+    private static final String RULE_ID = TLMEpistalove.MODID + ":gametest_load";
+    private static final ResourceLocation LOAD_TRIGGER = new ResourceLocation(TLMEpistalove.MODID, "gametest_load");
+    private static final ResourceLocation PACKAGE_ID = new ResourceLocation("contact", "letter");
+    private static final ResourceLocation POSTCARD_ID = new ResourceLocation("contact", "default");
+    private static final ResourceLocation POSTBOX_ID = new ResourceLocation("contact", "red_postbox");
+
+    private static final BlockPos[] HOMES = {
+            new BlockPos(12, 1, 12), new BlockPos(36, 1, 12),
+            new BlockPos(12, 1, 36), new BlockPos(36, 1, 36)
+    };
+
+    private LetterLoadGameTests() {
+    }
+
+    @GameTest(template = TEMPLATE, batch = "letter_load_10", timeoutTicks = TIMEOUT_TICKS)
+    public static void letterLoad10(GameTestHelper helper) {
+        runLoad(helper, 10);
+    }
+
+    @GameTest(template = TEMPLATE, batch = "letter_load_100", timeoutTicks = TIMEOUT_TICKS)
+    public static void letterLoad100(GameTestHelper helper) {
+        runLoad(helper, 100);
+    }
+
+    @GameTest(template = TEMPLATE, batch = "letter_load_500", timeoutTicks = TIMEOUT_TICKS)
+    public static void letterLoad500(GameTestHelper helper) {
+        runLoad(helper, 500);
+    }
+
+    private static void runLoad(GameTestHelper helper, int maidCount) {
+        var level = helper.getLevel();
+        var server = level.getServer();
+        // 女仆集中在住所附近，关闭实体挤压伤害以免影响数量
+        GameRules.IntegerValue cramming = level.getGameRules().getRule(GameRules.RULE_MAX_ENTITY_CRAMMING);
+        int oldCramming = cramming.get();
+        cramming.set(0, server);
+
+        LetterRuleRegistry.registerRule(new LetterRule(RULE_ID, 0, null, List.of(LOAD_TRIGGER),
+                ILetterRule.TriggerType.REPEAT, 200, null, null,
+                new PresetLetterGenerator("Load test", "Letter delivery load test", POSTCARD_ID, PACKAGE_ID),
+                List.of()));
+
+        Random random = new Random(maidCount);
+        List<ServerPlayer> owners = new ArrayList<>(HOMES.length);
+        List<EntityMaid> maids = new ArrayList<>(maidCount);
+        for (BlockPos home : HOMES) {
+            placePostbox(helper, home.offset(-4, 0, 0), false);
+            placePostbox(helper, home.offset(4, 0, 0), true);
+
+            ServerPlayer owner = helper.makeMockServerPlayerInLevel();
+            BlockPos ownerPos = helper.absolutePos(home.offset(0, 0, 3));
+            owner.teleportTo(ownerPos.getX() + 0.5, ownerPos.getY(), ownerPos.getZ() + 0.5);
+            TriggerManager.getInstance().markTriggered(owner, LOAD_TRIGGER);
+            owners.add(owner);
+        }
+
+        for (int i = 0; i < maidCount; i++) {
+            int homeIndex = i % HOMES.length;
+            BlockPos home = HOMES[homeIndex];
+            BlockPos spawnPos = home.offset(random.nextInt(HOME_RADIUS * 2 + 1) - HOME_RADIUS, 0,
+                    random.nextInt(HOME_RADIUS * 2 + 1) - HOME_RADIUS);
+            EntityMaid maid = helper.spawn(InitEntities.MAID.get(), spawnPos);
+            maid.tame(owners.get(homeIndex));
+            maid.restrictTo(helper.absolutePos(home), HOME_RADIUS * 2);
+            maid.setHomeModeEnable(i % FOLLOW_MODE_EVERY != FOLLOW_MODE_EVERY - 1);
+            // 一半女仆直接携带信件进入投递，另一半走信件生成
+            if (i % 2 == 0) {
+                ItemsUtil.giveItemToMaid(maid, PostcardPackageUtil.buildPackageWithPostcard(
+                        PACKAGE_ID, "Load test parcel #" + i, POSTCARD_ID));
+            }
+            maids.add(maid);
+        }
+
+        long mailboxDeliveriesBefore = LetterMetrics.DELIVERIES_MAILBOX.get();
+        helper.runAfterDelay(WARMUP_TICKS, LetterTickProfiler::start);
+        helper.runAfterDelay(WARMUP_TICKS + WINDOW_TICKS, () -> {
+            LetterTickProfiler.Report report = LetterTickProfiler.report();
+            LetterTickProfiler.stop();
+
+            maids.forEach(EntityMaid::discard);
+            for (ServerPlayer owner : owners) {
+                TriggerManager.getInstance().clearAllTriggered(owner);
+                server.getPlayerList().remove(owner);
+            }
+            LetterRuleRegistry.removeRule(RULE_ID);
+            cramming.set(oldCramming, server);
+
+            long mailboxDeliveries = LetterMetrics.DELIVERIES_MAILBOX.get() - mailboxDeliveriesBefore;
+            double budget = getBudgetMs();
+            LOGGER.info("[MaidMail] Letter load test maids={} budget={}ms mailboxDeliveries={} {}",
+                    maidCount, budget, mailboxDeliveries, report);
+            if (mailboxDeliveries <= 0) {
+                helper.fail("No letter was delivered to a mailbox with " + maidCount + " maids");
+            }
+            if (report.meanTickMs() > budget) {
+                helper.fail(String.format("Letter logic used %.3fms per tick with %d maids, budget is %.3fms",
+                        report.meanTickMs(), maidCount, budget));
+            }
+            helper.succeed();
+        });
+    }
+
+    /**
+     * 放置邮筒，危险邮筒周围一圈地面换成岩浆，外圈四角放篝火
+     */
+    private static void placePostbox(GameTestHelper helper, BlockPos pos, boolean hazardous) {
+        Block postbox = ForgeRegistries.BLOCKS.getValue(POSTBOX_ID);
+        if (postbox == null || postbox == Blocks.AIR) {
+            helper.fail("Postbox block " + POSTBOX_ID + " is not registered");
+            return;
+        }
+
+        BlockState lower = postbox.defaultBlockState();
+        if (lower.hasProperty(BlockStateProperties.DOUBLE_BLOCK_HALF)) {
+            helper.setBlock(pos, lower.setValue(BlockStateProperties.DOUBLE_BLOCK_HALF, DoubleBlockHalf.LOWER));
+            helper.setBlock(pos.above(), lower.setValue(BlockStateProperties.DOUBLE_BLOCK_HALF, DoubleBlockHalf.UPPER));
+        } else {
+            helper.setBlock(pos, lower);
+        }
+
+        if (!hazardous) return;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                if (dx == 0 && dz == 0) continue;
+                helper.setBlock(pos.offset(dx, -1, dz), Blocks.LAVA.defaultBlockState());
+            }
+        }
+        for (int dx = -2; dx <= 2; dx += 4) {
+            for (int dz = -2; dz <= 2; dz += 4) {
+                helper.setBlock(pos.offset(dx, 0, dz), Blocks.CAMPFIRE.defaultBlockState());
+            }
+        }
+    }
+
+    private static double getBudgetMs() {
+        String value = System.getProperty(BUDGET_PROPERTY);
+        if (value == null || value.isBlank()) return DEFAULT_BUDGET_MS;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warn("[MaidMail] Invalid {}={}, using {}ms", BUDGET_PROPERTY, value, DEFAULT_BUDGET_MS);
+            return DEFAULT_BUDGET_MS;
+        }
+    }
+}
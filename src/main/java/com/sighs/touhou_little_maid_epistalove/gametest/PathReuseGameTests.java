@@ -0,0 +1,59 @@
+package com.sighs.touhou_little_maid_epistalove.gametest;
+
+import com.sighs.touhou_little_maid_epistalove.TLMEpistalove;
+import com.sighs.touhou_little_maid_epistalove.util.PathReuseCache;
+import net.minecraft.core.BlockPos;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.world.level.pathfinder.Node;
+import net.minecraft.world.level.pathfinder.Path;
+import net.minecraftforge.gametest.GameTestHolder;
+import net.minecraftforge.gametest.PrefixGameTestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 路径复用缓存的回归测试：女仆沿缓存的路径卡住后，重新规划时不能再拿到同一条路径
+ */
+@GameTestHolder(TLMEpistalove.MODID)
+@PrefixGameTestTemplate(false)
+public final class PathReuseGameTests {
+    private static final String TEMPLATE = "letter_load_arena";
+    private static final int PATH_LENGTH = 24;
+
+    private PathReuseGameTests() {
+    }
+
+    @GameTest(template = TEMPLATE)
+    public static void stuckReplanSkipsCachedPath(GameTestHelper helper) {
+        var level = helper.getLevel();
+        BlockPos start = helper.absolutePos(new BlockPos(4, 1, 4));
+        BlockPos target = start.offset(PATH_LENGTH - 1, 0, 0);
+        BlockPos otherTarget = start.offset(0, 0, PATH_LENGTH - 1);
+
+        PathReuseCache.put(level, start, target, straightPath(start, 1, 0));
+        PathReuseCache.put(level, start, otherTarget, straightPath(start, 0, 1));
+        helper.assertTrue(PathReuseCache.get(level, start, target) != null, "Path should be cached before the maid gets stuck");
+
+        // 女仆走到路径中段后卡住
+        BlockPos stuckAt = start.offset(PATH_LENGTH / 2, 0, 0);
+        PathReuseCache.evict(level, stuckAt, target);
+
+        helper.assertTrue(PathReuseCache.get(level, stuckAt, target) == null, "Stuck maid got the cached path back");
+        helper.assertTrue(PathReuseCache.get(level, start, target) == null, "Cached path survived stuck eviction");
+        helper.assertTrue(PathReuseCache.get(level, start, otherTarget) != null, "Path to another target was evicted");
+
+        PathReuseCache.evict(level, start, otherTarget);
+        helper.succeed();
+    }
+
+    private static Path straightPath(BlockPos start, int dx, int dz) {
+        List<Node> nodes = new ArrayList<>(PATH_LENGTH);
+        for (int i = 0; i < PATH_LENGTH; i++) {
+            nodes.add(new Node(start.getX() + dx * i, start.getY(), start.getZ() + dz * i));
+        }
+        Node last = nodes.get(PATH_LENGTH - 1);
+        return new Path(nodes, new BlockPos(last.x, last.y, last.z), true);
+    }
+}
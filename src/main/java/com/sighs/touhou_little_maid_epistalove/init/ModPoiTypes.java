@@ -0,0 +1,59 @@
+package com.sighs.touhou_little_maid_epistalove.init;
+
+import com.sighs.touhou_little_maid_epistalove.TLMEpistalove;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.ai.village.poi.PoiType;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.BlockStateProperties;
+import net.minecraft.world.level.block.state.properties.DoubleBlockHalf;
+import net.minecraftforge.registries.DeferredRegister;
+import net.minecraftforge.registries.ForgeRegistries;
+import net.minecraftforge.registries.RegistryObject;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public final class ModPoiTypes {
+    public static final DeferredRegister<PoiType> POI_TYPES =
+            DeferredRegister.create(ForgeRegistries.POI_TYPES, TLMEpistalove.MODID);
+
+    public static final ResourceKey<PoiType> POSTBOX_KEY =
+            ResourceKey.create(Registries.POINT_OF_INTEREST_TYPE, new ResourceLocation(TLMEpistalove.MODID, "postbox"));
+
+    /**
+     * POI 的方块状态在注册时就要确定，此时标签尚未加载，所以这里使用固定的 Contact 邮筒列表
+     * 标签 {@link ModTags#POSTBOXES} 中额外添加的方块只参与旧版扫描，不会成为 POI，
+     * 因此只有在范围内没有已登记的邮筒时才会被找到
+     */
+    private static final List<ResourceLocation> POSTBOX_BLOCKS = List.of(
+            new ResourceLocation("contact", "red_postbox"),
+            new ResourceLocation("contact", "green_postbox"));
+
+    public static final RegistryObject<PoiType> POSTBOX =
+            POI_TYPES.register(POSTBOX_KEY.location().getPath(), () -> new PoiType(collectPostboxStates(), 0, 1));
+
+    private ModPoiTypes() {
+    }
+
+    private static Set<BlockState> collectPostboxStates() {
+        Set<BlockState> states = new HashSet<>();
+        for (ResourceLocation id : POSTBOX_BLOCKS) {
+            if (!ForgeRegistries.BLOCKS.containsKey(id)) continue;
+            Block block = ForgeRegistries.BLOCKS.getValue(id);
+            if (block == null) continue;
+            for (BlockState state : block.getStateDefinition().getPossibleStates()) {
+                // 双层邮筒只登记下半部分
+                if (state.hasProperty(BlockStateProperties.DOUBLE_BLOCK_HALF)
+                        && state.getValue(BlockStateProperties.DOUBLE_BLOCK_HALF) != DoubleBlockHalf.LOWER) {
+                    continue;
+                }
+                states.add(state);
+            }
+        }
+        return Set.copyOf(states);
+    }
+}
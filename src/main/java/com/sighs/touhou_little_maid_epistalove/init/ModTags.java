@@ -0,0 +1,19 @@
+package com.sighs.touhou_little_maid_epistalove.init;
+
+import com.sighs.touhou_little_maid_epistalove.TLMEpistalove;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.BlockTags;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.level.block.Block;
+
+public final class ModTags {
+    /**
+     * 女仆可以投递信件的邮筒
+     * 该标签对 POI 查找没有任何作用：只有 Contact 的邮筒登记为 POI（见 {@link ModPoiTypes}）
+     * 标签中额外添加的方块只在开启 mailbox_legacy_scan 且范围内没有已登记的邮筒时由逐方块扫描找到，也不会补登记到 POI
+     */
+    public static final TagKey<Block> POSTBOXES = BlockTags.create(new ResourceLocation(TLMEpistalove.MODID, "postboxes"));
+
+    private ModTags() {
+    }
+}
@@ -13,7 +13,7 @@ import net.minecraft.resources.ResourceLocation;
  */
 public final class LetterGenerators {
     private static final EnhancedPromptBuilder PROMPT_BUILDER = new EnhancedPromptBuilder();
-    private static final JsonLetterParser LETTER_PARSER = new JsonLetterParser(PROMPT_BUILDER);
+    private static final JsonLetterParser LETTER_PARSER = new JsonLetterParser();
 
     private LetterGenerators() {
     }
@@ -0,0 +1,391 @@
+package com.sighs.touhou_little_maid_epistalove.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.mojang.logging.LogUtils;
+import com.sighs.touhou_little_maid_epistalove.config.Config;
+import net.minecraft.Util;
+import net.minecraft.server.MinecraftServer;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 信件生成、投递与安全评估的运行指标（计数器、当前值与耗时直方图）
+ * 所有指标都可以在任意线程上更新，读取时只保证近似一致
+ * 通过 /maidletter stats 查看，并按配置的间隔写入服务器目录下的 JSON 文件
+ */
+public final class LetterMetrics {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final String DUMP_FILE = "maidmail-metrics.json";
+
+    // 注册顺序即输出顺序
+    private static final Map<String, Metric> METRICS = new LinkedHashMap<>();
+
+    // 规则评估
+    public static final Counter RULE_EVALUATIONS = counter("rules.evaluations");
+    public static final Timer RULE_EVALUATION_TIME = timer("rules.evaluation_time");
+
+    // AI 请求
+    public static final Counter AI_REQUESTS_SUBMITTED = counter("ai.requests.submitted");
+    public static final Gauge AI_REQUESTS_QUEUED = gauge("ai.requests.queued");
+    public static final Gauge AI_REQUESTS_IN_FLIGHT = gauge("ai.requests.in_flight");
+    public static final Counter AI_REQUESTS_SHED = counter("ai.requests.shed");
+    public static final Counter AI_BATCHES = counter("ai.batches");
+    public static final Counter AI_BATCHED_LETTERS = counter("ai.batched_letters");
+    public static final Counter AI_PREGEN_REQUESTS = counter("ai.pregen.requests");
+    public static final Counter AI_PREGEN_HITS = counter("ai.pregen.hits");
+    public static final Counter AI_PREGEN_EXPIRED = counter("ai.pregen.expired");
+    public static final Counter AI_PREGEN_BACKOFFS = counter("ai.pregen.backoffs");
+    public static final Counter AI_CACHE_HITS = counter("ai.cache.hits");
+    public static final Counter AI_CACHE_FALLBACKS = counter("ai.cache.fallbacks");
+    public static final Counter AI_PROMPT_TRIMMED = counter("ai.prompt.trimmed");
+    public static final Counter AI_PROMPT_TOKENS_SAVED = counter("ai.prompt.tokens_saved");
+    public static final Timer AI_QUEUE_WAIT = timer("ai.queue_wait");
+    public static final Timer AI_LATENCY = timer("ai.latency");
+    public static final Counter AI_SUCCESSES = counter("ai.successes");
+    public static final CounterFamily AI_FAILURES = family("ai.failures", "code");
+    public static final Counter AI_TIMEOUTS = counter("ai.timeouts");
+    public static final Counter AI_RETRIES = counter("ai.retries");
+    public static final Counter AI_RULE_BACKOFFS = counter("ai.rule_backoffs");
+    public static final Gauge AI_BREAKER_OPEN_SITES = gauge("ai.breaker.open_sites");
+    public static final CounterFamily AI_BREAKER_TRIPS = family("ai.breaker.trips", "site");
+    public static final Counter AI_BREAKER_REJECTED = counter("ai.breaker.rejected");
+
+    // 回复解析
+    public static final Counter PARSE_SUCCESSES = counter("parse.successes");
+    public static final Counter PARSE_JSON_NOT_FOUND = counter("parse.json_not_found");
+    public static final Counter PARSE_ERRORS = counter("parse.errors");
+    public static final Counter PARSE_QUALITY_REJECTED = counter("parse.quality_rejected");
+    public static final Counter PARSE_DUPLICATE_REJECTED = counter("parse.duplicate_rejected");
+
+    // 邮筒查找
+    public static final Counter MAILBOX_SEARCHES = counter("mailbox.searches");
+    public static final Counter MAILBOX_SEARCH_MEMO_HITS = counter("mailbox.search_memo_hits");
+    public static final Timer MAILBOX_SEARCH_TIME = timer("mailbox.search_time");
+    public static final Counter MAILBOX_LEGACY_SCANS = counter("mailbox.legacy_scans");
+
+    // 路径规划与移动
+    public static final Counter PATH_PLANS = counter("path.plans");
+    public static final Counter PATH_ASYNC_PLANS = counter("path.async_plans");
+    public static final Timer PATH_PLAN_TIME = timer("path.plan_time");
+    public static final Counter PATH_REUSE_HITS = counter("path.reuse_hits");
+    public static final Counter FORCE_MOVE_FALLBACKS = counter("movement.force_move_fallbacks");
+
+    // 投递
+    public static final Counter DELIVERIES_MAILBOX = counter("delivery.mailbox");
+    public static final Counter DELIVERIES_HANDOVER = counter("delivery.handover");
+
+    private static long lastDumpTick = 0L;
+
+    private LetterMetrics() {
+    }
+
+    private static synchronized <T extends Metric> T register(String name, T metric) {
+        METRICS.put(name, metric);
+        return metric;
+    }
+
+    private static Counter counter(String name) {
+        return register(name, new Counter());
+    }
+
+    private static Gauge gauge(String name) {
+        return register(name, new Gauge());
+    }
+
+    private static Timer timer(String name) {
+        return register(name, new Timer());
+    }
+
+    private static CounterFamily family(String name, String label) {
+        return register(name, new CounterFamily(label));
+    }
+
+    /**
+     * 清零所有计数与直方图（当前值类指标不受影响）
+     */
+    public static synchronized void reset() {
+        METRICS.values().forEach(Metric::reset);
+    }
+
+    /**
+     * 每个指标一行，供命令输出
+     */
+    public static synchronized List<String> describe() {
+        List<String> lines = new ArrayList<>(METRICS.size());
+        METRICS.forEach((name, metric) -> lines.add(name + ": " + metric.describe()));
+        return lines;
+    }
+
+    public static synchronized JsonObject toJson() {
+        JsonObject root = new JsonObject();
+        root.addProperty("timestamp", System.currentTimeMillis());
+        METRICS.forEach((name, metric) -> root.add(name, metric.toJson()));
+        return root;
+    }
+
+    /**
+     * 服务端 tick 结束时调用，按配置的间隔把指标写入服务器目录
+     */
+    public static void onServerTick(MinecraftServer server) {
+        int interval = Config.METRICS_DUMP_INTERVAL.get();
+        if (interval <= 0) return;
+        long tick = server.getTickCount();
+        if (tick - lastDumpTick < interval * 20L) return;
+        lastDumpTick = tick;
+        dump(server);
+    }
+
+    /**
+     * 在 IO 线程上写入 JSON 文件
+     */
+    public static void dump(MinecraftServer server) {
+        String json = GSON.toJson(toJson());
+        Path target = server.getServerDirectory().toPath().resolve(DUMP_FILE);
+        Util.ioPool().execute(() -> write(target, json));
+    }
+
+    /**
+     * 服务器停止时同步写入最后一次结果
+     */
+    public static void onServerStopped(MinecraftServer server) {
+        write(server.getServerDirectory().toPath().resolve(DUMP_FILE), GSON.toJson(toJson()));
+        lastDumpTick = 0L;
+    }
+
+    /**
+     * 先写临时文件再替换，避免读取到写了一半的内容
+     */
+    private static void write(Path target, String json) {
+        try {
+            Path tmp = target.resolveSibling(DUMP_FILE + ".tmp");
+            Files.writeString(tmp, json, StandardCharsets.UTF_8);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("[MaidMail] Failed to write metrics to {}: {}", target, e.getMessage());
+        }
+    }
+
+    private interface Metric {
+        String describe();
+
+        JsonObject toJson();
+
+        void reset();
+    }
+
+    public static final class Counter implements Metric {
+        private final LongAdder value = new LongAdder();
+
+        public void inc() {
+            value.increment();
+        }
+
+        public void add(long n) {
+            value.add(n);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        public String describe() {
+            return Long.toString(get());
+        }
+
+        @Override
+        public JsonObject toJson() {
+            JsonObject obj = new JsonObject();
+            obj.addProperty("count", get());
+            return obj;
+        }
+
+        @Override
+        public void reset() {
+            value.reset();
+        }
+    }
+
+    /**
+     * 按标签分组的计数器，例如按错误码统计的失败次数
+     */
+    public static final class CounterFamily implements Metric {
+        private final String label;
+        private final ConcurrentHashMap<String, LongAdder> values = new ConcurrentHashMap<>();
+
+        private CounterFamily(String label) {
+            this.label = label;
+        }
+
+        public void inc(Object key) {
+            values.computeIfAbsent(String.valueOf(key), k -> new LongAdder()).increment();
+        }
+
+        public long total() {
+            long sum = 0L;
+            for (LongAdder adder : values.values()) {
+                sum += adder.sum();
+            }
+            return sum;
+        }
+
+        @Override
+        public String describe() {
+            StringBuilder sb = new StringBuilder().append(total());
+            if (!values.isEmpty()) {
+                sb.append(" (").append(label).append(':');
+                values.forEach((key, adder) -> sb.append(' ').append(key).append('=').append(adder.sum()));
+                sb.append(')');
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public JsonObject toJson() {
+            JsonObject obj = new JsonObject();
+            obj.addProperty("count", total());
+            JsonObject byLabel = new JsonObject();
+            values.forEach((key, adder) -> byLabel.addProperty(key, adder.sum()));
+            obj.add("by_" + label, byLabel);
+            return obj;
+        }
+
+        @Override
+        public void reset() {
+            values.clear();
+        }
+    }
+
+    public static final class Gauge implements Metric {
+        private final AtomicLong value = new AtomicLong();
+
+        public void inc() {
+            value.incrementAndGet();
+        }
+
+        public void dec() {
+            value.decrementAndGet();
+        }
+
+        public void set(long newValue) {
+            value.set(newValue);
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        @Override
+        public String describe() {
+            return Long.toString(get());
+        }
+
+        @Override
+        public JsonObject toJson() {
+            JsonObject obj = new JsonObject();
+            obj.addProperty("value", get());
+            return obj;
+        }
+
+        @Override
+        public void reset() {
+        }
+    }
+
+    /**
+     * 耗时直方图：按 2 的幂划分纳秒区间，分位数取所在区间的上界
+     */
+    public static final class Timer implements Metric {
+        private static final int BUCKETS = 48;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        public void record(long nanos) {
+            long value = Math.max(0L, nanos);
+            count.increment();
+            totalNanos.add(value);
+            maxNanos.accumulate(value);
+            int bucket = value == 0L ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+            buckets.incrementAndGet(bucket);
+        }
+
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public double meanMillis() {
+            long n = count.sum();
+            return n == 0L ? 0.0 : totalNanos.sum() / 1.0E6 / n;
+        }
+
+        public double maxMillis() {
+            return maxNanos.get() / 1.0E6;
+        }
+
+        public double percentileMillis(double q) {
+            long n = count.sum();
+            if (n == 0L) return 0.0;
+            long rank = (long) Math.ceil(q * n);
+            long seen = 0L;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(1L << i, maxNanos.get()) / 1.0E6;
+                }
+            }
+            return maxMillis();
+        }
+
+        @Override
+        public String describe() {
+            return String.format("count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+                    count(), meanMillis(), percentileMillis(0.5), percentileMillis(0.99), maxMillis());
+        }
+
+        @Override
+        public JsonObject toJson() {
+            JsonObject obj = new JsonObject();
+            obj.addProperty("count", count());
+            obj.addProperty("mean_ms", meanMillis());
+            obj.addProperty("p50_ms", percentileMillis(0.5));
+            obj.addProperty("p90_ms", percentileMillis(0.9));
+            obj.addProperty("p99_ms", percentileMillis(0.99));
+            obj.addProperty("max_ms", maxMillis());
+            return obj;
+        }
+
+        @Override
+        public void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0L);
+            }
+        }
+    }
+}
@@ -5,30 +5,53 @@ import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class TriggerManager implements ITriggerManager {
     private static final ConcurrentHashMap<UUID, Set<ResourceLocation>> PLAYER_EVENTS = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<UUID, ConcurrentHashMap<ResourceLocation, CompoundTag>> PLAYER_CONTEXTS = new ConcurrentHashMap<>();
     private static final TriggerManager INSTANCE = new TriggerManager();
     private static final String NBT_CONSUMED_KEY = "maidmail_consumed";
+    // 玩家的触发器状态发生了可能产生新信件的变化时通知，参数为玩家 UUID；可能在任意线程上调用
+    private static final List<Consumer<UUID>> CHANGE_LISTENERS = new CopyOnWriteArrayList<>();
 
     public static TriggerManager getInstance() {
         return INSTANCE;
     }
 
+    /**
+     * 订阅触发器状态变化（新的触发、一次性触发的消费记录被清除）
+     */
+    public static void addChangeListener(Consumer<UUID> listener) {
+        CHANGE_LISTENERS.add(listener);
+    }
+
+    private static void fireChanged(UUID playerId) {
+        for (Consumer<UUID> listener : CHANGE_LISTENERS) {
+            listener.accept(playerId);
+        }
+    }
+
     @Override
     public void markTriggered(ServerPlayer player, ResourceLocation triggerId) {
-        if (player == null || triggerId == null) return;
-        PLAYER_EVENTS.computeIfAbsent(player.getUUID(), u -> ConcurrentHashMap.newKeySet()).add(triggerId);
+        if (player == null) return;
+        markTriggered(player.getUUID(), triggerId);
     }
 
     @Override
     public boolean hasTriggered(ServerPlayer player, ResourceLocation triggerId) {
-        Set<ResourceLocation> set = PLAYER_EVENTS.get(player.getUUID());
-        return set != null && set.contains(triggerId);
+        return hasTriggered(player.getUUID(), triggerId);
+    }
+
+    @Override
+    public Set<ResourceLocation> getActiveTriggers(ServerPlayer player) {
+        return getActiveTriggers(player.getUUID());
     }
 
     @Override
@@ -59,17 +82,12 @@ public class TriggerManager implements ITriggerManager {
 
     @Override
     public void clearTriggered(ServerPlayer player, ResourceLocation triggerId) {
-        Set<ResourceLocation> set = PLAYER_EVENTS.get(player.getUUID());
-        if (set != null) set.remove(triggerId);
-        var ctxMap = PLAYER_CONTEXTS.get(player.getUUID());
-        if (ctxMap != null) ctxMap.remove(triggerId);
+        clearTriggered(player.getUUID(), triggerId);
     }
 
     @Override
     public void clearAllTriggered(ServerPlayer player) {
-        UUID id = player.getUUID();
-        PLAYER_EVENTS.remove(id);
-        PLAYER_CONTEXTS.remove(id);
+        clearAllTriggered(player.getUUID());
     }
 
     @Override
@@ -83,9 +101,7 @@ public class TriggerManager implements ITriggerManager {
 
     @Override
     public boolean hasConsumedOnce(ServerPlayer player, ResourceLocation triggerKey) {
-        CompoundTag root = player.getPersistentData();
-        CompoundTag consumed = root.getCompound(NBT_CONSUMED_KEY);
-        return consumed.getBoolean(triggerKey.toString());
+        return hasConsumedOnce(player.getPersistentData(), triggerKey);
     }
 
     @Override
@@ -94,5 +110,43 @@ public class TriggerManager implements ITriggerManager {
         CompoundTag consumed = root.getCompound(NBT_CONSUMED_KEY);
         consumed.remove(triggerKey.toString());
         root.put(NBT_CONSUMED_KEY, consumed);
+        fireChanged(player.getUUID());
+    }
+
+    // 以下按玩家 UUID 操作的方法不依赖 ServerPlayer 实例，供上面的接口实现与基准测试使用
+
+    public void markTriggered(UUID playerId, ResourceLocation triggerId) {
+        if (playerId == null || triggerId == null) return;
+        PLAYER_EVENTS.computeIfAbsent(playerId, u -> ConcurrentHashMap.newKeySet()).add(triggerId);
+        fireChanged(playerId);
+    }
+
+    public boolean hasTriggered(UUID playerId, ResourceLocation triggerId) {
+        Set<ResourceLocation> set = PLAYER_EVENTS.get(playerId);
+        return set != null && set.contains(triggerId);
+    }
+
+    public Set<ResourceLocation> getActiveTriggers(UUID playerId) {
+        Set<ResourceLocation> set = PLAYER_EVENTS.get(playerId);
+        return set != null ? Collections.unmodifiableSet(set) : Set.of();
+    }
+
+    public void clearTriggered(UUID playerId, ResourceLocation triggerId) {
+        Set<ResourceLocation> set = PLAYER_EVENTS.get(playerId);
+        if (set != null) set.remove(triggerId);
+        var ctxMap = PLAYER_CONTEXTS.get(playerId);
+        if (ctxMap != null) ctxMap.remove(triggerId);
+    }
+
+    public void clearAllTriggered(UUID playerId) {
+        PLAYER_EVENTS.remove(playerId);
+        PLAYER_CONTEXTS.remove(playerId);
+    }
+
+    /**
+     * 按玩家的持久化数据（{@link ServerPlayer#getPersistentData()}）查询一次性触发是否已被消费
+     */
+    public boolean hasConsumedOnce(CompoundTag persistentData, ResourceLocation triggerKey) {
+        return persistentData.getCompound(NBT_CONSUMED_KEY).getBoolean(triggerKey.toString());
     }
-}
\ No newline at end of file
+}
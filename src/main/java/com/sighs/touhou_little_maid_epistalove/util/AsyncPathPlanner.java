@@ -0,0 +1,154 @@
+package com.sighs.touhou_little_maid_epistalove.util;
+
+import com.mojang.logging.LogUtils;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.attributes.Attributes;
+import net.minecraft.world.level.pathfinder.BlockPathTypes;
+import net.minecraft.world.level.pathfinder.NodeEvaluator;
+import net.minecraft.world.level.pathfinder.PathFinder;
+import net.minecraft.world.level.pathfinder.WalkNodeEvaluator;
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步避险路径规划：在主线程复制区域快照与实体的寻路参数，
+ * 在工作线程上运行 {@link PathSafetyPlanner#planSimpleAvoidancePath} 的全部候选寻路与安全检查
+ * 每个任务使用独立的 PathFinder 与节点评估器，评估器读取的是主线程上创建的、不加入世界的同类代理实体，
+ * 工作线程不会访问真实女仆；代理按女仆复用，每次提交只在主线程上改写其位置与寻路代价
+ * 代理无法创建时退回主线程同步规划；代理仍被上一次规划占用时本次返回空结果，由调用方直接移动
+ */
+public final class AsyncPathPlanner {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    // 快照在起点与目标包围盒之外扩展的范围
+    private static final int HORIZONTAL_MARGIN = 16;
+    private static final int VERTICAL_MARGIN = 8;
+    private static final int THREADS = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 4));
+
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "MaidMail-PathPlanner-" + THREAD_ID.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 每只女仆的寻路代理，只在主线程访问；键为弱引用，女仆被回收后代理随之释放
+    private static final Map<Mob, Proxy> PROXIES = new WeakHashMap<>();
+
+    private static final class Proxy {
+        private final Mob mob;
+        // 工作线程仍在使用代理时为 true，此时主线程不能改写它
+        private final AtomicBoolean busy = new AtomicBoolean();
+
+        private Proxy(Mob mob) {
+            this.mob = mob;
+        }
+    }
+
+    private AsyncPathPlanner() {
+    }
+
+    public static void clear() {
+        PROXIES.clear();
+    }
+
+    /**
+     * 提交一次规划，必须在服务端主线程调用；结果在完成后由调用方在后续 tick 取回
+     */
+    public static CompletableFuture<PathSafetyPlanner.PlannedPath> submit(Mob mob, BlockPos target) {
+        ServerLevel level = (ServerLevel) mob.level();
+        BlockPos start = mob.blockPosition();
+        float followRange = (float) mob.getAttributeValue(Attributes.FOLLOW_RANGE);
+        // 与原版导航相同：寻路区域不超过跟随距离 + 8
+        int reach = (int) followRange + 8;
+
+        BlockPos min = new BlockPos(
+                Math.max(Math.min(start.getX(), target.getX()) - HORIZONTAL_MARGIN, start.getX() - reach),
+                Math.min(start.getY(), target.getY()) - VERTICAL_MARGIN,
+                Math.max(Math.min(start.getZ(), target.getZ()) - HORIZONTAL_MARGIN, start.getZ() - reach));
+        BlockPos max = new BlockPos(
+                Math.min(Math.max(start.getX(), target.getX()) + HORIZONTAL_MARGIN, start.getX() + reach),
+                Math.max(start.getY(), target.getY()) + VERTICAL_MARGIN,
+                Math.min(Math.max(start.getZ(), target.getZ()) + HORIZONTAL_MARGIN, start.getZ() + reach));
+
+        HazardUtil.MalusLookup malus = HazardUtil.MalusLookup.snapshot(mob);
+        Proxy existing = PROXIES.get(mob);
+        if (existing != null && existing.busy.get()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Proxy proxy = acquireProxy(mob, existing, malus);
+        if (proxy == null) {
+            LetterMetrics.PATH_PLANS.inc();
+            long planStart = System.nanoTime();
+            PathSafetyPlanner.PlannedPath planned = PathSafetyPlanner.planSimpleAvoidancePath(mob, target);
+            LetterMetrics.PATH_PLAN_TIME.recordSince(planStart);
+            return CompletableFuture.completedFuture(planned);
+        }
+
+        RegionSnapshot region = new RegionSnapshot(level, min, max);
+        NodeEvaluator navEvaluator = mob.getNavigation().getNodeEvaluator();
+        boolean canPassDoors = navEvaluator.canPassDoors();
+        boolean canOpenDoors = navEvaluator.canOpenDoors();
+        boolean canFloat = navEvaluator.canFloat();
+        int maxVisitedNodes = (int) (followRange * 16);
+
+        LetterMetrics.PATH_ASYNC_PLANS.inc();
+        return CompletableFuture.supplyAsync(() -> {
+            long planStart = System.nanoTime();
+            WalkNodeEvaluator evaluator = new WalkNodeEvaluator();
+            evaluator.setCanPassDoors(canPassDoors);
+            evaluator.setCanOpenDoors(canOpenDoors);
+            evaluator.setCanFloat(canFloat);
+            PathFinder finder = new PathFinder(evaluator, maxVisitedNodes);
+
+            PathSafetyPlanner.PlannedPath planned = PathSafetyPlanner.planSimpleAvoidancePath(region, start, target, malus,
+                    (pos, accuracy) -> finder.findPath(region, proxy.mob, Set.of(pos), followRange, accuracy, 1.0F));
+            LetterMetrics.PATH_PLAN_TIME.recordSince(planStart);
+            return planned;
+        }, EXECUTOR).whenComplete((planned, e) -> proxy.busy.set(false)).exceptionally(e -> {
+            LOGGER.error("[MaidMail][Path] Async planning failed target={}: {}", target, e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * 取得女仆的代理并标记为占用：没有代理（或女仆已换维度）时在主线程创建一个不加入世界的同类实体，
+     * 然后复制位置、碰撞箱、着地状态与寻路代价
+     */
+    @Nullable
+    private static Proxy acquireProxy(Mob mob, @Nullable Proxy proxy, HazardUtil.MalusLookup malus) {
+        if (proxy == null || proxy.mob.level() != mob.level()) {
+            try {
+                if (!(mob.getType().create(mob.level()) instanceof Mob created)) {
+                    return null;
+                }
+                proxy = new Proxy(created);
+                PROXIES.put(mob, proxy);
+            } catch (Exception e) {
+                LOGGER.debug("[MaidMail][Path] Could not create pathfinding proxy for {}: {}", mob.getType(), e.getMessage());
+                return null;
+            }
+        }
+        Mob target = proxy.mob;
+        target.moveTo(mob.getX(), mob.getY(), mob.getZ(), mob.getYRot(), mob.getXRot());
+        target.setBoundingBox(mob.getBoundingBox());
+        target.setOnGround(mob.onGround());
+        for (BlockPathTypes type : BlockPathTypes.values()) {
+            target.setPathfindingMalus(type, malus.getMalus(type));
+        }
+        proxy.busy.set(true);
+        return proxy;
+    }
+}
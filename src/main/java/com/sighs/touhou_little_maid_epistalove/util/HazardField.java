@@ -0,0 +1,142 @@
+package com.sighs.touhou_little_maid_epistalove.util;
+
+import com.sighs.touhou_little_maid_epistalove.config.Config;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.pathfinder.BlockPathTypes;
+
+/**
+ * 局部危险场：一次性计算一个小范围内所有位置的路径类型与危险权重，
+ * 并建立三维前缀和表，使区域危险评分的查询变为常数时间
+ * 评分公式与 {@link HazardUtil#calculateHazardScore} 完全一致，查询超出范围时回退到逐格计算
+ * 只在单次决策内使用，不跨 tick 保存
+ */
+public final class HazardField {
+    private static final BlockPathTypes[] TYPES = BlockPathTypes.values();
+
+    private final BlockGetter level;
+    private final int minX, minY, minZ;
+    private final int sizeX, sizeY, sizeZ;
+    private final byte[] types;
+    // 前缀和表，每个维度比网格多一格，sums[i][j][k] 为 [0,i)×[0,j)×[0,k) 的权重和
+    private final int[] sums;
+
+    private HazardField(BlockGetter level, int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ) {
+        this.level = level;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.types = new byte[sizeX * sizeY * sizeZ];
+        this.sums = new int[(sizeX + 1) * (sizeY + 1) * (sizeZ + 1)];
+    }
+
+    /**
+     * 以 center 为中心建立危险场，水平半径 horizontal，垂直范围 [-below, +above]
+     */
+    public static HazardField around(BlockGetter level, BlockPos center, int horizontal, int below, int above) {
+        HazardField field = new HazardField(level,
+                center.getX() - horizontal, center.getY() - below, center.getZ() - horizontal,
+                horizontal * 2 + 1, below + above + 1, horizontal * 2 + 1);
+        field.fill();
+        return field;
+    }
+
+    private void fill() {
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        for (int x = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++) {
+                for (int z = 0; z < sizeZ; z++) {
+                    pos.set(minX + x, minY + y, minZ + z);
+                    BlockPathTypes type = HazardUtil.getBlockPathType(level, pos);
+                    types[cell(x, y, z)] = (byte) type.ordinal();
+
+                    int weight = HazardUtil.hazardWeight(type);
+                    sums[sum(x + 1, y + 1, z + 1)] = weight
+                            + sums[sum(x, y + 1, z + 1)] + sums[sum(x + 1, y, z + 1)] + sums[sum(x + 1, y + 1, z)]
+                            - sums[sum(x, y, z + 1)] - sums[sum(x, y + 1, z)] - sums[sum(x + 1, y, z)]
+                            + sums[sum(x, y, z)];
+                }
+            }
+        }
+    }
+
+    public BlockPathTypes getBlockPathType(BlockPos pos) {
+        int x = pos.getX() - minX, y = pos.getY() - minY, z = pos.getZ() - minZ;
+        if (!inside(x, y, z)) {
+            return HazardUtil.getBlockPathType(level, pos);
+        }
+        return TYPES[types[cell(x, y, z)]];
+    }
+
+    /**
+     * 与 {@link HazardUtil#calculateHazardScore} 相同的区域危险评分（0-100）
+     */
+    public int calculateHazardScore(BlockPos center, int radius) {
+        int r = Math.max(0, Math.min(radius, 3));
+        int x0 = center.getX() - r - minX, x1 = center.getX() + r - minX;
+        int y0 = center.getY() - 1 - minY, y1 = center.getY() + 1 - minY;
+        int z0 = center.getZ() - r - minZ, z1 = center.getZ() + r - minZ;
+        if (!inside(x0, y0, z0) || !inside(x1, y1, z1)) {
+            return HazardUtil.calculateHazardScore(level, center, radius);
+        }
+
+        int hazardCount = sums[sum(x1 + 1, y1 + 1, z1 + 1)]
+                - sums[sum(x0, y1 + 1, z1 + 1)] - sums[sum(x1 + 1, y0, z1 + 1)] - sums[sum(x1 + 1, y1 + 1, z0)]
+                + sums[sum(x0, y0, z1 + 1)] + sums[sum(x0, y1 + 1, z0)] + sums[sum(x1 + 1, y0, z0)]
+                - sums[sum(x0, y0, z0)];
+        int totalChecked = (2 * r + 1) * 3 * (2 * r + 1);
+        return Math.min(100, (hazardCount * 100) / (totalChecked * 3));
+    }
+
+    /**
+     * 与 {@link HazardUtil#isSafeStanding} 相同的站立检查
+     */
+    public boolean isSafeStanding(BlockPos pos) {
+        BlockPathTypes feetType = getBlockPathType(pos);
+        if (feetType != BlockPathTypes.OPEN && feetType != BlockPathTypes.WALKABLE) {
+            return false;
+        }
+
+        BlockPathTypes headType = getBlockPathType(pos.above());
+        if (headType != BlockPathTypes.OPEN && !HazardUtil.isSafeDoubleBlock(level, pos.above())) {
+            return false;
+        }
+
+        BlockPathTypes groundType = getBlockPathType(pos.below());
+        if (groundType == BlockPathTypes.OPEN || HazardUtil.isPathTypeDangerous(groundType)) {
+            return false;
+        }
+
+        return calculateHazardScore(pos, 1) <= Config.AREA_HAZARD_THRESHOLD.get();
+    }
+
+    /**
+     * 与 {@link HazardUtil#isCompletelyTrapped} 相同的包围检查
+     */
+    public boolean isCompletelyTrapped(BlockPos pos) {
+        BlockPos[] directions = {pos.north(), pos.south(), pos.east(), pos.west()};
+        int blockedDirections = 0;
+        for (BlockPos dir : directions) {
+            BlockPathTypes pathType = getBlockPathType(dir);
+            if (pathType == BlockPathTypes.BLOCKED || HazardUtil.isPathTypeDangerous(pathType)) {
+                blockedDirections++;
+            }
+        }
+        return blockedDirections >= 4;
+    }
+
+    private boolean inside(int x, int y, int z) {
+        return x >= 0 && y >= 0 && z >= 0 && x < sizeX && y < sizeY && z < sizeZ;
+    }
+
+    private int cell(int x, int y, int z) {
+        return (x * sizeY + y) * sizeZ + z;
+    }
+
+    private int sum(int x, int y, int z) {
+        return (x * (sizeY + 1) + y) * (sizeZ + 1) + z;
+    }
+}
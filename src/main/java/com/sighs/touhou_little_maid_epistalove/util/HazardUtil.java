@@ -1,6 +1,7 @@
 package com.sighs.touhou_little_maid_epistalove.util;
 
 import com.sighs.touhou_little_maid_epistalove.config.Config;
+import com.sighs.touhou_little_maid_epistalove.init.ModTags;
 import net.minecraft.core.BlockPos;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.Mob;
@@ -9,13 +10,34 @@ import net.minecraft.world.level.pathfinder.BlockPathTypes;
 import net.minecraft.world.level.pathfinder.WalkNodeEvaluator;
 
 public final class HazardUtil {
+    private static final BlockPathTypes[] TYPES = BlockPathTypes.values();
+
     private HazardUtil() {
     }
 
+    /**
+     * 寻路代价查询，用于在没有实体（或不能在当前线程访问实体）时进行站立与路径检查
+     */
+    @FunctionalInterface
+    public interface MalusLookup {
+        float getMalus(BlockPathTypes pathType);
+
+        /**
+         * 复制实体当前的全部寻路代价，供其它线程使用
+         */
+        static MalusLookup snapshot(Mob mob) {
+            float[] maluses = new float[TYPES.length];
+            for (BlockPathTypes type : TYPES) {
+                maluses[type.ordinal()] = mob.getPathfindingMalus(type);
+            }
+            return pathType -> maluses[pathType.ordinal()];
+        }
+    }
+
     /**
      * 使用原版路径类型系统检查位置是否危险
      */
-    public static boolean isPosHazardous(ServerLevel level, BlockPos pos) {
+    public static boolean isPosHazardous(BlockGetter level, BlockPos pos) {
         if (level == null || pos == null) return false;
 
         BlockPathTypes pathType = getBlockPathType(level, pos);
@@ -24,8 +46,12 @@ public final class HazardUtil {
 
     /**
      * 获取指定位置的路径类型（基于原版逻辑）
+     * 服务端世界的查询会经过按 tick 的缓存（见 {@link PathTypeCache}）
      */
     public static BlockPathTypes getBlockPathType(BlockGetter level, BlockPos pos) {
+        if (level instanceof ServerLevel serverLevel) {
+            return PathTypeCache.getBlockPathType(serverLevel, pos);
+        }
         return WalkNodeEvaluator.getBlockPathTypeStatic(level, pos.mutable());
     }
 
@@ -43,7 +69,15 @@ public final class HazardUtil {
     /**
      * 检查位置是否适合站立（更严格的检查）
      */
-    public static boolean isSafeForStanding(ServerLevel level, BlockPos pos, Mob mob) {
+    public static boolean isSafeForStanding(BlockGetter level, BlockPos pos, Mob mob) {
+        MalusLookup malus = mob != null ? mob::getPathfindingMalus : null;
+        return isSafeForStanding(level, pos, malus);
+    }
+
+    /**
+     * 同 {@link #isSafeForStanding(BlockGetter, BlockPos, Mob)}，寻路代价由 malus 提供（为 null 时不检查）
+     */
+    public static boolean isSafeForStanding(BlockGetter level, BlockPos pos, MalusLookup malus) {
         if (level == null || pos == null) return false;
 
         // 检查脚部位置
@@ -68,11 +102,8 @@ public final class HazardUtil {
         }
 
         // 检查周围是否有危险
-        if (mob != null) {
-            float malus = mob.getPathfindingMalus(feetType);
-            if (malus < 0.0F) {
-                return false;
-            }
+        if (malus != null && malus.getMalus(feetType) < 0.0F) {
+            return false;
         }
 
         return !isAreaTooHazardous(level, pos, 1);
@@ -81,24 +112,15 @@ public final class HazardUtil {
     /**
      * 检查是否是安全的双层方块（如邮筒）
      */
-    private static boolean isSafeDoubleBlock(ServerLevel level, BlockPos pos) {
-        var state = level.getBlockState(pos);
-        var block = state.getBlock();
-
-        var blockId = net.minecraftforge.registries.ForgeRegistries.BLOCKS.getKey(block);
-        if (blockId != null && "contact".equals(blockId.getNamespace())) {
-            String path = blockId.getPath();
-            return "red_postbox".equals(path) || "green_postbox".equals(path);
-        }
-
-        return false;
+    static boolean isSafeDoubleBlock(BlockGetter level, BlockPos pos) {
+        return level.getBlockState(pos).is(ModTags.POSTBOXES);
     }
 
     /**
      * 计算区域危险评分（0-100，越高越危险）
      * 使用加权系统：直接伤害>可能伤害>邻接危险>通行性差
      */
-    public static int calculateHazardScore(ServerLevel level, BlockPos center, int radius) {
+    public static int calculateHazardScore(BlockGetter level, BlockPos center, int radius) {
         if (level == null || center == null) return 100;
         int hazardCount = 0;
         int totalChecked = 0;
@@ -110,32 +132,37 @@ public final class HazardUtil {
                     BlockPos check = center.offset(dx, dy, dz);
                     totalChecked++;
 
-                    BlockPathTypes pathType = getBlockPathType(level, check);
-                    int weight = switch (pathType) {
-                        case LAVA, DAMAGE_FIRE -> 3;
-                        case DAMAGE_OTHER, DAMAGE_CAUTIOUS -> 2;
-                        case DANGER_FIRE, DANGER_OTHER, DANGER_POWDER_SNOW -> 1;
-                        case BLOCKED, FENCE, UNPASSABLE_RAIL -> 1;
-                        default -> 0;
-                    };
-                    hazardCount += weight;
+                    hazardCount += hazardWeight(getBlockPathType(level, check));
                 }
             }
         }
         return totalChecked > 0 ? Math.min(100, (hazardCount * 100) / (totalChecked * 3)) : 0;
     }
 
+    /**
+     * 单个位置的危险权重（0-3）
+     */
+    static int hazardWeight(BlockPathTypes pathType) {
+        return switch (pathType) {
+            case LAVA, DAMAGE_FIRE -> 3;
+            case DAMAGE_OTHER, DAMAGE_CAUTIOUS -> 2;
+            case DANGER_FIRE, DANGER_OTHER, DANGER_POWDER_SNOW -> 1;
+            case BLOCKED, FENCE, UNPASSABLE_RAIL -> 1;
+            default -> 0;
+        };
+    }
+
     /**
      * 检查位置是否适合安全站立
      */
-    public static boolean isSafeStanding(ServerLevel level, BlockPos pos) {
-        return isSafeForStanding(level, pos, null);
+    public static boolean isSafeStanding(BlockGetter level, BlockPos pos) {
+        return isSafeForStanding(level, pos, (MalusLookup) null);
     }
 
     /**
      * 检查区域是否过于危险
      */
-    public static boolean isAreaTooHazardous(ServerLevel level, BlockPos center, int radius) {
+    public static boolean isAreaTooHazardous(BlockGetter level, BlockPos center, int radius) {
         int hazardScore = calculateHazardScore(level, center, radius);
         return hazardScore > Config.AREA_HAZARD_THRESHOLD.get();
     }
@@ -143,7 +170,7 @@ public final class HazardUtil {
     /**
      * 检查位置是否被完全包围
      */
-    public static boolean isCompletelyTrapped(ServerLevel level, BlockPos pos) {
+    public static boolean isCompletelyTrapped(BlockGetter level, BlockPos pos) {
         BlockPos[] directions = {
                 pos.north(), pos.south(), pos.east(), pos.west()
         };
@@ -163,19 +190,21 @@ public final class HazardUtil {
     /**
      * 获取最安全的相邻位置
      */
-    public static BlockPos findSafestNearbyPosition(ServerLevel level, BlockPos center, int searchRadius) {
+    public static BlockPos findSafestNearbyPosition(BlockGetter level, BlockPos center, int searchRadius) {
         BlockPos bestPos = null;
         int bestScore = Integer.MAX_VALUE;
 
         int r = Math.min(searchRadius, 5);
+        // 候选点 ±1 层，站立检查再向上下各看一格，危险评分向外扩一格
+        HazardField field = HazardField.around(level, center, r + 1, 2, 2);
         for (int dx = -r; dx <= r; dx++) {
             for (int dy = -1; dy <= 1; dy++) {
                 for (int dz = -r; dz <= r; dz++) {
                     if (dx == 0 && dy == 0 && dz == 0) continue;
 
                     BlockPos candidate = center.offset(dx, dy, dz);
-                    if (isSafeStanding(level, candidate)) {
-                        int score = calculateHazardScore(level, candidate, 1);
+                    if (field.isSafeStanding(candidate)) {
+                        int score = field.calculateHazardScore(candidate, 1);
                         if (score < bestScore) {
                             bestScore = score;
                             bestPos = candidate;
@@ -187,4 +216,4 @@ public final class HazardUtil {
 
         return bestPos;
     }
-}
\ No newline at end of file
+}
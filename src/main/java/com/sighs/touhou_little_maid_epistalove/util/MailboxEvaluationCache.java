@@ -0,0 +1,151 @@
+package com.sighs.touhou_little_maid_epistalove.util;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.pathfinder.BlockPathTypes;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 邮筒评估缓存（按维度，所有女仆共享）
+ * 只缓存与女仆位置无关的结果：安全分数、站立可达性与路径类型
+ * 邮筒附近的方块变化会使条目失效，另有过期时间兜底
+ * 同一 tick 内相同中心与半径的完整查询结果也会被复用
+ * 仅在服务端主线程访问
+ */
+public final class MailboxEvaluationCache {
+    // 安全评分会读取邮筒周围的方块：站立点半径 2，再加站立检查与路径类型各自的 1 格邻域
+    public static final int INVALIDATION_RADIUS = 4;
+    private static final long ENTRY_TTL = 600;
+
+    private static final Map<ResourceKey<Level>, MailboxEvaluationCache> CACHES = new HashMap<>();
+
+    public record Evaluation(int safetyScore, boolean standingAccess, BlockPathTypes pathType, long evaluatedAt) {
+    }
+
+    private record SearchKey(long center, int radius) {
+    }
+
+    private final Long2ObjectOpenHashMap<Evaluation> entries = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<LongOpenHashSet> byChunk = new Long2ObjectOpenHashMap<>();
+    private final Map<SearchKey, List<MailboxSafetyEvaluator.MailboxInfo>> searchResults = new HashMap<>();
+    private long searchTick = Long.MIN_VALUE;
+    private long lastSweep = 0;
+
+    private MailboxEvaluationCache() {
+    }
+
+    public static MailboxEvaluationCache of(ServerLevel level) {
+        return CACHES.computeIfAbsent(level.dimension(), k -> new MailboxEvaluationCache());
+    }
+
+    public Evaluation getOrEvaluate(BlockPos pos, long gameTime, Function<BlockPos, Evaluation> evaluator) {
+        sweepExpired(gameTime);
+
+        long key = pos.asLong();
+        Evaluation cached = entries.get(key);
+        if (cached != null && gameTime - cached.evaluatedAt() < ENTRY_TTL) {
+            return cached;
+        }
+
+        Evaluation evaluation = evaluator.apply(pos);
+        entries.put(key, evaluation);
+        byChunk.computeIfAbsent(ChunkPos.asLong(pos), k -> new LongOpenHashSet()).add(key);
+        return evaluation;
+    }
+
+    @Nullable
+    public List<MailboxSafetyEvaluator.MailboxInfo> getSearchResult(BlockPos center, int radius, long gameTime) {
+        if (gameTime != searchTick) return null;
+        return searchResults.get(new SearchKey(center.asLong(), radius));
+    }
+
+    public void putSearchResult(BlockPos center, int radius, long gameTime,
+                                List<MailboxSafetyEvaluator.MailboxInfo> result) {
+        if (gameTime != searchTick) {
+            searchResults.clear();
+            searchTick = gameTime;
+        }
+        searchResults.put(new SearchKey(center.asLong(), radius), result);
+    }
+
+    /**
+     * 方块变化：移除评估范围覆盖该位置的邮筒条目
+     */
+    public static void onBlockChanged(ServerLevel level, BlockPos pos) {
+        MailboxEvaluationCache cache = CACHES.get(level.dimension());
+        if (cache != null) {
+            cache.invalidateAround(pos);
+        }
+    }
+
+    public static void clear(ResourceKey<Level> dimension) {
+        CACHES.remove(dimension);
+    }
+
+    public static void clearAll() {
+        CACHES.clear();
+    }
+
+    private void invalidateAround(BlockPos pos) {
+        searchResults.clear();
+        if (entries.isEmpty()) return;
+
+        int minChunkX = SectionPos.blockToSectionCoord(pos.getX() - INVALIDATION_RADIUS);
+        int maxChunkX = SectionPos.blockToSectionCoord(pos.getX() + INVALIDATION_RADIUS);
+        int minChunkZ = SectionPos.blockToSectionCoord(pos.getZ() - INVALIDATION_RADIUS);
+        int maxChunkZ = SectionPos.blockToSectionCoord(pos.getZ() + INVALIDATION_RADIUS);
+
+        for (int cx = minChunkX; cx <= maxChunkX; cx++) {
+            for (int cz = minChunkZ; cz <= maxChunkZ; cz++) {
+                long chunkKey = ChunkPos.asLong(cx, cz);
+                LongOpenHashSet positions = byChunk.get(chunkKey);
+                if (positions == null) continue;
+
+                LongIterator it = positions.iterator();
+                while (it.hasNext()) {
+                    long key = it.nextLong();
+                    if (Math.abs(BlockPos.getX(key) - pos.getX()) <= INVALIDATION_RADIUS
+                            && Math.abs(BlockPos.getY(key) - pos.getY()) <= INVALIDATION_RADIUS
+                            && Math.abs(BlockPos.getZ(key) - pos.getZ()) <= INVALIDATION_RADIUS) {
+                        entries.remove(key);
+                        it.remove();
+                    }
+                }
+                if (positions.isEmpty()) {
+                    byChunk.remove(chunkKey);
+                }
+            }
+        }
+    }
+
+    private void sweepExpired(long gameTime) {
+        if (gameTime - lastSweep < ENTRY_TTL) return;
+        lastSweep = gameTime;
+
+        var it = entries.long2ObjectEntrySet().fastIterator();
+        while (it.hasNext()) {
+            Long2ObjectMap.Entry<Evaluation> entry = it.next();
+            if (gameTime - entry.getValue().evaluatedAt() < ENTRY_TTL) continue;
+            long key = entry.getLongKey();
+            it.remove();
+            long chunkKey = ChunkPos.asLong(BlockPos.getX(key) >> 4, BlockPos.getZ(key) >> 4);
+            LongOpenHashSet positions = byChunk.get(chunkKey);
+            if (positions != null && positions.remove(key) && positions.isEmpty()) {
+                byChunk.remove(chunkKey);
+            }
+        }
+    }
+}
@@ -2,22 +2,42 @@ package com.sighs.touhou_little_maid_epistalove.util;
 
 import com.mojang.logging.LogUtils;
 import com.sighs.touhou_little_maid_epistalove.config.Config;
+import com.sighs.touhou_little_maid_epistalove.init.ModPoiTypes;
+import com.sighs.touhou_little_maid_epistalove.init.ModTags;
+import com.sighs.touhou_little_maid_epistalove.metrics.LetterMetrics;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
 import net.minecraft.core.BlockPos;
-import net.minecraft.resources.ResourceLocation;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.ai.village.poi.PoiManager;
+import net.minecraft.world.entity.ai.village.poi.PoiRecord;
+import net.minecraft.world.entity.ai.village.poi.PoiTypes;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.properties.BlockStateProperties;
 import net.minecraft.world.level.block.state.properties.DoubleBlockHalf;
 import net.minecraft.world.level.pathfinder.BlockPathTypes;
-import net.minecraftforge.registries.ForgeRegistries;
 import org.slf4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public final class MailboxSafetyEvaluator {
     private static final Logger LOGGER = LogUtils.getLogger();
+    // 安全度优先，然后距离近的优先
+    private static final Comparator<MailboxInfo> ORDER = Comparator
+            .comparingInt((MailboxInfo m) -> -m.safetyScore)
+            .thenComparingDouble(MailboxInfo::distance);
+    private static final int LEGACY_SCAN_RADIUS = 32;
+    private static final long LEGACY_SCAN_INTERVAL = 1200;
+    private static final Map<ResourceKey<Level>, Long2LongOpenHashMap> LEGACY_SCANS = new HashMap<>();
 
     private MailboxSafetyEvaluator() {
     }
@@ -42,38 +62,142 @@ public final class MailboxSafetyEvaluator {
     }
 
     public static List<MailboxInfo> evaluateMailboxes(ServerLevel level, BlockPos center, int searchRadius) {
-        List<MailboxInfo> mailboxes = new ArrayList<>();
         int r = Math.max(1, Math.min(searchRadius, Config.MAILBOX_SEARCH_RADIUS.get()));
+        long gameTime = level.getGameTime();
+        MailboxEvaluationCache cache = MailboxEvaluationCache.of(level);
+
+        LetterMetrics.MAILBOX_SEARCHES.inc();
+        List<MailboxInfo> memo = cache.getSearchResult(center, r, gameTime);
+        if (memo != null) {
+            LetterMetrics.MAILBOX_SEARCH_MEMO_HITS.inc();
+            return memo;
+        }
+
+        long searchStart = System.nanoTime();
+        List<MailboxInfo> mailboxes = new ArrayList<>();
+        for (BlockPos pos : findMailboxes(level, center, r)) {
+            var evaluation = cache.getOrEvaluate(pos, gameTime, p -> evaluateMailbox(level, p, gameTime));
+            mailboxes.add(toInfo(center, pos, evaluation));
+        }
+        mailboxes.sort(ORDER);
+
+        List<MailboxInfo> result = List.copyOf(mailboxes);
+        cache.putSearchResult(center, r, gameTime, result);
+        LetterMetrics.MAILBOX_SEARCH_TIME.recordSince(searchStart);
+        return result;
+    }
+
+    /**
+     * 评估已知位置的邮筒，不经过 POI 查找与缓存，结果按安全度与距离排序
+     */
+    public static List<MailboxInfo> evaluateMailboxesAt(BlockGetter level, BlockPos center, Collection<BlockPos> positions) {
+        List<MailboxInfo> mailboxes = new ArrayList<>(positions.size());
+        for (BlockPos pos : positions) {
+            mailboxes.add(toInfo(center, pos, evaluateMailbox(level, pos, 0L)));
+        }
+        mailboxes.sort(ORDER);
+        return mailboxes;
+    }
+
+    private static MailboxInfo toInfo(BlockPos center, BlockPos pos, MailboxEvaluationCache.Evaluation evaluation) {
+        double dist = center.distSqr(pos);
+        boolean accessible = dist <= PathSafetyPlanner.MAX_ACCESS_DISTANCE_SQR && evaluation.standingAccess();
+        return new MailboxInfo(pos, evaluation.safetyScore(), dist, accessible, evaluation.pathType());
+    }
+
+    /**
+     * 计算与女仆位置无关的邮筒评估结果
+     */
+    private static MailboxEvaluationCache.Evaluation evaluateMailbox(BlockGetter level, BlockPos pos, long gameTime) {
+        return new MailboxEvaluationCache.Evaluation(
+                calculateMailboxSafety(level, pos),
+                PathSafetyPlanner.hasStandingAccess(level, pos),
+                HazardUtil.getBlockPathType(level, pos),
+                gameTime);
+    }
+
+    /**
+     * 通过 POI 索引查找范围内（水平 r 格、垂直 2 格）的邮筒
+     * 先确保范围内区段的 POI 数据已加载并与方块一致，与原版村民查找 POI 的做法相同
+     * 索引为空时回退到逐方块扫描，并把找到的邮筒补登记到 POI 中
+     */
+    private static List<BlockPos> findMailboxes(ServerLevel level, BlockPos center, int r) {
+        PoiManager poiManager = level.getPoiManager();
+        poiManager.ensureLoadedAndValid(level, center, r);
+        List<BlockPos> found = poiManager
+                .getInSquare(holder -> holder.is(ModPoiTypes.POSTBOX_KEY), center, r, PoiManager.Occupancy.ANY)
+                .map(PoiRecord::getPos)
+                .filter(pos -> Math.abs(pos.getY() - center.getY()) <= 2
+                        && Math.abs(pos.getX() - center.getX()) <= r
+                        && Math.abs(pos.getZ() - center.getZ()) <= r)
+                .filter(pos -> level.isLoaded(pos) && isMailbox(level, pos))
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        if (found.isEmpty() && Config.MAILBOX_LEGACY_SCAN.get()) {
+            found = scanAndBackfill(level, center, Math.min(r, LEGACY_SCAN_RADIUS));
+        }
+        return found;
+    }
+
+    /**
+     * 旧存档中的邮筒在区块的 POI 数据建立之后才放置（例如安装本模组之前），不会被索引
+     * 同一区段在一段时间内只扫描一次，避免在没有邮筒的区域反复全量扫描
+     */
+    private static List<BlockPos> scanAndBackfill(ServerLevel level, BlockPos center, int r) {
+        long gameTime = level.getGameTime();
+        long sectionKey = SectionPos.asLong(center);
+        Long2LongOpenHashMap scans = LEGACY_SCANS.computeIfAbsent(level.dimension(), k -> new Long2LongOpenHashMap());
+        long lastScan = scans.getOrDefault(sectionKey, Long.MIN_VALUE);
+        if (lastScan != Long.MIN_VALUE && gameTime - lastScan < LEGACY_SCAN_INTERVAL) {
+            return List.of();
+        }
+        scans.put(sectionKey, gameTime);
+        LetterMetrics.MAILBOX_LEGACY_SCANS.inc();
+        if (scans.size() > 4096) {
+            scans.long2LongEntrySet().removeIf(e -> gameTime - e.getLongValue() >= LEGACY_SCAN_INTERVAL);
+        }
+
+        PoiManager poiManager = level.getPoiManager();
+        List<BlockPos> found = scanMailboxes(level, center, r);
+        for (BlockPos pos : found) {
+            PoiTypes.forState(level.getBlockState(pos))
+                    .filter(holder -> holder.is(ModPoiTypes.POSTBOX_KEY))
+                    .ifPresent(holder -> {
+                        if (!poiManager.existsAtPosition(ModPoiTypes.POSTBOX_KEY, pos)) {
+                            poiManager.add(pos, holder);
+                            LOGGER.debug("[MaidMail] Registered legacy postbox POI at {}", pos);
+                        }
+                    });
+        }
+        return found;
+    }
 
+    /**
+     * 逐方块查找范围内（水平 r 格、垂直 2 格）的邮筒，双层邮筒只返回下半部分
+     */
+    public static List<BlockPos> scanMailboxes(BlockGetter level, BlockPos center, int r) {
+        List<BlockPos> found = new ArrayList<>();
         for (BlockPos pos : BlockPos.betweenClosed(
                 center.offset(-r, -2, -r),
                 center.offset(r, 2, r))) {
             if (isMailbox(level, pos)) {
-                BlockPos immutable = pos.immutable();
-                int safety = calculateMailboxSafety(level, immutable);
-                double dist = center.distSqr(immutable);
-                boolean accessible = PathSafetyPlanner.isPositionAccessible(level, center, immutable);
-                BlockPathTypes pathType = HazardUtil.getBlockPathType(level, immutable);
-
-                mailboxes.add(new MailboxInfo(immutable, safety, dist, accessible, pathType));
+                found.add(pos.immutable());
             }
         }
+        return found;
+    }
 
-        mailboxes.sort(Comparator
-                .comparingInt((MailboxInfo m) -> -m.safetyScore)
-                .thenComparingDouble(MailboxInfo::distance));
-        return mailboxes;
+    public static void clear(ResourceKey<Level> dimension) {
+        LEGACY_SCANS.remove(dimension);
     }
 
-    private static boolean isMailbox(ServerLevel level, BlockPos pos) {
-        var state = level.getBlockState(pos);
-        ResourceLocation id = ForgeRegistries.BLOCKS.getKey(state.getBlock());
-        if (id == null) return false;
-        if (!"contact".equals(id.getNamespace())) return false;
+    public static void clearAll() {
+        LEGACY_SCANS.clear();
+    }
 
-        String path = id.getPath();
-        boolean isPostbox = "red_postbox".equals(path) || "green_postbox".equals(path);
-        if (!isPostbox) return false;
+    private static boolean isMailbox(BlockGetter level, BlockPos pos) {
+        var state = level.getBlockState(pos);
+        if (!state.is(ModTags.POSTBOXES)) return false;
 
         if (state.hasProperty(BlockStateProperties.DOUBLE_BLOCK_HALF)) {
             return state.getValue(BlockStateProperties.DOUBLE_BLOCK_HALF) == DoubleBlockHalf.LOWER;
@@ -81,17 +205,19 @@ public final class MailboxSafetyEvaluator {
         return true;
     }
 
-    private static int calculateMailboxSafety(ServerLevel level, BlockPos mailboxPos) {
-        BlockPathTypes mailboxPathType = HazardUtil.getBlockPathType(level, mailboxPos);
+    private static int calculateMailboxSafety(BlockGetter level, BlockPos mailboxPos) {
+        // 覆盖周围站立点（半径 2）及其危险评分（再外扩 1 格）、邮筒上半部分与头顶
+        HazardField field = HazardField.around(level, mailboxPos, 3, 1, 2);
+        BlockPathTypes mailboxPathType = field.getBlockPathType(mailboxPos);
         if (mailboxPathType == BlockPathTypes.LAVA || mailboxPathType == BlockPathTypes.DAMAGE_FIRE) {
             return 0;
         }
 
-        if (!hasValidAccessPoints(level, mailboxPos)) {
+        if (!hasValidAccessPoints(field, level, mailboxPos)) {
             return 0;
         }
 
-        if (HazardUtil.isCompletelyTrapped(level, mailboxPos)) {
+        if (field.isCompletelyTrapped(mailboxPos)) {
             return 0;
         }
 
@@ -101,24 +227,24 @@ public final class MailboxSafetyEvaluator {
             score -= 10;
         }
 
-        int safeAccessPoints = countSafeAccessPoints(level, mailboxPos);
+        int safeAccessPoints = countSafeAccessPoints(field, level, mailboxPos);
         score += safeAccessPoints * 12;
 
-        int areaHazardScore = HazardUtil.calculateHazardScore(level, mailboxPos, 2);
+        int areaHazardScore = field.calculateHazardScore(mailboxPos, 2);
         int areaSafetyBonus = Math.max(0, (100 - areaHazardScore) / 3);
         score += areaSafetyBonus;
 
-        BlockPathTypes aboveType = HazardUtil.getBlockPathType(level, mailboxPos.above());
+        BlockPathTypes aboveType = field.getBlockPathType(mailboxPos.above());
         if (HazardUtil.isPathTypeDangerous(aboveType)) {
             score -= 20;
         }
 
-        BlockPathTypes belowType = HazardUtil.getBlockPathType(level, mailboxPos.below());
+        BlockPathTypes belowType = field.getBlockPathType(mailboxPos.below());
         if (HazardUtil.isPathTypeDangerous(belowType)) {
             score -= 15;
         }
 
-        int goodStandingSpots = countGoodStandingSpots(level, mailboxPos, 2);
+        int goodStandingSpots = countGoodStandingSpots(field, mailboxPos, 2);
         score += goodStandingSpots * 3;
 
         return Math.max(0, Math.min(100, score));
@@ -127,15 +253,15 @@ public final class MailboxSafetyEvaluator {
     /**
      * 检查邮筒是否有有效的接近点（处理双层方块特殊情况）
      */
-    private static boolean hasValidAccessPoints(ServerLevel level, BlockPos mailboxPos) {
+    private static boolean hasValidAccessPoints(HazardField field, BlockGetter level, BlockPos mailboxPos) {
         BlockPos[] directions = {mailboxPos.north(), mailboxPos.south(), mailboxPos.east(), mailboxPos.west()};
         for (BlockPos pos : directions) {
-            if (HazardUtil.isSafeStanding(level, pos)) {
+            if (field.isSafeStanding(pos)) {
                 return true;
             }
         }
 
-        if (HazardUtil.isSafeStanding(level, mailboxPos)) {
+        if (field.isSafeStanding(mailboxPos)) {
             return true;
         }
 
@@ -146,7 +272,7 @@ public final class MailboxSafetyEvaluator {
                 BlockPos upperPos = mailboxPos.above();
                 BlockPos[] upperDirections = {upperPos.north(), upperPos.south(), upperPos.east(), upperPos.west()};
                 for (BlockPos pos : upperDirections) {
-                    if (HazardUtil.isSafeStanding(level, pos)) {
+                    if (field.isSafeStanding(pos)) {
                         return true;
                     }
                 }
@@ -156,16 +282,16 @@ public final class MailboxSafetyEvaluator {
         return false;
     }
 
-    private static int countSafeAccessPoints(ServerLevel level, BlockPos mailboxPos) {
+    private static int countSafeAccessPoints(HazardField field, BlockGetter level, BlockPos mailboxPos) {
         BlockPos[] directions = {mailboxPos.north(), mailboxPos.south(), mailboxPos.east(), mailboxPos.west()};
         int count = 0;
         for (BlockPos pos : directions) {
-            if (HazardUtil.isSafeStanding(level, pos)) {
+            if (field.isSafeStanding(pos)) {
                 count++;
             }
         }
 
-        if (HazardUtil.isSafeStanding(level, mailboxPos)) {
+        if (field.isSafeStanding(mailboxPos)) {
             count++;
         }
 
@@ -176,7 +302,7 @@ public final class MailboxSafetyEvaluator {
                 BlockPos upperPos = mailboxPos.above();
                 BlockPos[] upperDirections = {upperPos.north(), upperPos.south(), upperPos.east(), upperPos.west()};
                 for (BlockPos pos : upperDirections) {
-                    if (HazardUtil.isSafeStanding(level, pos)) {
+                    if (field.isSafeStanding(pos)) {
                         count++;
                     }
                 }
@@ -186,15 +312,15 @@ public final class MailboxSafetyEvaluator {
         return count;
     }
 
-    private static int countGoodStandingSpots(ServerLevel level, BlockPos center, int radius) {
+    private static int countGoodStandingSpots(HazardField field, BlockPos center, int radius) {
         int count = 0;
         for (int dx = -radius; dx <= radius; dx++) {
             for (int dz = -radius; dz <= radius; dz++) {
                 if (dx == 0 && dz == 0) continue;
 
                 BlockPos pos = center.offset(dx, 0, dz);
-                if (HazardUtil.isSafeStanding(level, pos)) {
-                    BlockPathTypes pathType = HazardUtil.getBlockPathType(level, pos);
+                if (field.isSafeStanding(pos)) {
+                    BlockPathTypes pathType = field.getBlockPathType(pos);
                     if (pathType == BlockPathTypes.WALKABLE || pathType == BlockPathTypes.OPEN) {
                         count++;
                     }
@@ -0,0 +1,187 @@
+package com.sighs.touhou_little_maid_epistalove.util;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.pathfinder.Node;
+import net.minecraft.world.level.pathfinder.Path;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 远距离投递路径复用缓存（按维度），键为起点所在区段与目标位置
+ * 路径经过的区段附近发生方块变化时失效，另有过期时间兜底
+ * 缓存与取出时都会复制路径，导航对路径的修改不会影响缓存
+ * 仅在服务端主线程访问
+ */
+public final class PathReuseCache {
+    private static final long ENTRY_TTL = 600;
+    private static final int MAX_ENTRIES = 256;
+    // 复用时女仆与路径最近节点的最大距离平方
+    private static final double MAX_REJOIN_DISTANCE_SQR = 9;
+    // 节点附近这么远的方块变化也会影响路径
+    private static final int INVALIDATION_RADIUS = 2;
+
+    private static final Map<ResourceKey<Level>, PathReuseCache> CACHES = new HashMap<>();
+
+    private record PathKey(long startSection, long target) {
+    }
+
+    private record Entry(Path path, long storedAt, LongOpenHashSet sections) {
+    }
+
+    private final LinkedHashMap<PathKey, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private final Long2ObjectOpenHashMap<Set<PathKey>> bySection = new Long2ObjectOpenHashMap<>();
+
+    private PathReuseCache() {
+    }
+
+    /**
+     * 取出可复用的路径副本，下一个节点已设为离女仆最近的节点；没有可用路径时返回 null
+     */
+    @Nullable
+    public static Path get(ServerLevel level, BlockPos start, BlockPos target) {
+        PathReuseCache cache = CACHES.get(level.dimension());
+        if (cache == null) return null;
+
+        PathKey key = new PathKey(SectionPos.asLong(start), target.asLong());
+        Entry entry = cache.entries.get(key);
+        if (entry == null) return null;
+        if (level.getGameTime() - entry.storedAt() >= ENTRY_TTL) {
+            cache.remove(key);
+            return null;
+        }
+
+        Path path = entry.path();
+        int nearest = nearestNode(path, start);
+        if (nearest < 0 || path.getNode(nearest).asBlockPos().distSqr(start) > MAX_REJOIN_DISTANCE_SQR) return null;
+
+        Path copy = copyOf(path);
+        copy.setNextNodeIndex(nearest);
+        return copy;
+    }
+
+    public static void put(ServerLevel level, BlockPos start, BlockPos target, Path path) {
+        if (path == null || path.getNodeCount() == 0) return;
+        PathReuseCache cache = CACHES.computeIfAbsent(level.dimension(), k -> new PathReuseCache());
+
+        PathKey key = new PathKey(SectionPos.asLong(start), target.asLong());
+        cache.remove(key);
+
+        LongOpenHashSet sections = new LongOpenHashSet();
+        for (int i = 0; i < path.getNodeCount(); i++) {
+            sections.add(SectionPos.asLong(path.getNode(i).asBlockPos()));
+        }
+        cache.entries.put(key, new Entry(copyOf(path), level.getGameTime(), sections));
+        for (long section : sections) {
+            cache.bySection.computeIfAbsent(section, k -> new HashSet<>()).add(key);
+        }
+
+        if (cache.entries.size() > MAX_ENTRIES) {
+            Iterator<PathKey> it = cache.entries.keySet().iterator();
+            PathKey eldest = it.next();
+            cache.remove(eldest);
+        }
+    }
+
+    /**
+     * 移除前往 target、且会在 pos 处交给女仆的路径；女仆沿缓存的路径卡住后重新规划前调用，避免再次拿到同一条路径
+     */
+    public static void evict(ServerLevel level, BlockPos pos, BlockPos target) {
+        PathReuseCache cache = CACHES.get(level.dimension());
+        if (cache == null || cache.entries.isEmpty()) return;
+
+        long section = SectionPos.asLong(pos);
+        long targetKey = target.asLong();
+        List<PathKey> stale = new ArrayList<>();
+        cache.entries.forEach((key, entry) -> {
+            if (key.target() != targetKey) return;
+            int nearest = nearestNode(entry.path(), pos);
+            if (key.startSection() == section
+                    || (nearest >= 0 && entry.path().getNode(nearest).asBlockPos().distSqr(pos) <= MAX_REJOIN_DISTANCE_SQR)) {
+                stale.add(key);
+            }
+        });
+        stale.forEach(cache::remove);
+    }
+
+    /**
+     * 方块变化：移除经过附近区段的路径
+     */
+    public static void onBlockChanged(ServerLevel level, BlockPos pos) {
+        PathReuseCache cache = CACHES.get(level.dimension());
+        if (cache == null || cache.entries.isEmpty()) return;
+
+        int minX = SectionPos.blockToSectionCoord(pos.getX() - INVALIDATION_RADIUS);
+        int maxX = SectionPos.blockToSectionCoord(pos.getX() + INVALIDATION_RADIUS);
+        int minY = SectionPos.blockToSectionCoord(pos.getY() - INVALIDATION_RADIUS);
+        int maxY = SectionPos.blockToSectionCoord(pos.getY() + INVALIDATION_RADIUS);
+        int minZ = SectionPos.blockToSectionCoord(pos.getZ() - INVALIDATION_RADIUS);
+        int maxZ = SectionPos.blockToSectionCoord(pos.getZ() + INVALIDATION_RADIUS);
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    Set<PathKey> keys = cache.bySection.get(SectionPos.asLong(x, y, z));
+                    if (keys == null) continue;
+                    for (PathKey key : List.copyOf(keys)) {
+                        cache.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    public static void clear(ResourceKey<Level> dimension) {
+        CACHES.remove(dimension);
+    }
+
+    public static void clearAll() {
+        CACHES.clear();
+    }
+
+    private void remove(PathKey key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) return;
+        for (long section : entry.sections()) {
+            Set<PathKey> keys = bySection.get(section);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                bySection.remove(section);
+            }
+        }
+    }
+
+    private static int nearestNode(Path path, BlockPos pos) {
+        int nearest = -1;
+        double nearestDist = Double.MAX_VALUE;
+        for (int i = 0; i < path.getNodeCount(); i++) {
+            double dist = path.getNode(i).asBlockPos().distSqr(pos);
+            if (dist < nearestDist) {
+                nearestDist = dist;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    private static Path copyOf(Path path) {
+        List<Node> nodes = new ArrayList<>(path.getNodeCount());
+        for (int i = 0; i < path.getNodeCount(); i++) {
+            Node node = path.getNode(i);
+            nodes.add(node.cloneAndMove(node.x, node.y, node.z));
+        }
+        return new Path(nodes, path.getTarget(), path.canReach());
+    }
+}
@@ -2,65 +2,90 @@ package com.sighs.touhou_little_maid_epistalove.util;
 
 import com.sighs.touhou_little_maid_epistalove.config.Config;
 import net.minecraft.core.BlockPos;
-import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.Mob;
+import net.minecraft.world.level.BlockGetter;
 import net.minecraft.world.level.pathfinder.BlockPathTypes;
 import net.minecraft.world.level.pathfinder.Path;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
 public final class PathSafetyPlanner {
+    static final double MAX_ACCESS_DISTANCE_SQR = 1024;
+
     private PathSafetyPlanner() {
     }
 
+    /**
+     * 按目标与精度生成路径
+     */
+    @FunctionalInterface
+    public interface PathFactory {
+        @Nullable
+        Path createPath(BlockPos target, int accuracy);
+    }
+
+    /**
+     * 规划结果；safe 为 false 表示所有候选都没有通过安全检查，path 只是未经验证的直接路径，交给上层处理
+     */
+    public record PlannedPath(@Nullable Path path, boolean safe) {
+    }
+
     /**
      * 规划安全的避险路径
      */
-    public static Path planSimpleAvoidancePath(Mob entity, BlockPos target) {
+    public static PlannedPath planSimpleAvoidancePath(Mob entity, BlockPos target) {
         var nav = entity.getNavigation();
-        ServerLevel level = (ServerLevel) entity.level();
-        BlockPos start = entity.blockPosition();
+        return planSimpleAvoidancePath(entity.level(), entity.blockPosition(), target,
+                entity::getPathfindingMalus, nav::createPath);
+    }
 
+    /**
+     * 规划安全的避险路径；只通过 level、malus 与 paths 访问世界，可以在区域快照上离线执行
+     */
+    public static PlannedPath planSimpleAvoidancePath(BlockGetter level, BlockPos start, BlockPos target,
+                                                      HazardUtil.MalusLookup malus, PathFactory paths) {
         // 首先尝试直接路径
-        Path direct = nav.createPath(target, 1);
-        if (isPathSafeEnough(level, direct, entity)) {
-            return direct;
+        Path direct = paths.createPath(target, 1);
+        if (isPathSafeEnough(level, direct, malus)) {
+            return new PlannedPath(direct, true);
         }
 
         // 生成智能绕路候选点
-        List<BlockPos> smartCandidates = generateSmartDetourCandidates(level, start, target, entity);
+        List<BlockPos> smartCandidates = generateSmartDetourCandidates(level, start, target, malus);
         for (BlockPos candidate : smartCandidates) {
-            Path path = nav.createPath(candidate, 1);
-            if (isPathSafeEnough(level, path, entity)) {
-                return path;
+            Path path = paths.createPath(candidate, 1);
+            if (isPathSafeEnough(level, path, malus)) {
+                return new PlannedPath(path, true);
             }
         }
 
         // 尝试附近的安全点
-        List<BlockPos> nearCandidates = generateSafeCandidatesNear(level, target, 3, entity);
+        List<BlockPos> nearCandidates = generateSafeCandidatesNear(level, target, 3, malus);
         for (BlockPos candidate : nearCandidates) {
-            Path path = nav.createPath(candidate, 1);
-            if (isPathSafeEnough(level, path, entity)) {
-                return path;
+            Path path = paths.createPath(candidate, 1);
+            if (isPathSafeEnough(level, path, malus)) {
+                return new PlannedPath(path, true);
             }
         }
 
         // fallback 扩大搜索范围
-        Path fallback = nav.createPath(target, 3);
-        if (isPathSafeEnough(level, fallback, entity)) {
-            return fallback;
+        Path fallback = paths.createPath(target, 3);
+        if (isPathSafeEnough(level, fallback, malus)) {
+            return new PlannedPath(fallback, true);
         }
 
         // 如果都不行，返回直接路径让上层处理
-        return direct;
+        return new PlannedPath(direct, false);
     }
 
     /**
      * 生成智能绕路候选点
      */
-    private static List<BlockPos> generateSmartDetourCandidates(ServerLevel level, BlockPos start, BlockPos target, Mob entity) {
+    private static List<BlockPos> generateSmartDetourCandidates(BlockGetter level, BlockPos start, BlockPos target,
+                                                                HazardUtil.MalusLookup malus) {
         List<BlockPos> candidates = new ArrayList<>();
         PathData pathData = calculatePathData(start, target);
 
@@ -74,10 +99,10 @@ public final class PathSafetyPlanner {
         }
 
         for (BlockPos hazard : hazardPoints) {
-            generateDetourAroundHazard(level, hazard, pathData, candidates, entity);
+            generateDetourAroundHazard(hazard, pathData, candidates);
         }
 
-        candidates.removeIf(pos -> !HazardUtil.isSafeForStanding(level, pos, entity));
+        candidates.removeIf(pos -> !HazardUtil.isSafeForStanding(level, pos, malus));
         candidates.sort(Comparator.comparingDouble(a -> a.distSqr(target)));
 
         return candidates;
@@ -86,8 +111,7 @@ public final class PathSafetyPlanner {
     /**
      * 为危险点生成绕路候选
      */
-    private static void generateDetourAroundHazard(ServerLevel level, BlockPos hazard, PathData pathData,
-                                                   List<BlockPos> candidates, Mob entity) {
+    private static void generateDetourAroundHazard(BlockPos hazard, PathData pathData, List<BlockPos> candidates) {
         if (Math.abs(pathData.dx) > Math.abs(pathData.dz)) {
             addDetourCandidates(candidates, hazard, 0, 0, new int[]{2, 3, 4, -2, -3, -4});
         } else {
@@ -114,30 +138,36 @@ public final class PathSafetyPlanner {
     /**
      * 在目标附近生成安全候选点（按优先级：水平方向>对角线>远距离>垂直方向）
      */
-    public static List<BlockPos> generateSafeCandidatesNear(ServerLevel level, BlockPos target, int radius, Mob entity) {
+    public static List<BlockPos> generateSafeCandidatesNear(BlockGetter level, BlockPos target, int radius, Mob entity) {
+        HazardUtil.MalusLookup malus = entity != null ? entity::getPathfindingMalus : null;
+        return generateSafeCandidatesNear(level, target, radius, malus);
+    }
+
+    public static List<BlockPos> generateSafeCandidatesNear(BlockGetter level, BlockPos target, int radius,
+                                                            HazardUtil.MalusLookup malus) {
         List<BlockPos> candidates = new ArrayList<>();
 
-        addIfSafe(candidates, level, target.north(), entity);
-        addIfSafe(candidates, level, target.south(), entity);
-        addIfSafe(candidates, level, target.east(), entity);
-        addIfSafe(candidates, level, target.west(), entity);
+        addIfSafe(candidates, level, target.north(), malus);
+        addIfSafe(candidates, level, target.south(), malus);
+        addIfSafe(candidates, level, target.east(), malus);
+        addIfSafe(candidates, level, target.west(), malus);
 
         if (radius > 1) {
-            addIfSafe(candidates, level, target.north().east(), entity);
-            addIfSafe(candidates, level, target.north().west(), entity);
-            addIfSafe(candidates, level, target.south().east(), entity);
-            addIfSafe(candidates, level, target.south().west(), entity);
+            addIfSafe(candidates, level, target.north().east(), malus);
+            addIfSafe(candidates, level, target.north().west(), malus);
+            addIfSafe(candidates, level, target.south().east(), malus);
+            addIfSafe(candidates, level, target.south().west(), malus);
 
             for (int dist = 2; dist <= radius; dist++) {
-                addIfSafe(candidates, level, target.north(dist), entity);
-                addIfSafe(candidates, level, target.south(dist), entity);
-                addIfSafe(candidates, level, target.east(dist), entity);
-                addIfSafe(candidates, level, target.west(dist), entity);
+                addIfSafe(candidates, level, target.north(dist), malus);
+                addIfSafe(candidates, level, target.south(dist), malus);
+                addIfSafe(candidates, level, target.east(dist), malus);
+                addIfSafe(candidates, level, target.west(dist), malus);
             }
 
             if (candidates.size() < 2) {
-                addIfSafe(candidates, level, target.above(), entity);
-                addIfSafe(candidates, level, target.below(), entity);
+                addIfSafe(candidates, level, target.above(), malus);
+                addIfSafe(candidates, level, target.below(), malus);
             }
         }
 
@@ -145,18 +175,18 @@ public final class PathSafetyPlanner {
         return candidates;
     }
 
-    public static BlockPos findBestApproachPosition(ServerLevel level, BlockPos target, Mob entity) {
+    public static BlockPos findBestApproachPosition(BlockGetter level, BlockPos target, Mob entity) {
         List<BlockPos> candidates = generateSafeCandidatesNear(level, target, 3, entity);
         return candidates.isEmpty() ? null : candidates.get(0);
     }
 
-    private static void addIfSafe(List<BlockPos> candidates, ServerLevel level, BlockPos pos, Mob entity) {
-        if (HazardUtil.isSafeForStanding(level, pos, entity)) {
+    private static void addIfSafe(List<BlockPos> candidates, BlockGetter level, BlockPos pos, HazardUtil.MalusLookup malus) {
+        if (HazardUtil.isSafeForStanding(level, pos, malus)) {
             candidates.add(pos);
         }
     }
 
-    private static List<BlockPos> findHazardsOnPath(ServerLevel level, BlockPos start, BlockPos target, PathData pathData) {
+    private static List<BlockPos> findHazardsOnPath(BlockGetter level, BlockPos start, BlockPos target, PathData pathData) {
         List<BlockPos> hazards = new ArrayList<>();
 
         if (pathData.distance == 0) return hazards;
@@ -188,10 +218,17 @@ public final class PathSafetyPlanner {
     /**
      * 检查位置是否可达
      */
-    public static boolean isPositionAccessible(ServerLevel level, BlockPos from, BlockPos to) {
+    public static boolean isPositionAccessible(BlockGetter level, BlockPos from, BlockPos to) {
         double distance = from.distSqr(to);
-        if (distance > 1024) return false; // 距离太远
+        if (distance > MAX_ACCESS_DISTANCE_SQR) return false; // 距离太远
 
+        return hasStandingAccess(level, to);
+    }
+
+    /**
+     * 检查目标位置本身或其相邻位置是否可以安全站立（与出发点无关）
+     */
+    public static boolean hasStandingAccess(BlockGetter level, BlockPos to) {
         // 检查目标位置本身
         if (HazardUtil.isSafeStanding(level, to)) {
             return true;
@@ -210,7 +247,7 @@ public final class PathSafetyPlanner {
     /**
      * 检查路径是否足够安全
      */
-    private static boolean isPathSafeEnough(ServerLevel level, Path path, Mob entity) {
+    public static boolean isPathSafeEnough(BlockGetter level, Path path, HazardUtil.MalusLookup malus) {
         if (path == null || path.getNodeCount() == 0) return false;
 
         int nodes = path.getNodeCount();
@@ -231,11 +268,8 @@ public final class PathSafetyPlanner {
             BlockPathTypes pathType = HazardUtil.getBlockPathType(level, pos);
             boolean isDangerous = HazardUtil.isPathTypeDangerous(pathType);
 
-            if (entity != null) {
-                float malus = entity.getPathfindingMalus(pathType);
-                if (malus < 0.0F) {
-                    isDangerous = true;
-                }
+            if (malus != null && malus.getMalus(pathType) < 0.0F) {
+                isDangerous = true;
             }
 
             if (!isDangerous) {
@@ -0,0 +1,88 @@
+package com.sighs.touhou_little_maid_epistalove.util;
+
+import com.sighs.touhou_little_maid_epistalove.config.Config;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.pathfinder.BlockPathTypes;
+import net.minecraft.world.level.pathfinder.WalkNodeEvaluator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按维度、按 tick 缓存路径类型，键为 {@link BlockPos#asLong()}，值为枚举序号
+ * 同一 tick 内的危险评估会大量重复查询相邻位置，缓存只在当前 tick 有效
+ * 仅在服务端主线程使用，其它情况直接计算
+ */
+public final class PathTypeCache {
+    private static final BlockPathTypes[] TYPES = BlockPathTypes.values();
+    private static final byte MISSING = -1;
+    // 单个 tick 查询过多时在下个 tick 重建，避免长期占用过大的表
+    private static final int TRIM_THRESHOLD = 1 << 16;
+
+    private static final Map<ResourceKey<Level>, PathTypeCache> CACHES = new HashMap<>();
+
+    private final Long2ByteOpenHashMap types = new Long2ByteOpenHashMap();
+    private long tick = Long.MIN_VALUE;
+
+    private PathTypeCache() {
+        types.defaultReturnValue(MISSING);
+    }
+
+    public static BlockPathTypes getBlockPathType(ServerLevel level, BlockPos pos) {
+        if (!Config.PATH_TYPE_CACHE.get() || !level.getServer().isSameThread()) {
+            return WalkNodeEvaluator.getBlockPathTypeStatic(level, pos.mutable());
+        }
+        return CACHES.computeIfAbsent(level.dimension(), k -> new PathTypeCache()).get(level, pos);
+    }
+
+    /**
+     * 方块变化会影响自身、上方两格与四周邻接位置的路径类型
+     */
+    public static void onBlockChanged(ServerLevel level, BlockPos pos) {
+        PathTypeCache cache = CACHES.get(level.dimension());
+        if (cache == null || cache.types.isEmpty()) return;
+
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 2; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    cache.types.remove(BlockPos.asLong(pos.getX() + dx, pos.getY() + dy, pos.getZ() + dz));
+                }
+            }
+        }
+    }
+
+    public static void clear(ResourceKey<Level> dimension) {
+        CACHES.remove(dimension);
+    }
+
+    public static void clearAll() {
+        CACHES.clear();
+    }
+
+    private BlockPathTypes get(ServerLevel level, BlockPos pos) {
+        long gameTime = level.getGameTime();
+        if (gameTime != tick) {
+            tick = gameTime;
+            if (types.size() > TRIM_THRESHOLD) {
+                types.clear();
+                types.trim();
+            } else {
+                types.clear();
+            }
+        }
+
+        long key = pos.asLong();
+        byte cached = types.get(key);
+        if (cached != MISSING) {
+            return TYPES[cached];
+        }
+
+        BlockPathTypes type = WalkNodeEvaluator.getBlockPathTypeStatic(level, pos.mutable());
+        types.put(key, (byte) type.ordinal());
+        return type;
+    }
+}
@@ -0,0 +1,139 @@
+package com.sighs.touhou_little_maid_epistalove.util;
+
+import com.flechazo.contact.common.item.IPackageItem;
+import com.flechazo.contact.data.PostcardDataManager;
+import com.mojang.logging.LogUtils;
+import com.sighs.touhou_little_maid_epistalove.TLMEpistalove;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
+import net.minecraftforge.registries.ForgeRegistries;
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 明信片与包裹物品的只读目录：成员判断与随机选取都是 O(1)，并预先取好各明信片的文字宽度供署名排版使用
+ * 包裹物品在注册表冻结后（通用初始化阶段）扫描一次；明信片列表在 {@link PostcardDataManager} 重载后重建：
+ * 数据包重载与服务器停止时显式失效，明信片表对象更换时也会在下次访问时重建
+ * 实例不可变，可以在任意线程上读取
+ */
+public final class PostcardCatalog {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    private static volatile List<ResourceLocation> frozenPackageIds;
+    private static volatile PostcardCatalog instance;
+
+    private final Object source;
+    private final List<ResourceLocation> postcardList;
+    private final Set<ResourceLocation> postcardSet;
+    private final Map<ResourceLocation, Integer> textWidths;
+    private final List<ResourceLocation> packageList;
+    private final Set<ResourceLocation> packageSet;
+
+    private PostcardCatalog(Object source, Map<ResourceLocation, Integer> textWidths, List<ResourceLocation> packageList) {
+        this.source = source;
+        this.postcardList = List.copyOf(textWidths.keySet());
+        this.postcardSet = Set.copyOf(postcardList);
+        this.textWidths = Map.copyOf(textWidths);
+        this.packageList = packageList;
+        this.packageSet = Set.copyOf(packageList);
+    }
+
+    public static PostcardCatalog get() {
+        PostcardCatalog current = instance;
+        Object source = PostcardDataManager.getPostcards();
+        if (current == null || current.source != source) {
+            current = build(source);
+            instance = current;
+        }
+        return current;
+    }
+
+    /**
+     * 丢弃当前目录（明信片数据可能已重载），下次访问时重建
+     */
+    public static void invalidate() {
+        instance = null;
+    }
+
+    private static PostcardCatalog build(Object source) {
+        Map<ResourceLocation, Integer> widths = new LinkedHashMap<>();
+        PostcardDataManager.getPostcards().forEach((id, postcard) -> widths.put(id, postcard.textWidth()));
+        PostcardCatalog catalog = new PostcardCatalog(source, widths, frozenPackageIds());
+        LOGGER.debug("[MaidMail] Built postcard catalog: {} postcards, {} parcel items",
+                catalog.postcardList.size(), catalog.packageList.size());
+        return catalog;
+    }
+
+    private static List<ResourceLocation> frozenPackageIds() {
+        List<ResourceLocation> ids = frozenPackageIds;
+        if (ids == null) {
+            ids = scanPackageItems();
+            frozenPackageIds = ids;
+        }
+        return ids;
+    }
+
+    private static List<ResourceLocation> scanPackageItems() {
+        List<ResourceLocation> ids = new ArrayList<>();
+        for (var item : ForgeRegistries.ITEMS) {
+            if (item instanceof IPackageItem) {
+                ResourceLocation id = ForgeRegistries.ITEMS.getKey(item);
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+        }
+        return List.copyOf(ids);
+    }
+
+    public boolean hasPostcard(ResourceLocation id) {
+        return postcardSet.contains(id);
+    }
+
+    public boolean hasPackage(ResourceLocation id) {
+        return packageSet.contains(id);
+    }
+
+    public List<ResourceLocation> postcardIds() {
+        return postcardList;
+    }
+
+    public List<ResourceLocation> packageIds() {
+        return packageList;
+    }
+
+    @Nullable
+    public ResourceLocation randomPostcard() {
+        return postcardList.isEmpty() ? null : postcardList.get(ThreadLocalRandom.current().nextInt(postcardList.size()));
+    }
+
+    @Nullable
+    public ResourceLocation randomPackage() {
+        return packageList.isEmpty() ? null : packageList.get(ThreadLocalRandom.current().nextInt(packageList.size()));
+    }
+
+    /**
+     * 明信片文字区宽度（像素），未知的明信片返回 0
+     */
+    public int textWidth(ResourceLocation postcardId) {
+        return textWidths.getOrDefault(postcardId, 0);
+    }
+
+    @Mod.EventBusSubscriber(modid = TLMEpistalove.MODID, bus = Mod.EventBusSubscriber.Bus.MOD)
+    public static final class ModBus {
+        @SubscribeEvent
+        public static void onCommonSetup(FMLCommonSetupEvent event) {
+            // 此时物品注册表已冻结，包裹物品列表之后不会再变化
+            event.enqueueWork(() -> frozenPackageIds = scanPackageItems());
+        }
+    }
+}
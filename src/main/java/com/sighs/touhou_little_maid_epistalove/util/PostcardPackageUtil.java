@@ -1,18 +1,12 @@
 package com.sighs.touhou_little_maid_epistalove.util;
 
-import com.flechazo.contact.common.item.IPackageItem;
-import com.flechazo.contact.data.PostcardDataManager;
 import com.github.tartaricacid.touhoulittlemaid.util.ItemsUtil;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.resources.ResourceLocation;
-import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
-import net.minecraftforge.registries.ForgeRegistries;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
 
 public final class PostcardPackageUtil {
 
@@ -36,7 +30,7 @@ public final class PostcardPackageUtil {
     }
 
     private static int resolveTextBoxWidth(ResourceLocation postcardId) {
-        return PostcardDataManager.getPostcard(postcardId).textWidth();
+        return PostcardCatalog.get().textWidth(postcardId);
     }
 
     private static int estimateStringWidthPx(String s) {
@@ -100,54 +94,36 @@ public final class PostcardPackageUtil {
     }
 
     public static ResourceLocation choosePackageId(String parcelIdStr) {
-        if (parcelIdStr != null && !parcelIdStr.isBlank()) {
-            try {
-                ResourceLocation candidate = new ResourceLocation(parcelIdStr);
-                Item item = ForgeRegistries.ITEMS.getValue(candidate);
-                if (item instanceof IPackageItem) {
-                    return candidate;
-                }
-            } catch (Exception ignored) {
-            }
+        PostcardCatalog catalog = PostcardCatalog.get();
+        ResourceLocation candidate = parseId(parcelIdStr);
+        if (candidate != null && catalog.hasPackage(candidate)) {
+            return candidate;
         }
 
-        List<ResourceLocation> packageIds = getAllPackageItemIds();
-        return packageIds.isEmpty()
-                ? new ResourceLocation("contact", "letter")
-                : packageIds.get(ThreadLocalRandom.current().nextInt(packageIds.size()));
+        ResourceLocation fallback = catalog.randomPackage();
+        return fallback != null ? fallback : new ResourceLocation("contact", "letter");
     }
 
     public static ResourceLocation choosePostcardId(String postcardIdStr) {
-        if (postcardIdStr != null && !postcardIdStr.isBlank()) {
-            try {
-                ResourceLocation candidate = new ResourceLocation(postcardIdStr);
-                if (getAllPostcardIds().contains(candidate)) {
-                    return candidate;
-                }
-            } catch (Exception ignored) {
-            }
+        PostcardCatalog catalog = PostcardCatalog.get();
+        ResourceLocation candidate = parseId(postcardIdStr);
+        if (candidate != null && catalog.hasPostcard(candidate)) {
+            return candidate;
         }
 
-        List<ResourceLocation> postcardIds = getAllPostcardIds();
-        return postcardIds.isEmpty()
-                ? new ResourceLocation("contact", "default")
-                : postcardIds.get(ThreadLocalRandom.current().nextInt(postcardIds.size()));
+        ResourceLocation fallback = catalog.randomPostcard();
+        return fallback != null ? fallback : new ResourceLocation("contact", "default");
+    }
+
+    private static ResourceLocation parseId(String idStr) {
+        return (idStr != null && !idStr.isBlank()) ? ResourceLocation.tryParse(idStr) : null;
     }
 
     public static List<ResourceLocation> getAllPackageItemIds() {
-        List<ResourceLocation> ids = new ArrayList<>();
-        for (var item : ForgeRegistries.ITEMS) {
-            if (item instanceof IPackageItem) {
-                ResourceLocation id = ForgeRegistries.ITEMS.getKey(item);
-                if (id != null) {
-                    ids.add(id);
-                }
-            }
-        }
-        return ids;
+        return PostcardCatalog.get().packageIds();
     }
 
     public static List<ResourceLocation> getAllPostcardIds() {
-        return new ArrayList<>(PostcardDataManager.getPostcardIds());
+        return PostcardCatalog.get().postcardIds();
     }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.sighs.touhou_little_maid_epistalove.util;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.profiling.InactiveProfiler;
+import net.minecraft.util.profiling.ProfilerFiller;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.PathNavigationRegion;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.border.WorldBorder;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.material.FluidState;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * 只读区域快照：在主线程复制范围内区块段的方块状态，之后可在其它线程上寻路与做安全评估
+ * 未加载的区块与范围外的位置视为空气，方块实体不可见
+ * 不持有实时区块：父类取到的区块引用在构造时清空，世界边界也复制一份；父类保留的世界只用于读取不变的高度范围
+ */
+public final class RegionSnapshot extends PathNavigationRegion {
+    private final int minChunkX, minChunkZ;
+    private final int chunksX, chunksZ;
+    private final int minSectionY, sectionsY;
+    private final int minBuildHeight, maxBuildHeight;
+    private final PalettedContainer<BlockState>[] sections;
+    private final WorldBorder worldBorder;
+
+    /**
+     * 必须在服务端主线程创建
+     */
+    @SuppressWarnings("unchecked")
+    public RegionSnapshot(ServerLevel level, BlockPos min, BlockPos max) {
+        // 父类会取出范围内的实时区块，这里只让它取一个区块，随后清空引用
+        super(level, min, min);
+        for (ChunkAccess[] row : chunks) {
+            Arrays.fill(row, null);
+        }
+        this.minChunkX = SectionPos.blockToSectionCoord(min.getX());
+        this.minChunkZ = SectionPos.blockToSectionCoord(min.getZ());
+        this.chunksX = SectionPos.blockToSectionCoord(max.getX()) - minChunkX + 1;
+        this.chunksZ = SectionPos.blockToSectionCoord(max.getZ()) - minChunkZ + 1;
+        this.minBuildHeight = level.getMinBuildHeight();
+        this.maxBuildHeight = level.getMaxBuildHeight();
+        this.minSectionY = SectionPos.blockToSectionCoord(Math.max(min.getY(), minBuildHeight));
+        this.sectionsY = Math.max(0, SectionPos.blockToSectionCoord(Math.min(max.getY(), maxBuildHeight - 1)) - minSectionY + 1);
+        this.sections = new PalettedContainer[chunksX * chunksZ * sectionsY];
+        this.worldBorder = new WorldBorder();
+        this.worldBorder.applySettings(level.getWorldBorder().createSettings());
+
+        for (int cx = 0; cx < chunksX; cx++) {
+            for (int cz = 0; cz < chunksZ; cz++) {
+                LevelChunk chunk = level.getChunkSource().getChunkNow(minChunkX + cx, minChunkZ + cz);
+                if (chunk == null) continue;
+                for (int sy = 0; sy < sectionsY; sy++) {
+                    int index = chunk.getSectionIndexFromSectionY(minSectionY + sy);
+                    if (index < 0 || index >= chunk.getSectionsCount()) continue;
+                    LevelChunkSection section = chunk.getSection(index);
+                    if (section.hasOnlyAir()) continue;
+                    sections[sectionIndex(cx, cz, sy)] = section.getStates().copy();
+                }
+            }
+        }
+    }
+
+    @Override
+    public BlockState getBlockState(BlockPos pos) {
+        int y = pos.getY();
+        if (y < minBuildHeight || y >= maxBuildHeight) {
+            return Blocks.VOID_AIR.defaultBlockState();
+        }
+        int cx = SectionPos.blockToSectionCoord(pos.getX()) - minChunkX;
+        int cz = SectionPos.blockToSectionCoord(pos.getZ()) - minChunkZ;
+        int sy = SectionPos.blockToSectionCoord(y) - minSectionY;
+        if (cx < 0 || cz < 0 || sy < 0 || cx >= chunksX || cz >= chunksZ || sy >= sectionsY) {
+            return Blocks.AIR.defaultBlockState();
+        }
+        PalettedContainer<BlockState> states = sections[sectionIndex(cx, cz, sy)];
+        if (states == null) {
+            return Blocks.AIR.defaultBlockState();
+        }
+        return states.get(pos.getX() & 15, y & 15, pos.getZ() & 15);
+    }
+
+    @Override
+    public FluidState getFluidState(BlockPos pos) {
+        return getBlockState(pos).getFluidState();
+    }
+
+    @Nullable
+    @Override
+    public BlockEntity getBlockEntity(BlockPos pos) {
+        return null;
+    }
+
+    @Override
+    public WorldBorder getWorldBorder() {
+        return worldBorder;
+    }
+
+    @Override
+    public ProfilerFiller getProfiler() {
+        // 服务器的性能分析器只能在主线程使用
+        return InactiveProfiler.INSTANCE;
+    }
+
+    @Override
+    public BlockGetter getChunkForCollisions(int chunkX, int chunkZ) {
+        // 碰撞检测同样只读快照，不访问实时区块
+        return this;
+    }
+
+    private int sectionIndex(int cx, int cz, int sy) {
+        return (cx * chunksZ + cz) * sectionsY + sy;
+    }
+}